@@ -0,0 +1,47 @@
+package com.flowyun.dolphinmq.benchmark;
+
+import com.flowyun.dolphinmq.utils.BeanMapUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bean与Map互转压测（生产端toMap、消费端toBean的每条消息开销）
+ *
+ * @author Barry
+ * @since 2026/10/18 16:00
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BeanMapUtilsBenchmark {
+    private BenchmarkBean bean;
+    private Map<String, Object> map;
+    private Map<Object, Object> objectMap;
+
+    @Setup
+    public void setup() throws Exception {
+        bean = new BenchmarkBean("benchmark", 18, System.currentTimeMillis(), "payload-0123456789");
+        map = BeanMapUtils.toMap(bean);
+        objectMap = BeanMapUtils.getObjectObjectMap(map);
+    }
+
+    @Benchmark
+    public Map<String, Object> toMap() throws Exception {
+        return BeanMapUtils.toMap(bean);
+    }
+
+    @Benchmark
+    public Object toBean() throws Exception {
+        return BeanMapUtils.toBean(BenchmarkBean.class, objectMap);
+    }
+
+    @Benchmark
+    public Map<Object, Object> getObjectObjectMap() {
+        return BeanMapUtils.getObjectObjectMap(map);
+    }
+}
@@ -0,0 +1,56 @@
+package com.flowyun.dolphinmq.benchmark;
+
+/**
+ * 压测用消息体，字段构成接近业务中常见的小消息
+ *
+ * @author Barry
+ * @since 2026/10/18 16:00
+ */
+public class BenchmarkBean {
+    private String name;
+    private int age;
+    private long timestamp;
+    private String payload;
+
+    public BenchmarkBean() {
+    }
+
+    public BenchmarkBean(String name, int age, long timestamp, String payload) {
+        this.name = name;
+        this.age = age;
+        this.timestamp = timestamp;
+        this.payload = payload;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+    public void setAge(int age) {
+        this.age = age;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+}
@@ -0,0 +1,104 @@
+package com.flowyun.dolphinmq.benchmark;
+
+import com.flowyun.dolphinmq.common.DolphinMQConfig;
+import com.flowyun.dolphinmq.consumer.MessageView;
+import com.flowyun.dolphinmq.consumer.MessageViewListener;
+import com.flowyun.dolphinmq.consumer.MsgListener;
+import com.flowyun.dolphinmq.consumer.PullConsumerClient;
+import com.flowyun.dolphinmq.transport.InMemoryTransport;
+import com.flowyun.dolphinmq.utils.BeanMapUtils;
+import org.openjdk.jmh.annotations.*;
+import org.redisson.api.StreamMessageId;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 消费路径压测：InMemoryTransport上的拉取、分发、监听器、ACK全流程，每次调用处理BATCH条消息
+ * 主要用于查看每条消息的分配量（-prof gc 的gc.alloc.rate.norm），传输层不经过网络，分配基本都来自消费端
+ *
+ * @author Barry
+ * @since 2026/10/18 23:20
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConsumePathBenchmark {
+    private static final int BATCH = 100;
+    private static final String TOPIC = "consume-path";
+
+    /**
+     * bean：注册消息Bean监听器；view：只注册消息视图监听器
+     */
+    @Param({"bean", "view"})
+    public String listener;
+
+    private AnnotationConfigApplicationContext context;
+    private InMemoryTransport transport;
+    private PullConsumerClient consumer;
+    private Map<Object, Object> fields;
+    private final AtomicLong consumed = new AtomicLong();
+    private long expected;
+
+    @Setup
+    public void setup() throws Exception {
+        context = new AnnotationConfigApplicationContext(DolphinMQConfig.class);
+        DolphinMQConfig config = context.getBean(DolphinMQConfig.class);
+        config.setFetchMessageSize(BATCH);
+        config.setMetricsEnabled(false);
+        transport = new InMemoryTransport();
+        consumer = new PullConsumerClient.Builder(config)
+                .setTransport(transport)
+                .setService("benchmark")
+                .setConsumerName("benchmark-consumer")
+                .build();
+        if ("view".equals(listener)) {
+            consumer.subscribe(TOPIC).registerViewListener(new MessageViewListener() {
+                @Override
+                public void consume(MessageView view) {
+                    if (view.getString("name") != null) {
+                        consumed.incrementAndGet();
+                    }
+                }
+            });
+        } else {
+            consumer.subscribe(TOPIC, BenchmarkBean.class).registerListener(new MsgListener<BenchmarkBean>() {
+                @Override
+                public void consume(BenchmarkBean dto) {
+                    if (dto.getName() != null) {
+                        consumed.incrementAndGet();
+                    }
+                }
+            });
+        }
+        consumer.start();
+        fields = BeanMapUtils.getObjectObjectMap(BeanMapUtils.toMap(
+                new BenchmarkBean("benchmark", 18, System.currentTimeMillis(), "payload-0123456789")));
+    }
+
+    @TearDown
+    public void tearDown() {
+        consumer.stop();
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long consumeBatch() {
+        for (int i = 0; i < BATCH; i++) {
+            transport.append(TOPIC, StreamMessageId.AUTO_GENERATED, fields, 0);
+        }
+        expected += BATCH;
+        // 不等待拉取周期，直接触发拉取直到本批全部处理完
+        while (consumed.get() < expected) {
+            consumer.consumeHealthMessages();
+            Thread.onSpinWait();
+        }
+        return consumed.get();
+    }
+}
@@ -0,0 +1,55 @@
+package com.flowyun.dolphinmq.benchmark;
+
+import com.flowyun.dolphinmq.common.SequenceUtil;
+import com.flowyun.dolphinmq.common.SnowflakeDistributeId;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 消息ID生成压测（单线程与多线程竞争）
+ * 两个生成器每毫秒最多4096个ID，竞争场景下同时反映synchronized开销与序列耗尽后的自旋等待
+ *
+ * @author Barry
+ * @since 2026/10/18 16:00
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdGeneratorBenchmark {
+    private SequenceUtil sequence;
+    private SnowflakeDistributeId snowflake;
+
+    @Setup
+    public void setup() {
+        sequence = SequenceUtil.getInstance();
+        snowflake = SnowflakeDistributeId.getInstance();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long sequenceNextId() {
+        return sequence.nextId();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long sequenceNextIdContended() {
+        return sequence.nextId();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long snowflakeNextId() {
+        return snowflake.nextId();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long snowflakeNextIdContended() {
+        return snowflake.nextId();
+    }
+}
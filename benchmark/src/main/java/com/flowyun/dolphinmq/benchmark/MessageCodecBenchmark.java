@@ -0,0 +1,73 @@
+package com.flowyun.dolphinmq.benchmark;
+
+import com.flowyun.dolphinmq.common.Message;
+import com.flowyun.dolphinmq.utils.BeanMapUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.redisson.client.codec.Codec;
+import org.redisson.codec.MarshallingCodec;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 消息编解码压测
+ * encode：Bean -> Message -> stream字段（Redisson默认的MarshallingCodec）
+ * decode：stream字段字节 -> Map -> Bean，即消费端每条消息的解码路径
+ *
+ * @author Barry
+ * @since 2026/10/18 16:00
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageCodecBenchmark {
+    private final Codec codec = new MarshallingCodec();
+    private BenchmarkBean bean;
+    private Map<String, byte[]> encodedFields;
+
+    @Setup
+    public void setup() throws Exception {
+        bean = new BenchmarkBean("benchmark", 18, System.currentTimeMillis(), "payload-0123456789");
+        encodedFields = new HashMap<>();
+        for (Map.Entry<String, Object> field :
+                BeanMapUtils.toMap(bean).entrySet()) {
+            ByteBuf buf = codec.getMapValueEncoder().encode(field.getValue());
+            byte[] bytes = new byte[buf.readableBytes()];
+            buf.readBytes(bytes);
+            buf.release();
+            encodedFields.put(field.getKey(), bytes);
+        }
+    }
+
+    @Benchmark
+    public void encode(Blackhole blackhole) throws Exception {
+        Message msg = new Message("benchmark");
+        msg.setProperties(BeanMapUtils.toMap(bean));
+        for (Map.Entry<Object, Object> field :
+                BeanMapUtils.getObjectObjectMap(msg.getProperties()).entrySet()) {
+            ByteBuf key = codec.getMapKeyEncoder().encode(field.getKey());
+            ByteBuf value = codec.getMapValueEncoder().encode(field.getValue());
+            blackhole.consume(key.readableBytes() + value.readableBytes());
+            key.release();
+            value.release();
+        }
+        blackhole.consume(msg.getId());
+    }
+
+    @Benchmark
+    public Object decode() throws Exception {
+        Map<Object, Object> fields = new HashMap<>();
+        for (Map.Entry<String, byte[]> field :
+                encodedFields.entrySet()) {
+            fields.put(field.getKey(), codec.getMapValueDecoder().decode(Unpooled.wrappedBuffer(field.getValue()), null));
+        }
+        return BeanMapUtils.toBean(BenchmarkBean.class, fields);
+    }
+}
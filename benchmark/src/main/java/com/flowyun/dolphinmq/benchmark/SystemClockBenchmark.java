@@ -0,0 +1,39 @@
+package com.flowyun.dolphinmq.benchmark;
+
+import com.flowyun.dolphinmq.common.SystemClock;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SystemClock与System.currentTimeMillis对比
+ *
+ * @author Barry
+ * @since 2026/10/18 16:00
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SystemClockBenchmark {
+
+    @Benchmark
+    @Threads(1)
+    public long systemClockNow() {
+        return SystemClock.now();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long systemClockNowContended() {
+        return SystemClock.now();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+}
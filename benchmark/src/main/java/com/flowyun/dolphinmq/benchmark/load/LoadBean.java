@@ -0,0 +1,46 @@
+package com.flowyun.dolphinmq.benchmark.load;
+
+/**
+ * 压测消息，seq用于统计重复投递，sentAt为发送时的System.nanoTime，生产者与消费者在同一进程内可直接计算端到端延迟
+ *
+ * @author Barry
+ * @since 2026/10/18 16:30
+ */
+public class LoadBean {
+    private long seq;
+    private long sentAt;
+    private String payload;
+
+    public LoadBean() {
+    }
+
+    public LoadBean(long seq, long sentAt, String payload) {
+        this.seq = seq;
+        this.sentAt = sentAt;
+        this.payload = payload;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public long getSentAt() {
+        return sentAt;
+    }
+
+    public void setSentAt(long sentAt) {
+        this.sentAt = sentAt;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+}
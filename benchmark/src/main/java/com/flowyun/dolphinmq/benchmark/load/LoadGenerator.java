@@ -0,0 +1,214 @@
+package com.flowyun.dolphinmq.benchmark.load;
+
+import com.flowyun.dolphinmq.common.DolphinMQConfig;
+import com.flowyun.dolphinmq.common.Message;
+import com.flowyun.dolphinmq.consumer.MsgListener;
+import com.flowyun.dolphinmq.consumer.PullConsumerClient;
+import com.flowyun.dolphinmq.producer.Producer;
+import com.flowyun.dolphinmq.utils.BeanMapUtils;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 端到端吞吐与延迟压测
+ * 同一进程内运行若干生产者与消费者，统计发送/消费速率、端到端延迟分位数以及期间的Redis命令数
+ * <p>
+ * 参数均为--key=value形式：
+ * redis、redisServer、redisPort、producers、consumers、topics、messages、messageSize、inflight、timeoutSeconds；
+ * 其余参数作为af.dolphinmq.*配置项传入，例如--fetchMessageSize=50 --prefetchCount=200
+ * </p>
+ *
+ * @author Barry
+ * @since 2026/10/18 16:30
+ */
+public class LoadGenerator {
+    private static final Set<String> OPTIONS = new HashSet<>(Arrays.asList(
+            "redis", "redisServer", "redisPort", "producers", "consumers", "topics",
+            "messages", "messageSize", "inflight", "timeoutSeconds"));
+
+    private final Map<String, String> options;
+    private final Recorder latency = new Recorder(3);
+    private final AtomicLong received = new AtomicLong();
+    private final Set<Long> unique = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sendErrors = new AtomicLong();
+
+    public LoadGenerator(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg :
+                args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("expected --key=value but got " + arg);
+            }
+            String key = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (OPTIONS.contains(key)) {
+                options.put(key, value);
+            } else {
+                System.setProperty(key.startsWith("af.dolphinmq.") ? key : "af.dolphinmq." + key, value);
+            }
+        }
+        new LoadGenerator(options).run();
+        System.exit(0);
+    }
+
+    public void run() throws Exception {
+        String redisServer = options.get("redisServer");
+        LocalRedisServer server = null;
+        String address = options.getOrDefault("redis", "redis://127.0.0.1:6379");
+        if (redisServer != null) {
+            server = LocalRedisServer.start(redisServer, intOption("redisPort", 6390));
+            address = server.getAddress();
+        }
+        Config redissonConfig = new Config();
+        redissonConfig.useSingleServer().setAddress(address);
+        RedissonClient redisson = Redisson.create(redissonConfig);
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(DolphinMQConfig.class);
+        try {
+            execute(redisson, context.getBean(DolphinMQConfig.class));
+        } finally {
+            context.close();
+            redisson.shutdown();
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    private void execute(RedissonClient redisson, DolphinMQConfig config) throws InterruptedException {
+        int producers = intOption("producers", 1);
+        int consumers = intOption("consumers", 1);
+        int topicCount = intOption("topics", 1);
+        int messages = intOption("messages", 100000);
+        int messageSize = intOption("messageSize", 100);
+        int inflight = intOption("inflight", 1000);
+        int timeoutSeconds = intOption("timeoutSeconds", 120);
+
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        List<String> topics = new ArrayList<>();
+        for (int i = 0; i < topicCount; i++) {
+            topics.add("loadgen-" + runId + "-" + i);
+        }
+        List<PullConsumerClient> clients = new ArrayList<>();
+        MsgListener<LoadBean> listener = new MsgListener<LoadBean>() {
+            @Override
+            public void consume(LoadBean dto) {
+                latency.recordValue(Math.max(0, (System.nanoTime() - dto.getSentAt()) / 1000));
+                unique.add(dto.getSeq());
+                received.incrementAndGet();
+            }
+        };
+        for (int c = 0; c < consumers; c++) {
+            PullConsumerClient client = new PullConsumerClient.Builder(config)
+                    .setRedissonClient(redisson)
+                    .setService("loadgen")
+                    .setConsumerName("loadgen-consumer-" + c)
+                    .build();
+            for (String topic :
+                    topics) {
+                client.subscribe(topic, LoadBean.class).registerListener(listener);
+            }
+            clients.add(client);
+        }
+
+        Map<String, Long> commandsBefore = RedisCommandStats.snapshot(redisson);
+        clients.forEach(PullConsumerClient::start);
+        char[] chars = new char[messageSize];
+        Arrays.fill(chars, 'x');
+        String payload = new String(chars);
+
+        long start = System.nanoTime();
+        List<Thread> producerThreads = new ArrayList<>();
+        AtomicLong seq = new AtomicLong();
+        for (int p = 0; p < producers; p++) {
+            int share = messages / producers + (p < messages % producers ? 1 : 0);
+            Producer producer = new Producer();
+            producer.setConfig(config);
+            producer.setClient(redisson);
+            Thread thread = new Thread(() -> produce(producer, topics, share, inflight, seq, payload), "loadgen-producer-" + p);
+            producerThreads.add(thread);
+            thread.start();
+        }
+        for (Thread thread :
+                producerThreads) {
+            thread.join();
+        }
+        long produced = System.nanoTime();
+
+        long deadline = start + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        while (unique.size() < messages - sendErrors.get() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        long consumed = System.nanoTime();
+        clients.forEach(PullConsumerClient::stop);
+        Map<String, Long> commands = RedisCommandStats.diff(commandsBefore, RedisCommandStats.snapshot(redisson));
+        for (String topic :
+                topics) {
+            redisson.getStream(topic).delete();
+        }
+        report(messages, start, produced, consumed, commands);
+    }
+
+    private void produce(Producer producer, List<String> topics, int count, int inflight, AtomicLong seq, String payload) {
+        Semaphore window = new Semaphore(inflight);
+        try {
+            for (int i = 0; i < count; i++) {
+                window.acquire();
+                Message msg = new Message(topics.get(i % topics.size()));
+                msg.setProperties(BeanMapUtils.toMap(new LoadBean(seq.getAndIncrement(), System.nanoTime(), payload)));
+                producer.sendMessageAsync(msg).whenComplete((res, ex) -> {
+                    if (ex != null) {
+                        sendErrors.incrementAndGet();
+                    }
+                    window.release();
+                });
+            }
+            window.acquire(inflight);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void report(int messages, long start, long produced, long consumed, Map<String, Long> commands) {
+        Histogram histogram = latency.getIntervalHistogram();
+        double produceSeconds = (produced - start) / 1e9;
+        double consumeSeconds = (consumed - start) / 1e9;
+        long total = RedisCommandStats.total(commands);
+        System.out.println("==== DolphinMQ load report ====");
+        System.out.printf("messages           : %d (send errors %d)%n", messages, sendErrors.get());
+        System.out.printf("received           : %d (unique %d, duplicates %d)%n",
+                received.get(), unique.size(), received.get() - unique.size());
+        System.out.printf("produce throughput : %.0f msgs/s%n", messages / produceSeconds);
+        System.out.printf("consume throughput : %.0f msgs/s%n", unique.size() / consumeSeconds);
+        System.out.printf("latency (us)       : p50=%d p99=%d p999=%d max=%d%n",
+                histogram.getValueAtPercentile(50),
+                histogram.getValueAtPercentile(99),
+                histogram.getValueAtPercentile(99.9),
+                histogram.getMaxValue());
+        System.out.printf("redis commands     : %d (%.2f per message)%n", total, (double) total / Math.max(1, messages));
+        for (Map.Entry<String, Long> command :
+                commands.entrySet()) {
+            System.out.printf("  %-16s %d%n", command.getKey(), command.getValue());
+        }
+    }
+
+    private int intOption(String key, int defaultValue) {
+        String value = options.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+}
@@ -0,0 +1,68 @@
+package com.flowyun.dolphinmq.benchmark.load;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动一个本地redis-server进程（不持久化），压测结束后关闭
+ *
+ * @author Barry
+ * @since 2026/10/18 16:30
+ */
+public class LocalRedisServer implements AutoCloseable {
+    private final Process process;
+    private final int port;
+
+    private LocalRedisServer(Process process, int port) {
+        this.process = process;
+        this.port = port;
+    }
+
+    /**
+     * 启动redis-server并等待端口可连接
+     *
+     * @param executable redis-server可执行文件路径
+     * @param port       监听端口
+     * @return 运行中的服务
+     * @author Barry
+     * @since 2026/10/18 16:30
+     **/
+    public static LocalRedisServer start(String executable, int port) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(executable,
+                "--port", String.valueOf(port),
+                "--save", "",
+                "--appendonly", "no")
+                .redirectErrorStream(true)
+                .redirectOutput(new File(System.getProperty("java.io.tmpdir"), "dolphinmq-redis-" + port + ".log"))
+                .start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IOException("redis-server exited with code " + process.exitValue());
+            }
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress("127.0.0.1", port), 200);
+                return new LocalRedisServer(process, port);
+            } catch (IOException e) {
+                Thread.sleep(50);
+            }
+        }
+        process.destroyForcibly();
+        throw new IOException("redis-server did not start listening on port " + port);
+    }
+
+    public String getAddress() {
+        return "redis://127.0.0.1:" + port;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(5, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+    }
+}
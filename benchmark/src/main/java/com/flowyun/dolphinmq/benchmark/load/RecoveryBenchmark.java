@@ -0,0 +1,195 @@
+package com.flowyun.dolphinmq.benchmark.load;
+
+import com.flowyun.dolphinmq.common.DolphinMQConfig;
+import com.flowyun.dolphinmq.common.Message;
+import com.flowyun.dolphinmq.consumer.MsgListener;
+import com.flowyun.dolphinmq.consumer.PullConsumerClient;
+import com.flowyun.dolphinmq.producer.Producer;
+import com.flowyun.dolphinmq.utils.BeanMapUtils;
+import org.redisson.Redisson;
+import org.redisson.api.RStream;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.StreamMessageId;
+import org.redisson.config.Config;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 故障恢复压测：消费者拉取大量消息后宕机（消息留在其PendingList中），测量存活消费者认领并处理完这些消息的耗时
+ * <p>
+ * 每组参数使用新的主题：先生产messages条消息，victim消费者读取其中victimPending条后不再ACK，
+ * 随后启动consumers个存活消费者，统计全部消息处理完成的时间、首条/末条被认领消息的处理时间、重复投递数与恢复期间的Redis命令数。
+ * </p>
+ * <p>
+ * 参数为--key=value形式：redis、redisServer、redisPort、messages、victimPending、consumers、timeoutSeconds，
+ * 以及逗号分隔的claimThreshold（毫秒）与pendingListIdleThreshold（秒）取值列表，按笛卡尔积逐组运行；
+ * 其余参数作为af.dolphinmq.*配置项传入，例如--checkPendingListsPeriod=1
+ * </p>
+ *
+ * @author Barry
+ * @since 2026/10/18 17:10
+ */
+public class RecoveryBenchmark {
+    private static final Set<String> OPTIONS = new HashSet<>(Arrays.asList(
+            "redis", "redisServer", "redisPort", "messages", "victimPending", "consumers", "timeoutSeconds",
+            "claimThreshold", "pendingListIdleThreshold"));
+    private static final String GROUP = "recovery";
+
+    private final Map<String, String> options;
+
+    public RecoveryBenchmark(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg :
+                args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("expected --key=value but got " + arg);
+            }
+            String key = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (OPTIONS.contains(key)) {
+                options.put(key, value);
+            } else {
+                System.setProperty(key.startsWith("af.dolphinmq.") ? key : "af.dolphinmq." + key, value);
+            }
+        }
+        new RecoveryBenchmark(options).run();
+        System.exit(0);
+    }
+
+    public void run() throws Exception {
+        String redisServer = options.get("redisServer");
+        LocalRedisServer server = null;
+        String address = options.getOrDefault("redis", "redis://127.0.0.1:6379");
+        if (redisServer != null) {
+            server = LocalRedisServer.start(redisServer, intOption("redisPort", 6390));
+            address = server.getAddress();
+        }
+        Config redissonConfig = new Config();
+        redissonConfig.useSingleServer().setAddress(address);
+        RedissonClient redisson = Redisson.create(redissonConfig);
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(DolphinMQConfig.class);
+        try {
+            DolphinMQConfig config = context.getBean(DolphinMQConfig.class);
+            for (String claimThreshold :
+                    options.getOrDefault("claimThreshold", String.valueOf(config.getClaimThreshold())).split(",")) {
+                for (String idleThreshold :
+                        options.getOrDefault("pendingListIdleThreshold", String.valueOf(config.getPendingListIdleThreshold())).split(",")) {
+                    config.setClaimThreshold(Integer.parseInt(claimThreshold.trim()));
+                    config.setPendingListIdleThreshold(Integer.parseInt(idleThreshold.trim()));
+                    runScenario(redisson, config);
+                }
+            }
+        } finally {
+            context.close();
+            redisson.shutdown();
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    private void runScenario(RedissonClient redisson, DolphinMQConfig config) throws Exception {
+        int messages = intOption("messages", 100000);
+        int victimPending = intOption("victimPending", messages / 2);
+        int consumers = intOption("consumers", 1);
+        int timeoutSeconds = intOption("timeoutSeconds", 300);
+        String topic = "recovery-" + Long.toString(System.currentTimeMillis(), 36);
+
+        RStream<Object, Object> stream = redisson.getStream(topic);
+        stream.createGroup(GROUP, StreamMessageId.ALL);
+        Producer producer = new Producer();
+        producer.setConfig(config);
+        producer.setClient(redisson);
+        for (int i = 0; i < messages; i++) {
+            Message msg = new Message(topic);
+            msg.setProperties(BeanMapUtils.toMap(new LoadBean(i, System.nanoTime(), "recovery")));
+            producer.sendMessageAsync(msg).join();
+        }
+
+        // victim拉取后宕机：消息进入其PendingList但永远不会ACK
+        Set<Long> victimSeqs = new HashSet<>();
+        while (victimSeqs.size() < victimPending) {
+            Map<StreamMessageId, Map<Object, Object>> read = stream.readGroup(GROUP, "victim",
+                    Math.min(1000, victimPending - victimSeqs.size()), StreamMessageId.NEVER_DELIVERED);
+            if (read.isEmpty()) {
+                break;
+            }
+            for (Map<Object, Object> fields :
+                    read.values()) {
+                victimSeqs.add(((Number) fields.get("seq")).longValue());
+            }
+        }
+
+        Set<Long> consumed = ConcurrentHashMap.newKeySet();
+        AtomicLong deliveries = new AtomicLong();
+        AtomicLong firstRecovered = new AtomicLong();
+        AtomicLong lastRecovered = new AtomicLong();
+        MsgListener<LoadBean> listener = new MsgListener<LoadBean>() {
+            @Override
+            public void consume(LoadBean dto) {
+                deliveries.incrementAndGet();
+                if (consumed.add(dto.getSeq()) && victimSeqs.contains(dto.getSeq())) {
+                    long now = System.nanoTime();
+                    firstRecovered.compareAndSet(0, now);
+                    lastRecovered.set(now);
+                }
+            }
+        };
+        List<PullConsumerClient> clients = new ArrayList<>();
+        for (int c = 0; c < consumers; c++) {
+            PullConsumerClient client = new PullConsumerClient.Builder(config)
+                    .setRedissonClient(redisson)
+                    .setService(GROUP)
+                    .setConsumerName("survivor-" + c)
+                    .build();
+            client.subscribe(topic, LoadBean.class).registerListener(listener);
+            clients.add(client);
+        }
+
+        Map<String, Long> commandsBefore = RedisCommandStats.snapshot(redisson);
+        long start = System.nanoTime();
+        clients.forEach(PullConsumerClient::start);
+        long deadline = start + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        while (consumed.size() < messages && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        long end = System.nanoTime();
+        clients.forEach(PullConsumerClient::stop);
+        Map<String, Long> commands = RedisCommandStats.diff(commandsBefore, RedisCommandStats.snapshot(redisson));
+        stream.delete();
+
+        long total = RedisCommandStats.total(commands);
+        double seconds = (end - start) / 1e9;
+        System.out.printf("==== recovery claimThreshold=%dms pendingListIdleThreshold=%ds ====%n",
+                config.getClaimThreshold(), config.getPendingListIdleThreshold());
+        System.out.printf("victim pending     : %d of %d messages%n", victimSeqs.size(), messages);
+        System.out.printf("processed          : %d (%s)%n", consumed.size(),
+                consumed.size() < messages ? "TIMED OUT" : "complete");
+        System.out.printf("time to complete   : %.3f s%n", seconds);
+        System.out.printf("first recovered at : %s%n", millisSince(start, firstRecovered.get()));
+        System.out.printf("last recovered at  : %s%n", millisSince(start, lastRecovered.get()));
+        System.out.printf("duplicates         : %d%n", deliveries.get() - consumed.size());
+        System.out.printf("redis commands     : %d (%.0f/s)%n", total, total / seconds);
+        for (Map.Entry<String, Long> command :
+                commands.entrySet()) {
+            System.out.printf("  %-16s %d%n", command.getKey(), command.getValue());
+        }
+    }
+
+    private static String millisSince(long start, long at) {
+        return at == 0 ? "-" : String.format("%.1f ms", (at - start) / 1e6);
+    }
+
+    private int intOption(String key, int defaultValue) {
+        String value = options.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+}
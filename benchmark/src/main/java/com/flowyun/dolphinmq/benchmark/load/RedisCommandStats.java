@@ -0,0 +1,70 @@
+package com.flowyun.dolphinmq.benchmark.load;
+
+import org.redisson.api.Node;
+import org.redisson.api.RedissonClient;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 通过INFO commandstats统计Redis命令调用次数，两次快照相减得到压测期间的命令数
+ *
+ * @author Barry
+ * @since 2026/10/18 16:30
+ */
+public final class RedisCommandStats {
+    private static final String PREFIX = "cmdstat_";
+
+    private RedisCommandStats() {
+    }
+
+    /**
+     * 各节点命令调用次数之和
+     *
+     * @param client Redisson客户端
+     * @return 命令名 -> 调用次数
+     * @author Barry
+     * @since 2026/10/18 16:30
+     **/
+    public static Map<String, Long> snapshot(RedissonClient client) {
+        Map<String, Long> calls = new TreeMap<>();
+        for (Node node :
+                client.getNodesGroup().getNodes()) {
+            Map<String, String> stats = node.info(Node.InfoSection.COMMANDSTATS);
+            for (Map.Entry<String, String> stat :
+                    stats.entrySet()) {
+                if (!stat.getKey().startsWith(PREFIX)) {
+                    continue;
+                }
+                // calls=10,usec=100,usec_per_call=10.00
+                String value = stat.getValue();
+                int start = value.indexOf("calls=") + "calls=".length();
+                int end = value.indexOf(',', start);
+                long count = Long.parseLong(end < 0 ? value.substring(start) : value.substring(start, end));
+                calls.merge(stat.getKey().substring(PREFIX.length()), count, Long::sum);
+            }
+        }
+        return calls;
+    }
+
+    public static Map<String, Long> diff(Map<String, Long> before, Map<String, Long> after) {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<String, Long> entry :
+                after.entrySet()) {
+            long delta = entry.getValue() - before.getOrDefault(entry.getKey(), 0L);
+            if (delta > 0) {
+                result.put(entry.getKey(), delta);
+            }
+        }
+        return result;
+    }
+
+    public static long total(Map<String, Long> calls) {
+        long total = 0;
+        for (long count :
+                calls.values()) {
+            total += count;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,377 @@
+package com.flowyun.dolphinmq.archive;
+
+import com.flowyun.dolphinmq.common.SequenceUtil;
+import com.flowyun.dolphinmq.utils.FieldCodec;
+import org.redisson.api.StreamMessageId;
+
+import java.io.*;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 本地归档存储：每个主题一个目录，每次归档写入一个只读的归档段文件
+ * <p>
+ * 归档段由若干压缩块组成（每块最多BLOCK_RECORDS条消息，Deflate压缩），文件尾部是块索引（每块的首尾ID、偏移与长度），
+ * 按ID读取时只解压命中的块。段文件先写临时文件再原子改名，宕机不会留下半个段。
+ * </p>
+ *
+ * @author Barry
+ * @since 2026/10/18 20:30
+ */
+public class ArchiveStore {
+    private static final int MAGIC = 0x444d5141;
+    private static final int BLOCK_RECORDS = 256;
+    private static final int BLOCK_INDEX_ENTRY = 8 * 4 + 8 + 4 + 4 + 4;
+    private static final String SUFFIX = ".arc";
+
+    private final Path baseDir;
+    /**
+     * 段文件 -> 块索引（段文件写入后不再变化）
+     */
+    private final Map<Path, List<Block>> indexes = new ConcurrentHashMap<>();
+
+    private static final class Block {
+        final StreamMessageId firstId;
+        final StreamMessageId lastId;
+        final long offset;
+        final int compressedLength;
+        final int length;
+        final int count;
+
+        Block(StreamMessageId firstId, StreamMessageId lastId, long offset, int compressedLength, int length, int count) {
+            this.firstId = firstId;
+            this.lastId = lastId;
+            this.offset = offset;
+            this.compressedLength = compressedLength;
+            this.length = length;
+            this.count = count;
+        }
+    }
+
+    public ArchiveStore(Path baseDir) {
+        this.baseDir = baseDir;
+    }
+
+    /**
+     * 写入一批按ID递增的消息
+     *
+     * @param topic    主题
+     * @param messages 消息（迭代顺序即ID顺序）
+     * @author Barry
+     * @since 2026/10/18 20:30
+     **/
+    public void write(String topic, Map<StreamMessageId, Map<Object, Object>> messages) throws IOException {
+        if (messages.isEmpty()) {
+            return;
+        }
+        Path dir = Files.createDirectories(baseDir.resolve(URLEncoder.encode(topic, StandardCharsets.UTF_8)));
+        StreamMessageId first = messages.keySet().iterator().next();
+        Path file = dir.resolve(String.format("%019d-%019d", first.getId0(), first.getId1()) + SUFFIX);
+        Path tmp = dir.resolve(file.getFileName() + ".tmp");
+        List<Block> blocks = new ArrayList<>();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            long offset = 0;
+            ByteArrayOutputStream block = new ByteArrayOutputStream(64 * 1024);
+            DataOutputStream blockOut = new DataOutputStream(block);
+            StreamMessageId blockFirst = null;
+            StreamMessageId blockLast = null;
+            int count = 0;
+            Iterator<Map.Entry<StreamMessageId, Map<Object, Object>>> iterator = messages.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<StreamMessageId, Map<Object, Object>> message = iterator.next();
+                byte[] fields = FieldCodec.encode(message.getValue());
+                blockOut.writeLong(message.getKey().getId0());
+                blockOut.writeLong(message.getKey().getId1());
+                blockOut.writeInt(fields.length);
+                blockOut.write(fields);
+                if (blockFirst == null) {
+                    blockFirst = message.getKey();
+                }
+                blockLast = message.getKey();
+                count++;
+                if (count == BLOCK_RECORDS || !iterator.hasNext()) {
+                    byte[] compressed = compress(deflater, block.toByteArray());
+                    out.write(compressed);
+                    blocks.add(new Block(blockFirst, blockLast, offset, compressed.length, block.size(), count));
+                    offset += compressed.length;
+                    block.reset();
+                    blockFirst = null;
+                    count = 0;
+                }
+            }
+            for (Block b :
+                    blocks) {
+                out.writeLong(b.firstId.getId0());
+                out.writeLong(b.firstId.getId1());
+                out.writeLong(b.lastId.getId0());
+                out.writeLong(b.lastId.getId1());
+                out.writeLong(b.offset);
+                out.writeInt(b.compressedLength);
+                out.writeInt(b.length);
+                out.writeInt(b.count);
+            }
+            out.writeInt(blocks.size());
+            out.writeInt(MAGIC);
+        } finally {
+            deflater.end();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        indexes.put(file, blocks);
+    }
+
+    /**
+     * 按ID闭区间读取归档消息
+     *
+     * @param count 最多条数，0表示不限
+     * @author Barry
+     * @since 2026/10/18 20:30
+     **/
+    public Map<StreamMessageId, Map<Object, Object>> read(String topic, StreamMessageId startId, StreamMessageId endId, int count) throws IOException {
+        Map<StreamMessageId, Map<Object, Object>> result = new LinkedHashMap<>();
+        int limit = count > 0 ? count : Integer.MAX_VALUE;
+        try {
+            replay(topic, startId, endId, (id, fields) -> {
+                if (result.size() >= limit) {
+                    throw new StopReplay();
+                }
+                result.put(id, fields);
+            });
+        } catch (StopReplay e) {
+            // 已读满
+        }
+        return result;
+    }
+
+    /**
+     * 按时间闭区间读取归档消息，时间与ID的对应关系同SequenceUtil.minIdOf
+     *
+     * @param fromMillis 起始时间（毫秒时间戳）
+     * @param toMillis   结束时间（毫秒时间戳）
+     * @author Barry
+     * @since 2026/10/18 20:30
+     **/
+    public Map<StreamMessageId, Map<Object, Object>> readByTime(String topic, long fromMillis, long toMillis, int count) throws IOException {
+        return read(topic, SequenceUtil.minIdOf(fromMillis), maxIdOf(toMillis), count);
+    }
+
+    /**
+     * 按ID顺序逐条回放归档消息，不在内存中累积，适合回放大范围的历史
+     * 同一消息被重复归档时（归档后删除前宕机）只回放一次
+     *
+     * @author Barry
+     * @since 2026/10/18 20:30
+     **/
+    public void replay(String topic, StreamMessageId startId, StreamMessageId endId,
+                       BiConsumer<StreamMessageId, Map<Object, Object>> handler) throws IOException {
+        StreamMessageId last = null;
+        for (Path file :
+                segments(topic)) {
+            List<Block> blocks = index(file);
+            if (blocks.isEmpty() || compare(blocks.get(blocks.size() - 1).lastId, startId) < 0) {
+                continue;
+            }
+            if (compare(blocks.get(0).firstId, endId) > 0) {
+                break;
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                for (Block block :
+                        blocks) {
+                    if (compare(block.lastId, startId) < 0) {
+                        continue;
+                    }
+                    if (compare(block.firstId, endId) > 0) {
+                        break;
+                    }
+                    ByteBuffer records = ByteBuffer.wrap(decompress(channel, block));
+                    for (int i = 0; i < block.count; i++) {
+                        StreamMessageId id = new StreamMessageId(records.getLong(), records.getLong());
+                        int length = records.getInt();
+                        if (compare(id, startId) < 0 || (last != null && compare(id, last) <= 0)) {
+                            records.position(records.position() + length);
+                            continue;
+                        }
+                        if (compare(id, endId) > 0) {
+                            return;
+                        }
+                        ByteBuffer fields = records.slice();
+                        fields.limit(length);
+                        records.position(records.position() + length);
+                        handler.accept(id, FieldCodec.decode(fields));
+                        last = id;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 按时间闭区间逐条回放归档消息
+     *
+     * @author Barry
+     * @since 2026/10/18 20:30
+     **/
+    public void replayByTime(String topic, long fromMillis, long toMillis,
+                             BiConsumer<StreamMessageId, Map<Object, Object>> handler) throws IOException {
+        replay(topic, SequenceUtil.minIdOf(fromMillis), maxIdOf(toMillis), handler);
+    }
+
+    /**
+     * 删除最后一条消息早于给定时间的归档段
+     *
+     * @param beforeMillis 毫秒时间戳
+     * @return 删除的段数
+     * @author Barry
+     * @since 2026/10/18 20:30
+     **/
+    public int purge(String topic, long beforeMillis) throws IOException {
+        int purged = 0;
+        for (Path file :
+                segments(topic)) {
+            List<Block> blocks = index(file);
+            if (!blocks.isEmpty() && SequenceUtil.timestampOf(blocks.get(blocks.size() - 1).lastId) >= beforeMillis) {
+                break;
+            }
+            Files.deleteIfExists(file);
+            indexes.remove(file);
+            purged++;
+        }
+        return purged;
+    }
+
+    /**
+     * 已归档的主题
+     */
+    public List<String> topics() throws IOException {
+        List<String> topics = new ArrayList<>();
+        if (!Files.isDirectory(baseDir)) {
+            return topics;
+        }
+        try (Stream<Path> dirs = Files.list(baseDir)) {
+            dirs.filter(Files::isDirectory)
+                    .forEach(dir -> topics.add(java.net.URLDecoder.decode(dir.getFileName().toString(), StandardCharsets.UTF_8)));
+        }
+        return topics;
+    }
+
+    private List<Path> segments(String topic) throws IOException {
+        Path dir = baseDir.resolve(URLEncoder.encode(topic, StandardCharsets.UTF_8));
+        if (!Files.isDirectory(dir)) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> segments = new ArrayList<>();
+            files.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).forEach(segments::add);
+            // 文件名为定长的首条ID，按名字排序即按ID排序
+            segments.sort(Comparator.comparing(file -> file.getFileName().toString()));
+            return segments;
+        }
+    }
+
+    private List<Block> index(Path file) throws IOException {
+        List<Block> blocks = indexes.get(file);
+        if (blocks != null) {
+            return blocks;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer tail = ByteBuffer.allocate(8);
+            channel.read(tail, size - 8);
+            tail.flip();
+            int blockCount = tail.getInt();
+            if (tail.getInt() != MAGIC) {
+                throw new IOException("corrupted archive segment " + file);
+            }
+            ByteBuffer entries = ByteBuffer.allocate(blockCount * BLOCK_INDEX_ENTRY);
+            channel.read(entries, size - 8 - entries.capacity());
+            entries.flip();
+            blocks = new ArrayList<>(blockCount);
+            for (int i = 0; i < blockCount; i++) {
+                blocks.add(new Block(
+                        new StreamMessageId(entries.getLong(), entries.getLong()),
+                        new StreamMessageId(entries.getLong(), entries.getLong()),
+                        entries.getLong(),
+                        entries.getInt(),
+                        entries.getInt(),
+                        entries.getInt()));
+            }
+        }
+        indexes.put(file, blocks);
+        return blocks;
+    }
+
+    private static byte[] compress(Deflater deflater, byte[] data) {
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] decompress(FileChannel channel, Block block) throws IOException {
+        ByteBuffer compressed = ByteBuffer.allocate(block.compressedLength);
+        while (compressed.hasRemaining()) {
+            if (channel.read(compressed, block.offset + compressed.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed.array());
+            byte[] data = new byte[block.length];
+            int read = 0;
+            while (read < data.length && !inflater.finished()) {
+                read += inflater.inflate(data, read, data.length - read);
+            }
+            return data;
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * MIN/MAX按常量身份比较，其他ID按数值比较
+     */
+    private static int compare(StreamMessageId a, StreamMessageId b) {
+        if (a == b) {
+            return 0;
+        }
+        if (a == StreamMessageId.MIN || b == StreamMessageId.MAX) {
+            return -1;
+        }
+        if (a == StreamMessageId.MAX || b == StreamMessageId.MIN) {
+            return 1;
+        }
+        int cmp = Long.compare(a.getId0(), b.getId0());
+        return cmp != 0 ? cmp : Long.compare(a.getId1(), b.getId1());
+    }
+
+    private static StreamMessageId maxIdOf(long timestamp) {
+        return new StreamMessageId(SequenceUtil.minIdOf(timestamp).getId0(), Long.MAX_VALUE);
+    }
+
+    private static final class StopReplay extends RuntimeException {
+        StopReplay() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.flowyun.dolphinmq.archive;
+
+import com.flowyun.dolphinmq.common.DolphinMQConfig;
+import com.flowyun.dolphinmq.common.SequenceUtil;
+import com.flowyun.dolphinmq.common.SystemClock;
+import com.flowyun.dolphinmq.transport.Transport;
+import org.redisson.api.StreamMessageId;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 裁剪前归档
+ * 由保留策略的后台裁剪线程调用：待裁剪的消息先写入ArchiveStore，再按ID从主题中删除（XDEL），
+ * 先写后删保证消息不会在归档前丢失；写入后删除前宕机时消息会被再次归档，回放时按ID去重。
+ * 多个实例归档同一主题会产生重复的归档段，同一主题只应由一个实例归档
+ *
+ * @author Barry
+ * @since 2026/10/18 20:30
+ */
+public class StreamArchiver {
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private final Transport transport;
+    private final ArchiveStore store;
+    private final DolphinMQConfig config;
+
+    public StreamArchiver(Transport transport, ArchiveStore store, DolphinMQConfig config) {
+        this.transport = transport;
+        this.store = store;
+        this.config = config;
+    }
+
+    public ArchiveStore getStore() {
+        return store;
+    }
+
+    /**
+     * 归档并删除ID小于minId的消息
+     *
+     * @return 归档的条数
+     * @author Barry
+     * @since 2026/10/18 20:30
+     **/
+    public long archiveBefore(String topic, StreamMessageId minId) throws IOException {
+        if (minId.getId0() == 0 && minId.getId1() == 0) {
+            return 0;
+        }
+        StreamMessageId endId = SequenceUtil.previousIdOf(minId);
+        long archived = 0;
+        while (true) {
+            Map<StreamMessageId, Map<Object, Object>> batch = transport.range(topic,
+                    StreamMessageId.MIN,
+                    endId,
+                    config.getArchiveBatchSize()).join();
+            if (batch.isEmpty()) {
+                break;
+            }
+            store.write(topic, batch);
+            transport.remove(topic, batch.keySet().toArray(new StreamMessageId[0])).join();
+            archived += batch.size();
+            if (batch.size() < config.getArchiveBatchSize()) {
+                break;
+            }
+        }
+        return archived;
+    }
+
+    /**
+     * 按archiveRetentionDays删除过期的归档段
+     *
+     * @author Barry
+     * @since 2026/10/18 20:30
+     **/
+    public void purge(String topic) throws IOException {
+        if (config.getArchiveRetentionDays() > 0) {
+            store.purge(topic, SystemClock.now() - config.getArchiveRetentionDays() * DAY_MILLIS);
+        }
+    }
+}
@@ -21,6 +21,17 @@ public class DolphinMQConfig {
      */
     @Value("${af.dolphinmq.fetchMessageSize:5}")
     private Integer fetchMessageSize;
+    /**
+     * 单次XREADGROUP合并读取的stream个数上限；越大每轮拉取的命令数越少，但单次命令与回复越大，
+     * 一批中任一stream的大量返回都会推迟整批的分发
+     */
+    @Value("${af.dolphinmq.multiStreamReadSize:128}")
+    private Integer multiStreamReadSize;
+    /**
+     * 订阅默认预取上限，0表示不预取
+     */
+    @Value("${af.dolphinmq.prefetchCount:0}")
+    private Integer prefetchCount;
     /**
      * 检查consumer不活跃的门槛（单位秒）
      */
@@ -37,9 +48,10 @@ public class DolphinMQConfig {
     @Value("${af.dolphinmq.deadLetterThreshold:32}")
     private Integer deadLetterThreshold;
     /**
-     * 认领门槛
+     * 认领门槛（毫秒）：其他消费者超过该时长没有读取消息时视为宕机，认领其名下空闲同样超过该时长的消息；
+     * 应大于消费者两次拉取之间的最长间隔（预取队列满或监听器较慢时不会拉取）
      */
-    @Value("${af.dolphinmq.claimThreshold:3600}")
+    @Value("${af.dolphinmq.claimThreshold:60000}")
     private Integer claimThreshold;
     /**
      * 是否从头开始订阅消息
@@ -57,9 +69,160 @@ public class DolphinMQConfig {
     @Value("${af.dolphinmq.checkPendingListsPeriod:10}")
     private Integer checkPendingListsPeriod;
     /**
-     * 整理stream的最大上限
+     * 消息处理的ACK截止时间（单位毫秒），到期未ACK时由本地定时器立即重新投递，0表示只依赖PendingList检查；
+     * 仍在排队或执行中的消息不重新投递
+     */
+    @Value("${af.dolphinmq.ackTimeout:10000}")
+    private Integer ackTimeout;
+    /**
+     * 监听器抛出异常后首次重试的延迟（单位毫秒），之后每次翻倍，不超过ackTimeout
+     */
+    @Value("${af.dolphinmq.retryDelay:1000}")
+    private Integer retryDelay;
+    /**
+     * 本地定时器的精度（单位毫秒）
+     */
+    @Value("${af.dolphinmq.timerTickMillis:100}")
+    private Integer timerTickMillis;
+    /**
+     * 监听器执行超时（单位毫秒），超时的执行被放弃、该消息按失败处理，0表示不限；订阅可单独设置
+     */
+    @Value("${af.dolphinmq.executionTimeout:0}")
+    private Integer executionTimeout;
+    /**
+     * 同一消息连续硬失败（解码失败、执行超时或监听器抛出PoisonMessageException）达到该次数时直接转入死信队列，0表示不隔离
+     */
+    @Value("${af.dolphinmq.quarantineThreshold:0}")
+    private Integer quarantineThreshold;
+    /**
+     * 整理stream的最大上限（默认保留策略的最大长度，由后台裁剪线程执行，0表示不按长度裁剪）
      */
     @Value("${af.dolphinmq.trimThreshold:10000}")
     private Integer trimThreshold;
+    /**
+     * 执行监听器的分发线程数
+     */
+    @Value("${af.dolphinmq.dispatchThreads:16}")
+    private Integer dispatchThreads;
+    /**
+     * 拉取与检查任务共享的调度线程数
+     */
+    @Value("${af.dolphinmq.schedulerThreads:2}")
+    private Integer schedulerThreads;
+    /**
+     * stop时等待在途消息处理完成的最长时间（单位秒）
+     */
+    @Value("${af.dolphinmq.shutdownAwaitSeconds:30}")
+    private Integer shutdownAwaitSeconds;
+    /**
+     * 生产者积压限流门槛（消费组积压条数），0表示不限流
+     */
+    @Value("${af.dolphinmq.producerLagThreshold:0}")
+    private Integer producerLagThreshold;
+    /**
+     * 积压超过门槛时的处理策略：DELAY延迟发送，REJECT拒绝发送
+     */
+    @Value("${af.dolphinmq.producerLagPolicy:DELAY}")
+    private LagPolicy producerLagPolicy;
+    /**
+     * 积压统计周期（单位毫秒）
+     */
+    @Value("${af.dolphinmq.producerLagCheckPeriod:1000}")
+    private Integer producerLagCheckPeriod;
+    /**
+     * DELAY策略下最长延迟时间，超时后拒绝（单位毫秒）
+     */
+    @Value("${af.dolphinmq.producerMaxDelayMillis:5000}")
+    private Integer producerMaxDelayMillis;
+    /**
+     * 延迟消息搬运周期（单位毫秒），即延迟投递的精度
+     */
+    @Value("${af.dolphinmq.delayedMovePeriod:200}")
+    private Integer delayedMovePeriod;
+    /**
+     * 每批搬运的延迟消息条数
+     */
+    @Value("${af.dolphinmq.delayedBatchSize:1000}")
+    private Integer delayedBatchSize;
+    /**
+     * 是否在检查PendingList时采集积压指标
+     */
+    @Value("${af.dolphinmq.metricsEnabled:true}")
+    private Boolean metricsEnabled;
+    /**
+     * 统计积压时未投递部分最多计数的条数（Redis 7以下需XRANGE计数）
+     */
+    @Value("${af.dolphinmq.metricsLagCap:10000}")
+    private Integer metricsLagCap;
+    /**
+     * 是否在裁剪前把待裁剪的消息归档到本地压缩段（开启后后台裁剪线程先归档再按ID删除）
+     */
+    @Value("${af.dolphinmq.archiveEnabled:false}")
+    private Boolean archiveEnabled;
+    /**
+     * 归档目录
+     */
+    @Value("${af.dolphinmq.archiveDir:dolphinmq-archive}")
+    private String archiveDir;
+    /**
+     * 每批归档的消息条数，即一个归档段的最大条数
+     */
+    @Value("${af.dolphinmq.archiveBatchSize:1000}")
+    private Integer archiveBatchSize;
+    /**
+     * 归档保留天数，0表示永久保留
+     */
+    @Value("${af.dolphinmq.archiveRetentionDays:7}")
+    private Integer archiveRetentionDays;
+    /**
+     * 后台按保留策略裁剪的周期（单位秒）
+     */
+    @Value("${af.dolphinmq.retentionPeriod:10}")
+    private Integer retentionPeriod;
+    /**
+     * 默认保留策略的保留时长（单位秒），0表示不按时间裁剪
+     */
+    @Value("${af.dolphinmq.retentionMaxAge:0}")
+    private Integer retentionMaxAge;
+    /**
+     * 默认保留策略是否保留消费组尚未投递或尚未确认的消息
+     */
+    @Value("${af.dolphinmq.retentionKeepUndelivered:false}")
+    private Boolean retentionKeepUndelivered;
+    /**
+     * 按长度定位裁剪位置时每个周期最多读取的条数
+     */
+    @Value("${af.dolphinmq.retentionBatchSize:10000}")
+    private Integer retentionBatchSize;
+    /**
+     * 按键压缩时每个周期最多读取的新消息条数
+     */
+    @Value("${af.dolphinmq.compactionScanSize:100000}")
+    private Integer compactionScanSize;
+    /**
+     * 消息体超过该大小（单位字节）时另存，stream中只保留引用，0表示不另存
+     */
+    @Value("${af.dolphinmq.claimCheckThreshold:0}")
+    private Integer claimCheckThreshold;
+    /**
+     * 另存消息体的分块大小（单位字节）
+     */
+    @Value("${af.dolphinmq.claimCheckChunkSize:524288}")
+    private Integer claimCheckChunkSize;
+    /**
+     * 另存的消息体是否GZIP压缩
+     */
+    @Value("${af.dolphinmq.claimCheckCompress:true}")
+    private Boolean claimCheckCompress;
+    /**
+     * 另存消息体的保留时间（单位秒），应不短于主题的保留时长
+     */
+    @Value("${af.dolphinmq.claimCheckTtl:604800}")
+    private Long claimCheckTtl;
+    /**
+     * ACK后是否删除另存的消息体，只有一个消费组的主题才能开启
+     */
+    @Value("${af.dolphinmq.claimCheckDeleteOnAck:false}")
+    private Boolean claimCheckDeleteOnAck;
 
 }
@@ -0,0 +1,18 @@
+package com.flowyun.dolphinmq.common;
+
+/**
+ * 消费组积压超过阈值时生产者的处理策略
+ *
+ * @author Barry
+ * @since 2026/10/18 14:05
+ */
+public enum LagPolicy {
+    /**
+     * 延迟发送，直到积压回落或等待超时
+     */
+    DELAY,
+    /**
+     * 直接拒绝发送
+     */
+    REJECT
+}
@@ -6,6 +6,8 @@ import lombok.Setter;
 import org.redisson.api.StreamMessageId;
 
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -18,16 +20,53 @@ import java.util.Map;
 @Setter
 public class Message implements Serializable {
     private static final long serialVersionUID = 8445773977080406428L;
+    /**
+     * 保留字段：标签与消息头随消息内容写入同一条stream记录，消费端在解码消息体之前据此过滤
+     */
+    public static final String TAG_FIELD = "__tag";
+    public static final String HEADER_PREFIX = "__h.";
+    public static final String KEY_FIELD = "__key";
+    public static final String TOMBSTONE_FIELD = "__tombstone";
+    /**
+     * 大消息的消息体另存时，stream记录中只保留该字段（消息体的存储键）与其他保留字段
+     */
+    public static final String BLOB_FIELD = "__blob";
+    /**
+     * 保留字段的前缀
+     */
+    public static final String RESERVED_PREFIX = "__";
+    /**
+     * 优先级子stream名的后缀，优先级p（大于0）的消息写入"主题:p{p}"
+     */
+    public static final String PRIORITY_SUFFIX = ":p";
 
     private StreamMessageId id;
     private String topic;
     private Map<String, Object> properties;
+    /**
+     * 标签，订阅可按标签过滤
+     */
+    private String tag;
+    /**
+     * 消息头，订阅可按消息头过滤
+     */
+    private Map<String, String> headers;
+    /**
+     * 消息键，开启合并发送的主题在合并窗口内按键只发送最新的一条
+     */
+    private String key;
+    /**
+     * 优先级，0（默认）写入主题本身，大于0写入对应的优先级子stream，数值越大越优先
+     */
+    private int priority;
+    /**
+     * 墓碑：表示该消息键已被删除，按键压缩时删除该键的所有旧消息
+     */
+    private boolean tombstone;
 
     {
         //id自动生成
-        SequenceUtil sq = SequenceUtil.getInstance();
-        long nextId = sq.nextId();
-        this.id = new StreamMessageId(nextId / 4194304, nextId % 4194304);
+        this.id = SequenceUtil.nextMessageId();
     }
 
     public Message() {
@@ -37,11 +76,91 @@ public class Message implements Serializable {
         this.topic = topic;
     }
 
+    public Message(String topic, String tag) {
+        this.topic = topic;
+        this.tag = tag;
+    }
+
+    /**
+     * 消息键的墓碑消息
+     *
+     * @author Barry
+     * @since 2026/10/19 12:40
+     **/
+    public static Message tombstone(String topic, String key) {
+        Message msg = new Message(topic);
+        msg.setKey(key);
+        msg.setTombstone(true);
+        return msg;
+    }
+
+    public Message putHeader(String name, String value) {
+        if (headers == null) {
+            headers = new HashMap<>();
+        }
+        headers.put(name, value);
+        return this;
+    }
+
+    /**
+     * 浅拷贝，消息ID重新生成，其余字段与原消息相同
+     *
+     * @author Barry
+     * @since 2026/10/19 14:40
+     **/
+    public Message copy() {
+        Message copy = new Message(topic, tag);
+        copy.properties = properties;
+        copy.headers = headers;
+        copy.key = key;
+        copy.priority = priority;
+        copy.tombstone = tombstone;
+        return copy;
+    }
+
+    /**
+     * 主题指定优先级的子stream名，优先级0即主题本身
+     *
+     * @author Barry
+     * @since 2026/10/19 11:40
+     **/
+    public static String streamOf(String topic, int priority) {
+        return priority <= 0 ? topic : topic + PRIORITY_SUFFIX + priority;
+    }
+
+    /**
+     * 从stream记录中取出消息头
+     *
+     * @param fields stream记录
+     * @return 消息头，没有时返回空Map
+     * @author Barry
+     * @since 2026/10/18 22:20
+     **/
+    public static Map<String, String> headersOf(Map<Object, Object> fields) {
+        Map<String, String> headers = null;
+        for (Map.Entry<Object, Object> field :
+                fields.entrySet()) {
+            Object key = field.getKey();
+            if (key instanceof String && ((String) key).startsWith(HEADER_PREFIX)) {
+                if (headers == null) {
+                    headers = new HashMap<>();
+                }
+                headers.put(((String) key).substring(HEADER_PREFIX.length()), String.valueOf(field.getValue()));
+            }
+        }
+        return headers == null ? Collections.emptyMap() : headers;
+    }
+
     @Override
     public String toString() {
         return "Message{" +
                 "id='" + id + '\'' +
                 "topic='" + topic + '\'' +
+                ", key='" + key + '\'' +
+                ", tag='" + tag + '\'' +
+                ", headers=" + headers +
+                ", priority=" + priority +
+                ", tombstone=" + tombstone +
                 ", properties=" + properties +
                 '}';
     }
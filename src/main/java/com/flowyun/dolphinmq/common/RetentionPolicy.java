@@ -0,0 +1,102 @@
+package com.flowyun.dolphinmq.common;
+
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 主题保留策略，由后台裁剪线程执行
+ * <p>
+ * 按长度：只保留最新的maxLen条；按时间：删除早于maxAge的消息（消息ID由时间生成，按MINID裁剪）；
+ * 同时设置时两个限制都生效。keepUndelivered表示不裁剪任何消费组尚未投递或尚未确认的消息，
+ * 单独使用时删除所有消费组都已确认的消息。
+ * 按键压缩：所有消费组都已确认的部分中，每个消息键只保留最新的一条，墓碑消息超过tombstoneRetention后也被删除。
+ * </p>
+ *
+ * @author Barry
+ * @since 2026/10/18 21:10
+ */
+@Getter
+public final class RetentionPolicy {
+    /**
+     * 保留的最大条数，0表示不限
+     */
+    private final int maxLen;
+    /**
+     * 保留时长（单位毫秒），0表示不限
+     */
+    private final long maxAgeMillis;
+    /**
+     * 是否保留消费组尚未投递或尚未确认的消息
+     */
+    private final boolean keepUndelivered;
+    /**
+     * 是否按消息键压缩
+     */
+    private final boolean compact;
+    /**
+     * 墓碑消息的保留时长（单位毫秒），到期后墓碑本身也被删除
+     */
+    private final long tombstoneRetentionMillis;
+
+    private RetentionPolicy(int maxLen, long maxAgeMillis, boolean keepUndelivered, boolean compact, long tombstoneRetentionMillis) {
+        this.maxLen = maxLen;
+        this.maxAgeMillis = maxAgeMillis;
+        this.keepUndelivered = keepUndelivered;
+        this.compact = compact;
+        this.tombstoneRetentionMillis = tombstoneRetentionMillis;
+    }
+
+    public static RetentionPolicy byLength(int maxLen) {
+        return new RetentionPolicy(maxLen, 0, false, false, 0);
+    }
+
+    public static RetentionPolicy byAge(long maxAge, TimeUnit unit) {
+        return new RetentionPolicy(0, unit.toMillis(maxAge), false, false, 0);
+    }
+
+    /**
+     * 删除所有消费组都已确认的消息
+     */
+    public static RetentionPolicy untilConsumed() {
+        return new RetentionPolicy(0, 0, true, false, 0);
+    }
+
+    /**
+     * 按消息键压缩，不按长度、时间裁剪，墓碑保留1天
+     *
+     * @author Barry
+     * @since 2026/10/19 12:40
+     **/
+    public static RetentionPolicy compacted() {
+        return new RetentionPolicy(0, 0, false, true, TimeUnit.DAYS.toMillis(1));
+    }
+
+    public RetentionPolicy withLength(int maxLen) {
+        return new RetentionPolicy(maxLen, maxAgeMillis, keepUndelivered, compact, tombstoneRetentionMillis);
+    }
+
+    public RetentionPolicy withAge(long maxAge, TimeUnit unit) {
+        return new RetentionPolicy(maxLen, unit.toMillis(maxAge), keepUndelivered, compact, tombstoneRetentionMillis);
+    }
+
+    /**
+     * 在长度/时间限制之外，不裁剪消费组尚未投递或尚未确认的消息
+     */
+    public RetentionPolicy keepUndelivered() {
+        return new RetentionPolicy(maxLen, maxAgeMillis, true, compact, tombstoneRetentionMillis);
+    }
+
+    /**
+     * 墓碑消息的保留时长，新消费者在此期间仍能读到删除
+     */
+    public RetentionPolicy withTombstoneRetention(long retention, TimeUnit unit) {
+        return new RetentionPolicy(maxLen, maxAgeMillis, keepUndelivered, compact, unit.toMillis(retention));
+    }
+
+    @Override
+    public String toString() {
+        return "RetentionPolicy{maxLen=" + maxLen + ", maxAgeMillis=" + maxAgeMillis + ", keepUndelivered=" + keepUndelivered
+                + ", compact=" + compact + ", tombstoneRetentionMillis=" + tombstoneRetentionMillis + "}";
+    }
+}
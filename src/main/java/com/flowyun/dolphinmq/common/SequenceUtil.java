@@ -1,6 +1,7 @@
 package com.flowyun.dolphinmq.common;
 
 import io.netty.util.internal.StringUtil;
+import org.redisson.api.StreamMessageId;
 
 import java.lang.management.ManagementFactory;
 import java.net.InetAddress;
@@ -18,7 +19,8 @@ public class SequenceUtil {
     /**
      * 时间起始标记点，作为基准，一般取系统的最近时间（一旦确定不能变动）
      */
-    private final long twepoch = 1288834974657L;
+    public static final long TWEPOCH = 1288834974657L;
+    private final long twepoch = TWEPOCH;
     /**
      * 机器标识位数
      */
@@ -183,6 +185,51 @@ public class SequenceUtil {
                 | sequence;
     }
 
+    /**
+     * 生成新的stream消息ID：高位为(时间戳 - twepoch)，低位为同一毫秒内的序号等
+     *
+     * @return 消息ID
+     */
+    public static StreamMessageId nextMessageId() {
+        long nextId = getInstance().nextId();
+        return new StreamMessageId(nextId / 4194304, nextId % 4194304);
+    }
+
+    /**
+     * 从stream消息ID中取出生产时间
+     * Message生成的ID高位为(时间戳 - twepoch)，Redis自动生成的ID高位即时间戳，按量级区分两者
+     *
+     * @param id 消息ID
+     * @return 毫秒时间戳
+     */
+    public static long timestampOf(StreamMessageId id) {
+        long millis = id.getId0();
+        return millis < TWEPOCH ? millis + TWEPOCH : millis;
+    }
+
+    /**
+     * 由时间戳得到Message生成规则下该毫秒内最小的ID
+     *
+     * @param timestamp 毫秒时间戳
+     * @return 消息ID
+     */
+    public static StreamMessageId minIdOf(long timestamp) {
+        return new StreamMessageId(Math.max(0, timestamp - TWEPOCH), 0);
+    }
+
+    /**
+     * 紧邻给定ID之前的ID，用于把"从该ID开始（包含）"转换为消费组的最后投递位置
+     *
+     * @param id 消息ID
+     * @return 前一个ID，给定ID为0-0时返回0-0
+     */
+    public static StreamMessageId previousIdOf(StreamMessageId id) {
+        if (id.getId1() > 0) {
+            return new StreamMessageId(id.getId0(), id.getId1() - 1);
+        }
+        return id.getId0() > 0 ? new StreamMessageId(id.getId0() - 1, Long.MAX_VALUE) : new StreamMessageId(0, 0);
+    }
+
     protected long tilNextMillis(long lastTimestamp) {
         long timestamp = timeGen();
         while (timestamp <= lastTimestamp) {
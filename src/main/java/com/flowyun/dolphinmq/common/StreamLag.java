@@ -0,0 +1,63 @@
+package com.flowyun.dolphinmq.common;
+
+import org.redisson.api.RFuture;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.Collections;
+
+/**
+ * 计算消费组积压量（PendingList + 尚未投递的消息数）
+ * Redis 7以上直接使用XINFO GROUPS的lag字段，低版本从last-delivered-id往后XRANGE计数（最多统计cap条）
+ *
+ * @author Barry
+ * @since 2026/10/18 14:05
+ */
+public final class StreamLag {
+    private static final String LAG_SCRIPT =
+            "local cap = tonumber(ARGV[1]) " +
+                    "local group = ARGV[2] " +
+                    "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+                    "local result = 0 " +
+                    "for _, info in ipairs(redis.call('XINFO', 'GROUPS', KEYS[1])) do " +
+                    "  local fields = {} " +
+                    "  for i = 1, #info, 2 do fields[info[i]] = info[i + 1] end " +
+                    "  if group == '' or fields['name'] == group then " +
+                    "    local lag = fields['lag'] " +
+                    "    if type(lag) ~= 'number' then " +
+                    "      local last = fields['last-delivered-id'] " +
+                    "      local entries = redis.call('XRANGE', KEYS[1], last, '+', 'COUNT', cap + 1) " +
+                    "      lag = #entries " +
+                    "      if lag > 0 and entries[1][1] == last then lag = lag - 1 end " +
+                    "    end " +
+                    "    lag = lag + fields['pending'] " +
+                    "    if lag > result then result = lag end " +
+                    "  end " +
+                    "end " +
+                    "return result";
+
+    private StreamLag() {
+    }
+
+    /**
+     * 异步计算积压量
+     *
+     * @param client Redisson客户端
+     * @param topic  主题
+     * @param group  消费组，为null时取所有消费组中的最大值
+     * @param cap    未投递部分最多统计的条数（Redis 7以下有效）
+     * @return 积压条数
+     * @author Barry
+     * @since 2026/10/18 14:05
+     **/
+    public static RFuture<Long> lagAsync(RedissonClient client, String topic, String group, long cap) {
+        return client.getScript(StringCodec.INSTANCE).evalAsync(
+                RScript.Mode.READ_ONLY,
+                LAG_SCRIPT,
+                RScript.ReturnType.INTEGER,
+                Collections.<Object>singletonList(topic),
+                String.valueOf(cap),
+                group == null ? "" : group);
+    }
+}
@@ -0,0 +1,58 @@
+package com.flowyun.dolphinmq.common;
+
+/**
+ * 令牌桶限流
+ * 令牌按固定速率补充，桶容量为一秒的令牌量；允许透支（令牌为负），透支部分需等待补回后才能继续获取
+ *
+ * @author Barry
+ * @since 2026/10/18 14:05
+ */
+public class TokenBucket {
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * @param ratePerSecond 每秒补充的令牌数，必须大于0
+     */
+    public TokenBucket(double ratePerSecond) {
+        if (ratePerSecond <= 0) {
+            throw new IllegalArgumentException("ratePerSecond must be positive");
+        }
+        this.tokensPerNano = ratePerSecond / 1_000_000_000D;
+        this.capacity = Math.max(1D, ratePerSecond);
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * 当前可用的整数令牌数（透支时为0）
+     *
+     * @return 可用令牌数
+     * @author Barry
+     * @since 2026/10/18 14:05
+     **/
+    public synchronized long available() {
+        refill();
+        return tokens <= 0 ? 0 : (long) tokens;
+    }
+
+    /**
+     * 扣除令牌，不足时记为透支
+     *
+     * @param permits 扣除的令牌数
+     * @author Barry
+     * @since 2026/10/18 14:05
+     **/
+    public synchronized void consume(long permits) {
+        refill();
+        tokens -= permits;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = now;
+    }
+}
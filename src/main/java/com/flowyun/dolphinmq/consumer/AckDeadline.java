@@ -0,0 +1,64 @@
+package com.flowyun.dolphinmq.consumer;
+
+import com.flowyun.dolphinmq.common.HashedWheelTimer;
+
+/**
+ * 本消费者正在处理的一条消息的本地定时：处理截止时间或失败后的重试时间，以及本地已投递、连续失败的次数
+ *
+ * @author Barry
+ * @since 2026/10/19 09:30
+ */
+final class AckDeadline {
+    private HashedWheelTimer.Timeout timeout;
+    private int attempts;
+    /**
+     * 连续硬失败次数（解码失败、执行超时或PoisonMessageException）
+     */
+    private int failures;
+    /**
+     * 已提交给分发线程、尚未执行完（排队或监听器执行中），此时到期不重新投递
+     */
+    private boolean inFlight;
+
+    /**
+     * 替换定时任务，旧任务取消
+     */
+    synchronized void reschedule(HashedWheelTimer.Timeout next) {
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        timeout = next;
+    }
+
+    synchronized void cancel() {
+        if (timeout != null) {
+            timeout.cancel();
+            timeout = null;
+        }
+    }
+
+    synchronized int incrementAttempts() {
+        return ++attempts;
+    }
+
+    synchronized int incrementFailures() {
+        return ++failures;
+    }
+
+    synchronized int resetFailures() {
+        failures = 0;
+        return 0;
+    }
+
+    synchronized int getAttempts() {
+        return attempts;
+    }
+
+    synchronized void setInFlight(boolean inFlight) {
+        this.inFlight = inFlight;
+    }
+
+    synchronized boolean isInFlight() {
+        return inFlight;
+    }
+}
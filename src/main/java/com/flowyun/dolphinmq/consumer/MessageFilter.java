@@ -0,0 +1,64 @@
+package com.flowyun.dolphinmq.consumer;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 订阅过滤条件，在解码消息体之前按标签与消息头判断，不接受的消息直接批量ACK
+ *
+ * @author Barry
+ * @since 2026/10/18 22:20
+ */
+@FunctionalInterface
+public interface MessageFilter {
+
+    /**
+     * @param tag     消息标签，未设置时为null
+     * @param headers 消息头，没有时为空Map
+     * @return 是否交给监听器处理
+     */
+    boolean accept(String tag, Map<String, String> headers);
+
+    /**
+     * 标签表达式："*"表示全部，否则为以||分隔的标签，例如"created || paid"；未设置标签的消息不匹配
+     *
+     * @param expression 标签表达式
+     * @author Barry
+     * @since 2026/10/18 22:20
+     **/
+    static MessageFilter tags(String expression) {
+        String trimmed = expression == null ? "" : expression.trim();
+        if (trimmed.isEmpty() || "*".equals(trimmed)) {
+            return (tag, headers) -> true;
+        }
+        Set<String> tags = new HashSet<>();
+        for (String tag :
+                trimmed.split("\\|\\|")) {
+            if (!tag.trim().isEmpty()) {
+                tags.add(tag.trim());
+            }
+        }
+        if (tags.size() == 1) {
+            String only = tags.iterator().next();
+            return (tag, headers) -> only.equals(tag);
+        }
+        return (tag, headers) -> tag != null && tags.contains(tag);
+    }
+
+    /**
+     * 消息头等于给定值
+     *
+     * @author Barry
+     * @since 2026/10/18 22:20
+     **/
+    static MessageFilter header(String name, String... values) {
+        Set<String> accepted = new HashSet<>(Arrays.asList(values));
+        return (tag, headers) -> accepted.contains(headers.get(name));
+    }
+
+    default MessageFilter and(MessageFilter other) {
+        return (tag, headers) -> accept(tag, headers) && other.accept(tag, headers);
+    }
+}
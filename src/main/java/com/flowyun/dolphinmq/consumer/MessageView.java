@@ -0,0 +1,186 @@
+package com.flowyun.dolphinmq.consumer;
+
+import com.flowyun.dolphinmq.common.Message;
+import com.flowyun.dolphinmq.transport.ClaimCheck;
+import com.flowyun.dolphinmq.utils.BeanMapUtils;
+import org.redisson.api.StreamMessageId;
+
+import java.beans.IntrospectionException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 消息视图：直接引用拉取到的stream记录，只在访问时取出或转换字段，不构建消息Bean
+ * 同一分发线程上的视图对象会被复用，只在MessageViewListener.consume调用期间有效，需要保留时使用copy
+ *
+ * @author Barry
+ * @since 2026/10/18 22:50
+ */
+public final class MessageView {
+    private String topic;
+    private StreamMessageId id;
+    private Map<Object, Object> fields;
+    private Map<String, String> headers;
+    /**
+     * 消息体另存时用于取回，null表示不取回
+     */
+    private ClaimCheck claimCheck;
+
+    MessageView() {
+    }
+
+    /**
+     * 例如在测试中直接构造视图交给监听器
+     */
+    public MessageView(String topic, StreamMessageId id, Map<Object, Object> fields) {
+        reset(topic, id, fields);
+    }
+
+    MessageView reset(String topic, StreamMessageId id, Map<Object, Object> fields) {
+        this.topic = topic;
+        this.id = id;
+        this.fields = fields;
+        this.headers = null;
+        this.claimCheck = null;
+        return this;
+    }
+
+    /**
+     * 消息体另存时，首次访问消息体字段才取回；标签、消息键、消息头等保留字段不触发取回
+     */
+    MessageView resolveWith(ClaimCheck claimCheck) {
+        this.claimCheck = claimCheck;
+        return this;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public StreamMessageId getId() {
+        return id;
+    }
+
+    public String getTag() {
+        return reserved(Message.TAG_FIELD);
+    }
+
+    public String getKey() {
+        return reserved(Message.KEY_FIELD);
+    }
+
+    /**
+     * 是否为墓碑消息（该消息键已被删除）
+     */
+    public boolean isTombstone() {
+        return fields.containsKey(Message.TOMBSTONE_FIELD);
+    }
+
+    /**
+     * 单个消息头，不构建消息头Map
+     */
+    public String getHeader(String name) {
+        return reserved(Message.HEADER_PREFIX + name);
+    }
+
+    /**
+     * 全部消息头，首次访问时构建
+     */
+    public Map<String, String> getHeaders() {
+        if (headers == null) {
+            headers = Message.headersOf(fields);
+        }
+        return headers;
+    }
+
+    public boolean contains(String field) {
+        return body().containsKey(field);
+    }
+
+    /**
+     * 字段的原始值（传输层解码后的对象，不做转换）
+     */
+    public Object get(String field) {
+        return body().get(field);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V> V get(String field, Class<V> type) {
+        Object value = body().get(field);
+        if (value == null || type.isInstance(value)) {
+            return (V) value;
+        }
+        throw new ClassCastException("field " + field + " of message " + id + " is " + value.getClass().getName() + ", not " + type.getName());
+    }
+
+    public String getString(String field) {
+        Object value = body().get(field);
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * 字段内容的字节形式：byte[]原样返回（不复制），字符串按UTF-8编码
+     */
+    public byte[] getBytes(String field) {
+        Object value = body().get(field);
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof byte[]) {
+            return (byte[]) value;
+        }
+        return value.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 原始stream记录（只读），包含标签与消息头保留字段
+     */
+    public Map<Object, Object> getFields() {
+        return Collections.unmodifiableMap(body());
+    }
+
+    /**
+     * 按需解码为完整的消息Bean
+     *
+     * @author Barry
+     * @since 2026/10/18 22:50
+     **/
+    @SuppressWarnings("unchecked")
+    public <T> T as(Class<T> type) throws IntrospectionException, IllegalAccessException, InstantiationException, InvocationTargetException, NoSuchMethodException {
+        return (T) BeanMapUtils.toBean(type, body());
+    }
+
+    /**
+     * 脱离分发线程后仍可使用的副本
+     */
+    public MessageView copy() {
+        return new MessageView(topic, id, new HashMap<>(body()));
+    }
+
+    private String reserved(String field) {
+        Object value = fields.get(field);
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * 消息体另存时取回（在当前线程上等待）并替换为完整记录
+     */
+    private Map<Object, Object> body() {
+        if (claimCheck != null && ClaimCheck.isReference(fields)) {
+            fields = claimCheck.resolve(fields).join();
+        }
+        return fields;
+    }
+
+    @Override
+    public String toString() {
+        return "MessageView{" +
+                "topic='" + topic + '\'' +
+                ", id=" + id +
+                ", fields=" + fields +
+                '}';
+    }
+}
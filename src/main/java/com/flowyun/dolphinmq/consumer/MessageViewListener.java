@@ -0,0 +1,19 @@
+package com.flowyun.dolphinmq.consumer;
+
+/**
+ * 消息视图监听器：接收MessageView而不是消息Bean，只读取少量字段的监听器可避免整条消息的解码
+ * 订阅只注册了视图监听器时不再构建消息Bean
+ *
+ * @author Barry
+ * @since 2026/10/18 22:50
+ */
+public abstract class MessageViewListener {
+    /**
+     * 消费方法，view只在本次调用期间有效
+     *
+     * @param view 消息视图
+     * @author Barry
+     * @since 2026/10/18 22:50
+     **/
+    public abstract void consume(MessageView view);
+}
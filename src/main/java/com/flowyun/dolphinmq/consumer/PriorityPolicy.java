@@ -0,0 +1,68 @@
+package com.flowyun.dolphinmq.consumer;
+
+import java.util.Arrays;
+
+/**
+ * 优先级子stream之间的拉取策略
+ * STRICT：高优先级的子stream拉空且本地没有待分发的消息时才拉取低优先级；WEIGHTED：各优先级同时拉取，拉取与分发份额按权重分配
+ *
+ * @author Barry
+ * @since 2026/10/19 11:40
+ */
+public final class PriorityPolicy {
+    private final boolean strict;
+    /**
+     * 下标为优先级
+     */
+    private final int[] weights;
+
+    private PriorityPolicy(boolean strict, int[] weights) {
+        if (weights.length < 1) {
+            throw new IllegalArgumentException("at least one priority level is required");
+        }
+        for (int weight :
+                weights) {
+            if (weight <= 0) {
+                throw new IllegalArgumentException("weight must be positive: " + Arrays.toString(weights));
+            }
+        }
+        this.strict = strict;
+        this.weights = weights;
+    }
+
+    /**
+     * 严格优先级
+     *
+     * @param levels 优先级个数，优先级为0到levels-1，数值越大越优先
+     * @author Barry
+     * @since 2026/10/19 11:40
+     **/
+    public static PriorityPolicy strict(int levels) {
+        int[] weights = new int[Math.max(0, levels)];
+        Arrays.fill(weights, 1);
+        return new PriorityPolicy(true, weights);
+    }
+
+    /**
+     * 加权优先级，例如weighted(1, 4)表示优先级1的份额是优先级0的4倍
+     *
+     * @param weights 依次为优先级0、1、2...的权重（正整数）
+     * @author Barry
+     * @since 2026/10/19 11:40
+     **/
+    public static PriorityPolicy weighted(int... weights) {
+        return new PriorityPolicy(false, weights.clone());
+    }
+
+    public boolean isStrict() {
+        return strict;
+    }
+
+    public int getLevels() {
+        return weights.length;
+    }
+
+    public int weightOf(int priority) {
+        return weights[priority];
+    }
+}
@@ -1,16 +1,29 @@
 package com.flowyun.dolphinmq.consumer;
 
 import com.flowyun.dolphinmq.common.DolphinMQConfig;
+import com.flowyun.dolphinmq.common.HashedWheelTimer;
+import com.flowyun.dolphinmq.common.Message;
+import com.flowyun.dolphinmq.common.SequenceUtil;
+import com.flowyun.dolphinmq.common.SystemClock;
+import com.flowyun.dolphinmq.exception.MQClientException;
+import com.flowyun.dolphinmq.exception.PoisonMessageException;
 import com.flowyun.dolphinmq.executor.CheckPendingListScheduledExecutor;
 import com.flowyun.dolphinmq.executor.PullHealthyMessagesScheduledExecutor;
+import com.flowyun.dolphinmq.metrics.DolphinMQMetrics;
+import com.flowyun.dolphinmq.metrics.SubscriptionMetrics;
+import com.flowyun.dolphinmq.transport.ClaimCheck;
+import com.flowyun.dolphinmq.transport.RedisTransport;
+import com.flowyun.dolphinmq.transport.Transport;
+import io.micrometer.core.instrument.MeterRegistry;
 import com.flowyun.dolphinmq.utils.BeanMapUtils;
-import io.netty.util.internal.StringUtil;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
-import org.redisson.api.*;
-import org.redisson.api.stream.StreamAddArgs;
-import org.redisson.client.RedisBusyException;
+import org.redisson.api.PendingEntry;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.StreamConsumer;
+import org.redisson.api.StreamMessageId;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -19,10 +32,9 @@ import java.lang.reflect.InvocationTargetException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.*;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 以拉取方式进行消费的消费者
@@ -34,16 +46,57 @@ import java.util.stream.Collectors;
 @Getter
 @Setter
 @Component
-public class PullConsumerClient {
+public class PullConsumerClient implements DisposableBean {
     private RedissonClient client;
-    private RStream<Object, Object> deadStream;
+    /**
+     * 传输层，设置RedissonClient时默认使用Redis Stream
+     */
+    private Transport transport;
     private String consumerGroup;
     private String consumer;
     private DolphinMQConfig config;
     static PullConsumerClient pullConsumerClient;
-    Set<Subscriber<?>> subscriptions;
+    /**
+     * 主题名 -> 订阅者
+     */
+    Map<String, Subscriber<?>> subscriptions;
+    /**
+     * 按订阅权重公平分发消费任务
+     */
+    private WeightedFairDispatcher dispatcher;
+    /**
+     * 取回另存的大消息体，build时创建
+     */
+    private ClaimCheck claimCheck;
+    /**
+     * 所有订阅共享的调度线程池，start时创建，stop时关闭
+     */
+    private ScheduledExecutorService scheduler;
+    /**
+     * 消息ACK截止与重试的本地定时器，start时创建
+     */
+    private volatile HashedWheelTimer timer;
+    private final List<ScheduledFuture<?>> scheduledTasks = new ArrayList<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    /**
+     * 已发出尚未返回的拉取请求数
+     */
+    private final AtomicInteger pendingFetches = new AtomicInteger();
+    /**
+     * 已发出尚未确认的ACK
+     */
+    private final Set<CompletableFuture<Long>> pendingAcks = ConcurrentHashMap.newKeySet();
+    private DolphinMQMetrics metrics = new DolphinMQMetrics(null);
 
     private static String DEAD_STREAM_NAME = "DeadStream";
+    /**
+     * 重放时每次读取的条数
+     */
+    private static final int REPLAY_BATCH_SIZE = 500;
+    /**
+     * 每个分发线程复用一个消息视图
+     */
+    private static final ThreadLocal<MessageView> VIEWS = ThreadLocal.withInitial(MessageView::new);
 
     /**
      * @author Barry
@@ -54,30 +107,69 @@ public class PullConsumerClient {
     }
 
     public static class Builder {
+        private final PullConsumerClient target;
 
-
+        /**
+         * 配置Spring容器中的消费者
+         */
         public Builder() {
+            this.target = pullConsumerClient;
+        }
 
+        /**
+         * 脱离Spring容器创建独立的消费者（同一进程内可创建多个）
+         *
+         * @param config 配置
+         */
+        public Builder(DolphinMQConfig config) {
+            this.target = new PullConsumerClient();
+            this.target.config = config;
         }
 
         public Builder setRedissonClient(RedissonClient client) {
-            pullConsumerClient.client = client;
+            target.client = client;
+            target.transport = new RedisTransport(client);
+            return this;
+        }
+
+        /**
+         * 指定传输层，例如同一JVM内收发时使用InMemoryTransport
+         */
+        public Builder setTransport(Transport transport) {
+            target.transport = transport;
             return this;
         }
 
         public Builder setService(String service) {
-            pullConsumerClient.consumerGroup = service;
+            target.consumerGroup = service;
+            return this;
+        }
+
+        /**
+         * 设置消费者名，默认为本机地址；同一主机上运行多个消费者时需各不相同
+         */
+        public Builder setConsumerName(String consumerName) {
+            target.consumer = consumerName;
+            return this;
+        }
+
+        public Builder setMeterRegistry(MeterRegistry registry) {
+            target.metrics = new DolphinMQMetrics(registry);
             return this;
         }
 
         public PullConsumerClient build() {
-            try {
-                pullConsumerClient.consumer = InetAddress.getLocalHost().toString();
-            } catch (UnknownHostException e) {
-                e.printStackTrace();
+            if (target.consumer == null) {
+                try {
+                    target.consumer = InetAddress.getLocalHost().toString();
+                } catch (UnknownHostException e) {
+                    log.error("resolve consumer name error", e);
+                }
             }
-            pullConsumerClient.subscriptions = new HashSet<>();
-            return pullConsumerClient;
+            target.subscriptions = new ConcurrentHashMap<>();
+            target.dispatcher = new WeightedFairDispatcher(target.config.getDispatchThreads());
+            target.claimCheck = new ClaimCheck(target.transport, target.config);
+            return target;
         }
 
     }
@@ -87,6 +179,11 @@ public class PullConsumerClient {
         this.config = config;
     }
 
+    @Autowired(required = false)
+    public void setMeterRegistry(MeterRegistry registry) {
+        this.metrics = new DolphinMQMetrics(registry);
+    }
+
     @Autowired
     public void setPullConsumerClient(PullConsumerClient client) {
         pullConsumerClient = client;
@@ -100,16 +197,135 @@ public class PullConsumerClient {
      * @author Barry
      * @since 2021/7/6 9:56
      */
+    @SuppressWarnings("unchecked")
     public <T> Subscriber<T> subscribe(String topic) {
-        Subscriber<T> subscriber = new Subscriber<>(topic, client, this);
-        subscriptions.add(subscriber);
-        pullConsumerClient.createConsumerGroup(pullConsumerClient.config.getIsStartFromHead(), subscriber);
+        Subscriber<?> existing = subscriptions.get(topic);
+        if (existing != null) {
+            return (Subscriber<T>) existing;
+        }
+        Subscriber<T> subscriber = new Subscriber<>(topic, this, dispatcher.addLane(topic));
+        subscriber.setPrefetch(config.getPrefetchCount());
+        subscriber.setMetrics(metrics.forSubscription(topic, consumerGroup));
+        subscriptions.put(topic, subscriber);
+        createConsumerGroup(config.getIsStartFromHead(), subscriber);
         return subscriber;
     }
 
+    /**
+     * 订阅主题的一个优先级子stream，监听器等由主题的订阅者提供
+     *
+     * @param parent   主题的订阅者
+     * @param priority 优先级（大于0）
+     * @author Barry
+     * @since 2026/10/19 11:40
+     **/
+    <T> Subscriber<T> subscribePriority(Subscriber<T> parent, int priority) {
+        String stream = Message.streamOf(parent.getTopicName(), priority);
+        if (subscriptions.containsKey(stream)) {
+            throw new IllegalStateException(stream + " already subscribed");
+        }
+        Subscriber<T> subscriber = new Subscriber<>(stream, this, dispatcher.addLane(stream), parent, priority);
+        subscriber.setMetrics(metrics.forSubscription(stream, consumerGroup));
+        subscriptions.put(stream, subscriber);
+        createConsumerGroup(config.getIsStartFromHead(), subscriber);
+        return subscriber;
+    }
+
+    /**
+     * 订阅主题并指定消息类型
+     *
+     * @param topic    主题名
+     * @param msgClass 消息类型
+     * @return 订阅者
+     * @author Barry
+     * @since 2026/10/18 16:30
+     */
+    public <T> Subscriber<T> subscribe(String topic, Class<T> msgClass) {
+        return this.<T>subscribe(topic).setMsgClass(msgClass);
+    }
+
+    /**
+     * 重置消费组在主题上的位置，之后从该ID（包含）开始重新投递（XGROUP SETID）
+     * 位置由整个消费组共享，同组的所有消费者都从新位置继续拉取；PendingList中未确认的消息不受影响
+     *
+     * @param topic 主题
+     * @param id    起始ID，ALL表示从头，NEWEST表示跳到末尾
+     * @author Barry
+     * @since 2026/10/18 21:50
+     **/
+    public CompletableFuture<Void> seek(String topic, StreamMessageId id) {
+        StreamMessageId lastDeliveredId = id == StreamMessageId.ALL || id == StreamMessageId.NEWEST
+                ? id
+                : SequenceUtil.previousIdOf(id);
+        return transport.setGroupId(topic, consumerGroup, lastDeliveredId);
+    }
+
+    /**
+     * 重置消费组在主题上的位置，之后从该时间（包含）之后生产的消息开始重新投递
+     * 时间与ID的对应关系按Message生成ID的规则（SequenceUtil.minIdOf）
+     *
+     * @param topic     主题
+     * @param timestamp 毫秒时间戳
+     * @author Barry
+     * @since 2026/10/18 21:50
+     **/
+    public CompletableFuture<Void> seek(String topic, long timestamp) {
+        return seek(topic, SequenceUtil.minIdOf(timestamp));
+    }
+
+    /**
+     * 把ID闭区间内的消息按顺序交给监听器重放，不经过消费组：不改变消费组位置与PendingList，不ACK、不判重
+     * 在调用线程上同步执行，每次读取REPLAY_BATCH_SIZE条；监听器抛出异常时中止
+     *
+     * @param startId 起始ID（包含），MIN表示从头
+     * @param endId   结束ID（包含），MAX表示到末尾
+     * @return 重放的条数
+     * @author Barry
+     * @since 2026/10/18 21:50
+     **/
+    public <T> long replay(String topic, StreamMessageId startId, StreamMessageId endId, Class<T> msgClass, MsgListener<T> listener) throws MQClientException {
+        long replayed = 0;
+        StreamMessageId from = startId;
+        while (true) {
+            Map<StreamMessageId, Map<Object, Object>> batch = transport.range(topic, from, endId, REPLAY_BATCH_SIZE).join();
+            StreamMessageId last = null;
+            for (Map.Entry<StreamMessageId, Map<Object, Object>> entry :
+                    batch.entrySet()) {
+                try {
+                    listener.consume(msgClass.cast(BeanMapUtils.toBean(msgClass, claimCheck.resolve(entry.getValue()).join())));
+                } catch (IntrospectionException | IllegalAccessException | InstantiationException | InvocationTargetException | NoSuchMethodException e) {
+                    throw new MQClientException("decode message " + entry.getKey() + " of " + topic + " error", e);
+                }
+                last = entry.getKey();
+                replayed++;
+            }
+            if (batch.size() < REPLAY_BATCH_SIZE) {
+                return replayed;
+            }
+            from = new StreamMessageId(last.getId0(), last.getId1() + 1);
+        }
+    }
+
+    /**
+     * 按时间闭区间重放消息，时间与ID的对应关系同seek
+     *
+     * @param fromTimestamp 起始时间（毫秒时间戳，包含）
+     * @param toTimestamp   结束时间（毫秒时间戳，包含）
+     * @author Barry
+     * @since 2026/10/18 21:50
+     **/
+    public <T> long replay(String topic, long fromTimestamp, long toTimestamp, Class<T> msgClass, MsgListener<T> listener) throws MQClientException {
+        return replay(topic,
+                SequenceUtil.minIdOf(fromTimestamp),
+                SequenceUtil.previousIdOf(SequenceUtil.minIdOf(toTimestamp + 1)),
+                msgClass,
+                listener);
+    }
+
 
     /**
      * 检查PendingList(进行消费偶尔失败、消费一直失败、死信情况处理)
+     * 同时按同一周期采集积压、PendingList大小与最早未确认消息年龄等指标
      *
      * @author Barry
      * @since 2021/6/28 17:11
@@ -117,73 +333,378 @@ public class PullConsumerClient {
     public void checkPendingList() {
         for (Subscriber<?>
                 subscriber :
-                subscriptions) {
-            RStream<Object, Object> stream = subscriber.getStream();
-            RFuture<List<PendingEntry>> future = stream.listPendingAsync(
+                subscriptions.values()) {
+            CompletableFuture<List<PendingEntry>> future = transport.listPending(
+                    subscriber.getTopicName(),
                     consumerGroup,
                     consumer,
-                    StreamMessageId.MIN,
-                    StreamMessageId.MAX,
                     config.getPendingListIdleThreshold(),
                     TimeUnit.SECONDS,
                     config.getCheckPendingListSize());
             future.thenAccept(pendingEntryList -> {
-
-                Set<StreamMessageId> deadLetterIds = new HashSet<>();
-                Set<StreamMessageId> idleIds = new HashSet<>();
+                // 大多数周期PendingList中没有超时消息，只在需要时创建集合
+                Set<StreamMessageId> deadLetterIds = null;
+                Set<StreamMessageId> idleIds = null;
+                int deadLetterThreshold = config.getDeadLetterThreshold();
                 for (PendingEntry entry :
                         pendingEntryList) {
-                    long cnt = entry.getLastTimeDelivered();
-                    if (cnt >= this.config.getDeadLetterThreshold()) {
+                    if (entry.getLastTimeDelivered() >= deadLetterThreshold) {
+                        if (deadLetterIds == null) {
+                            deadLetterIds = new HashSet<>();
+                        }
                         deadLetterIds.add(entry.getId());
-                    } else {
+                    } else if (!subscriber.isTracked(entry.getId())) {
+                        // 本地时间轮跟踪中的消息到期时会自行重新投递
+                        if (idleIds == null) {
+                            idleIds = new HashSet<>(pendingEntryList.size() * 2);
+                        }
                         idleIds.add(entry.getId());
                     }
                 }
                 consumeIdleMessages(idleIds, subscriber);
-                consumeDeadLetterMessages(deadLetterIds, stream);
-                claimIdleConsumer(stream);
+                consumeDeadLetterMessages(deadLetterIds, subscriber);
+                claimIdleConsumer(subscriber);
             }).exceptionally(exception -> {
-                exception.printStackTrace();
+                log.error("check pending list of {} error", subscriber.getTopicName(), exception);
+                subscriber.getMetrics().error("pending");
                 return null;
             });
+            if (config.getMetricsEnabled()) {
+                collectMetrics(subscriber);
+            }
         }
 
     }
 
+    /**
+     * 采集订阅的积压与PendingList指标（每个订阅两次轻量调用）
+     *
+     * @author Barry
+     * @since 2026/10/18 15:10
+     **/
+    private void collectMetrics(Subscriber<?> subscriber) {
+        SubscriptionMetrics subscriptionMetrics = subscriber.getMetrics();
+        transport.getPendingInfo(subscriber.getTopicName(), consumerGroup).thenAccept(info -> {
+            long oldestAge = 0;
+            if (info.getTotal() > 0 && info.getLowestId() != null) {
+                oldestAge = Math.max(0, SystemClock.now() - SequenceUtil.timestampOf(info.getLowestId()));
+            }
+            subscriptionMetrics.updatePending(info.getTotal(), oldestAge);
+        }).exceptionally(exception -> {
+            subscriptionMetrics.error("metrics");
+            return null;
+        });
+        transport.lag(subscriber.getTopicName(), consumerGroup, config.getMetricsLagCap())
+                .thenAccept(subscriptionMetrics::updateLag)
+                .exceptionally(exception -> {
+                    subscriptionMetrics.error("metrics");
+                    return null;
+                });
+    }
+
     /**
      * 正常消费fetchMessageSize条数据
+     * 多个订阅合并为一次XREADGROUP STREAMS调用（每次最多multiStreamReadSize个stream），结果再按主题分发给各订阅者
+     * 每个订阅每次拉取fetchMessageSize*weight条，积压未处理完的订阅本轮不再拉取
      *
      * @author Barry
      * @since 2021/6/28 17:08
      **/
     public void consumeHealthMessages() {
+        if (!running.get()) {
+            return;
+        }
+        int batchSize = Math.max(1, config.getMultiStreamReadSize());
+        // 同一批次的COUNT相同，按拉取条数分组；没有可拉取的订阅时不创建分组
+        Map<Integer, List<Subscriber<?>>> batches = null;
         for (Subscriber<?> subscriber :
-                this.subscriptions) {
-            RStream<Object, Object> stream = subscriber.getStream();
-            RFuture<Map<StreamMessageId, Map<Object, Object>>> future =
-                    stream.readGroupAsync(consumerGroup, consumer, config.getFetchMessageSize(), StreamMessageId.NEVER_DELIVERED);
-            future.thenAccept(res -> consumeMessages(res, subscriber)).exceptionally(exception -> {
+                this.subscriptions.values()) {
+            int count = fetchCount(subscriber);
+            if (count <= 0 || !subscriber.tryStartFetch()) {
+                continue;
+            }
+            if (batches == null) {
+                batches = new HashMap<>();
+            }
+            List<Subscriber<?>> batch = batches.get(count);
+            if (batch == null) {
+                batch = new ArrayList<>(batchSize);
+                batches.put(count, batch);
+            }
+            batch.add(subscriber);
+            if (batch.size() >= batchSize) {
+                readGroupBatch(batch, count);
+                batches.remove(count);
+            }
+        }
+        if (batches == null) {
+            return;
+        }
+        for (Map.Entry<Integer, List<Subscriber<?>>> entry :
+                batches.entrySet()) {
+            readGroupBatch(entry.getValue(), entry.getKey());
+        }
+    }
+
+    /**
+     * 计算订阅本次可拉取的条数
+     * 严格优先级下更高优先级尚有消息时不拉取；开启预取时以prefetch为在途消息上限，否则本地积压达到配额时暂停拉取；设置了限流时再受令牌桶约束
+     *
+     * @author Barry
+     * @since 2026/10/18 13:20
+     **/
+    private int fetchCount(Subscriber<?> subscriber) {
+        if (!subscriber.mayFetch()) {
+            return 0;
+        }
+        int quota = config.getFetchMessageSize() * subscriber.getWeight();
+        int prefetch = subscriber.getPrefetch();
+        if (prefetch > 0) {
+            quota = Math.min(quota, prefetch - subscriber.getOutstanding());
+        } else if (subscriber.getLane().backlog() >= quota) {
+            return 0;
+        }
+        return quota <= 0 ? 0 : subscriber.limitFetchCount(quota);
+    }
+
+    /**
+     * 预取：当前批次还在处理时就发出下一次XREADGROUP，隐藏网络往返
+     *
+     * @param subscriber 开启了预取的订阅者
+     * @author Barry
+     * @since 2026/10/18 13:20
+     **/
+    private void prefetch(Subscriber<?> subscriber) {
+        if (!running.get() || subscriber.getPrefetch() <= 0) {
+            return;
+        }
+        int count = fetchCount(subscriber);
+        if (count <= 0 || !subscriber.tryStartFetch()) {
+            return;
+        }
+        readGroupBatch(Collections.singletonList(subscriber), count);
+    }
+
+    /**
+     * 一次命令读取一批订阅的新消息，调用前各订阅者须已标记为拉取中
+     * 注意：Redis集群模式下多key命令要求所有stream位于同一slot，此时需把multiStreamReadSize配置为1或使用hash tag命名主题
+     *
+     * @param batch 本批订阅者
+     * @param count 每个stream最多读取的条数
+     * @author Barry
+     * @since 2026/10/18 10:12
+     **/
+    private void readGroupBatch(List<Subscriber<?>> batch, int count) {
+        Subscriber<?> first = batch.get(0);
+        pendingFetches.incrementAndGet();
+        if (batch.size() == 1) {
+            CompletableFuture<Map<StreamMessageId, Map<Object, Object>>> future =
+                    transport.readGroup(first.getTopicName(), consumerGroup, consumer, count, StreamMessageId.NEVER_DELIVERED);
+            future.thenAccept(res -> {
+                first.setDrained(res.isEmpty());
+                if (!res.isEmpty()) {
+                    first.getMetrics().fetched(res.size());
+                }
+                consumeMessages(res, first, false);
+                first.finishFetch();
+                if (!res.isEmpty()) {
+                    prefetch(first);
+                }
+            }).exceptionally(exception -> {
+                first.finishFetch();
+                first.getMetrics().error("fetch");
                 log.info("consumeHealthMessages Exception:{}", exception.getMessage());
-                exception.printStackTrace();
                 return null;
-            });
+            }).whenComplete((res, ex) -> pendingFetches.decrementAndGet());
+            return;
+        }
+        List<String> topics = new ArrayList<>(batch.size());
+        for (Subscriber<?> subscriber :
+                batch) {
+            topics.add(subscriber.getTopicName());
         }
+        CompletableFuture<Map<String, Map<StreamMessageId, Map<Object, Object>>>> future =
+                transport.readGroup(topics, consumerGroup, consumer, count);
+        future.thenAccept(res -> {
+            for (Subscriber<?> subscriber :
+                    batch) {
+                Map<StreamMessageId, Map<Object, Object>> messages = res.get(subscriber.getTopicName());
+                boolean hasMessages = messages != null && !messages.isEmpty();
+                subscriber.setDrained(!hasMessages);
+                if (hasMessages) {
+                    subscriber.getMetrics().fetched(messages.size());
+                    consumeMessages(messages, subscriber, false);
+                }
+                subscriber.finishFetch();
+                if (hasMessages) {
+                    prefetch(subscriber);
+                }
+            }
+        }).exceptionally(exception -> {
+            for (Subscriber<?> subscriber :
+                    batch) {
+                subscriber.finishFetch();
+                subscriber.getMetrics().error("fetch");
+            }
+            log.info("consumeHealthMessages Exception:{}", exception.getMessage());
+            return null;
+        }).whenComplete((res, ex) -> pendingFetches.decrementAndGet());
     }
 
-    public void start() {
-        ScheduledExecutorService service = Executors.newScheduledThreadPool(16);
-        service.scheduleAtFixedRate(
+    /**
+     * 启动拉取与PendingList检查，重复调用只会启动一次
+     *
+     * @author Barry
+     * @since 2021/7/6 10:02
+     **/
+    public synchronized void start() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        dispatcher.start();
+        timer = new HashedWheelTimer("DolphinMQ-Timer", config.getTimerTickMillis(), 512);
+        AtomicInteger threadIndex = new AtomicInteger();
+        scheduler = Executors.newScheduledThreadPool(config.getSchedulerThreads(),
+                runnable -> new Thread(runnable, "DolphinMQ-Scheduler-" + threadIndex.incrementAndGet()));
+        scheduledTasks.add(scheduler.scheduleAtFixedRate(
                 new PullHealthyMessagesScheduledExecutor(this),
                 1,
                 config.getPullHealthyMessagesPeriod(),
-                TimeUnit.SECONDS);
-        service.scheduleAtFixedRate(
+                TimeUnit.SECONDS));
+        scheduledTasks.add(scheduler.scheduleAtFixedRate(
                 new CheckPendingListScheduledExecutor(this),
                 1,
                 config.getCheckPendingListsPeriod(),
-                TimeUnit.SECONDS);
+                TimeUnit.SECONDS));
+    }
 
+    /**
+     * 优雅停止：停止拉取，等待已拉取的消息处理完成并刷出未完成的ACK，最后关闭线程
+     * 超过shutdownAwaitSeconds仍未处理完的消息留在PendingList中，由其他消费者认领
+     *
+     * @author Barry
+     * @since 2026/10/18 11:30
+     **/
+    public synchronized void stop() {
+        if (!running.compareAndSet(true, false)) {
+            return;
+        }
+        for (ScheduledFuture<?> task :
+                scheduledTasks) {
+            task.cancel(false);
+        }
+        scheduledTasks.clear();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.getShutdownAwaitSeconds());
+        try {
+            while ((pendingFetches.get() > 0 || hasOutstandingMessages()) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            for (CompletableFuture<Long> ack :
+                    pendingAcks) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                try {
+                    ack.get(remaining, TimeUnit.NANOSECONDS);
+                } catch (ExecutionException | TimeoutException e) {
+                    log.warn("flush ack failed:{}", e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (hasOutstandingMessages() || !pendingAcks.isEmpty()) {
+            log.warn("consumer {} stopped with unfinished messages, they stay in the pending list", consumer);
+        }
+        dispatcher.stop();
+        if (timer != null) {
+            timer.stop();
+            timer = null;
+        }
+        for (Subscriber<?> subscriber :
+                subscriptions.values()) {
+            subscriber.untrackAll();
+        }
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(1, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            scheduler.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        scheduler = null;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    @Override
+    public void destroy() {
+        stop();
+    }
+
+    /**
+     * 单条消息处理结束，开启预取的订阅在途消息降到一半时补充拉取
+     *
+     * @author Barry
+     * @since 2026/10/18 13:20
+     **/
+    private void finish(Subscriber<?> subscriber) {
+        int outstanding = subscriber.release();
+        int prefetch = subscriber.getPrefetch();
+        if (prefetch > 0 && outstanding <= prefetch / 2) {
+            prefetch(subscriber);
+        }
+    }
+
+    private boolean hasOutstandingMessages() {
+        for (Subscriber<?> subscriber :
+                subscriptions.values()) {
+            if (subscriber.getOutstanding() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 已消费标记的key：消费组+消息ID，直接拼接ID的两段，不生成ID的中间字符串
+     */
+    private String consumedKey(StreamMessageId id) {
+        return new StringBuilder(consumerGroup.length() + 40)
+                .append(consumerGroup)
+                .append(id.getId0())
+                .append('-')
+                .append(id.getId1())
+                .toString();
+    }
+
+    /**
+     * 异步ACK，并记录直到完成，stop时据此刷出
+     *
+     * @author Barry
+     * @since 2026/10/18 11:30
+     **/
+    private void ack(Subscriber<?> subscriber, StreamMessageId id, long fetchedAt) {
+        subscriber.untrack(id);
+        long start = System.nanoTime();
+        CompletableFuture<Long> future = transport.ack(subscriber.getTopicName(), consumerGroup, id);
+        pendingAcks.add(future);
+        future.whenComplete((res, ex) -> {
+            pendingAcks.remove(future);
+            if (ex != null) {
+                subscriber.getMetrics().error("ack");
+                log.info("ack {} error:{}", id, ex.getMessage());
+            } else {
+                long now = System.nanoTime();
+                subscriber.getMetrics().acked(now - start);
+                subscriber.getMetrics().fetchToAck(now - fetchedAt);
+            }
+        });
     }
 
     /**
@@ -197,54 +718,56 @@ public class PullConsumerClient {
         if (idleIds == null || idleIds.size() == 0) {
             return;
         }
-        RStream<Object, Object> stream = data.getStream();
-        RFuture<Map<StreamMessageId, Map<Object, Object>>> future =
-                stream.readGroupAsync(consumerGroup, consumer, StreamMessageId.ALL);
+        pendingFetches.incrementAndGet();
+        CompletableFuture<Map<StreamMessageId, Map<Object, Object>>> future =
+                transport.readGroup(data.getTopicName(), consumerGroup, consumer, 0, StreamMessageId.ALL);
         future.thenAccept(res -> {
-            Map<StreamMessageId, Map<Object, Object>> messages = res.entrySet().stream().
-                    filter(row -> idleIds.contains(row.getKey())).
-                    collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-            consumeMessages(messages, data);
+            Map<StreamMessageId, Map<Object, Object>> messages = new HashMap<>(idleIds.size() * 2);
+            for (Map.Entry<StreamMessageId, Map<Object, Object>> row :
+                    res.entrySet()) {
+                if (idleIds.contains(row.getKey())) {
+                    messages.put(row.getKey(), row.getValue());
+                }
+            }
+            consumeMessages(messages, data, true);
         }).exceptionally(exception -> {
+            data.getMetrics().error("fetch");
             log.info(exception.getMessage());
             return null;
-        });
+        }).whenComplete((res, ex) -> pendingFetches.decrementAndGet());
     }
 
     /**
-     * 认领空闲过久的消息
+     * 认领已宕机消费者的消息
+     * 只认领超过claimThreshold没有读取或认领过消息（XINFO CONSUMERS的idle）的其他消费者名下、空闲同样超过claimThreshold的消息；
+     * 存活的消费者每个拉取周期都会读取，其预取队列中的消息与执行中的消息不会被认领
      *
      * @author Barry
      * @since 2021/7/5 16:44
      **/
-    private void claimIdleConsumer(RStream<Object, Object> stream) {
-        RFuture<PendingResult> infoAsync = stream.getPendingInfoAsync(consumerGroup);
-        infoAsync.thenAccept(res -> {
-            Map<String, Long> consumerNames = res.getConsumerNames();
-            if (consumerNames.size() <= 1) {
-                return;
+    private void claimIdleConsumer(Subscriber<?> subscriber) {
+        String topic = subscriber.getTopicName();
+        transport.listConsumers(topic, consumerGroup).thenAccept(consumers -> {
+            for (StreamConsumer owner :
+                    consumers) {
+                if (owner.getName().equals(consumer) || owner.getPending() <= 0 || owner.getIdleTime() < config.getClaimThreshold()) {
+                    continue;
+                }
+                CompletableFuture<List<PendingEntry>> future = transport.listPending(
+                        topic,
+                        consumerGroup,
+                        owner.getName(),
+                        config.getClaimThreshold(),
+                        TimeUnit.MILLISECONDS,
+                        config.getCheckPendingListSize());
+                future.thenAccept(pendingEntries -> claim(pendingEntries, subscriber)).exceptionally(exception -> {
+                    subscriber.getMetrics().error("claim");
+                    log.info("listPendingAsync Error:{}", exception.getMessage());
+                    return null;
+                });
             }
-
-            RFuture<List<PendingEntry>> future = stream.listPendingAsync(
-                    consumerGroup,
-                    consumer,
-                    StreamMessageId.MIN,
-                    StreamMessageId.MAX,
-                    config.getClaimThreshold(),
-                    TimeUnit.MILLISECONDS,
-                    config.getCheckPendingListSize());
-            future.thenAccept(pendingEntryList -> {
-                List<PendingEntry> pendingEntries = pendingEntryList.stream()
-                        .filter(entry -> entry.getLastTimeDelivered() >= config.getDeadLetterThreshold())
-                        .collect(Collectors.toList());
-                String randConsumerName = getRandConsumerName(consumerNames);
-                claim(pendingEntries, randConsumerName, stream);
-            }).exceptionally(exception -> {
-                log.info("listPendingAsync Error:{}", exception.getMessage());
-                return null;
-            });
-
         }).exceptionally(ex -> {
+            subscriber.getMetrics().error("claim");
             log.info("Claim Error:{}", ex.getMessage());
             return null;
         });
@@ -257,28 +780,31 @@ public class PullConsumerClient {
      * @author Barry
      * @since 2021/6/29 11:06
      */
-    private void consumeDeadLetterMessages(Set<StreamMessageId> deadLetterIds, RStream<Object, Object> stream) {
+    private void consumeDeadLetterMessages(Set<StreamMessageId> deadLetterIds, Subscriber<?> subscriber) {
         if (deadLetterIds == null || deadLetterIds.size() == 0) {
             return;
         }
-        deadStream = client.getStream(DEAD_STREAM_NAME);
+        String topic = subscriber.getTopicName();
         for (StreamMessageId id :
                 deadLetterIds) {
-            RFuture<Map<StreamMessageId, Map<Object, Object>>> future = stream.rangeAsync(id, id);
+            CompletableFuture<Map<StreamMessageId, Map<Object, Object>>> future = transport.range(topic, id, id);
             future.thenAccept(range -> {
                 if (range != null && range.size() != 0) {
                     Map<Object, Object> map = range.get(id);
-                    RFuture<Void> addAsync = deadStream.addAsync(StreamMessageId.AUTO_GENERATED, StreamAddArgs.entries(map));
+                    CompletableFuture<Void> addAsync = transport.append(DEAD_STREAM_NAME, StreamMessageId.AUTO_GENERATED, map, 0);
                     addAsync.thenAccept(res -> {
-                        stream.removeAsync(id);
-                        stream.ackAsync(consumerGroup, id);
+                        transport.remove(topic, id);
+                        transport.ack(topic, consumerGroup, id);
+                        subscriber.getMetrics().deadLetter();
                     }).exceptionally(exception -> {
-                        exception.printStackTrace();
+                        subscriber.getMetrics().error("dead-letter");
+                        log.error("move {} to dead letter stream error", id, exception);
                         return null;
                     });
                 }
             }).exceptionally(exception -> {
-                exception.printStackTrace();
+                subscriber.getMetrics().error("dead-letter");
+                log.error("range dead letter {} error", id, exception);
                 return null;
             });
         }
@@ -289,79 +815,369 @@ public class PullConsumerClient {
     /**
      * 消费单条消息
      *
-     * @param res 消息
+     * @param res        消息
+     * @param redelivery 是否为重新投递（PendingList重读、认领），只有重新投递才需要判重；
+     *                   新消息对消费组只投递一次，除非消费组被seek回退，此时重新处理正是目的
      * @author Barry
      * @since 2021/7/2 11:39
      **/
-    private void consumeMessages(Map<StreamMessageId, Map<Object, Object>> res, Subscriber<?> data) {
+    private void consumeMessages(Map<StreamMessageId, Map<Object, Object>> res, Subscriber<?> data, boolean redelivery) {
+        data.consumeRateTokens(res);
+        Map<StreamMessageId, Map<Object, Object>> accepted = filter(res, data);
+        data.acquire(accepted.size());
+        long fetchedAt = System.nanoTime();
+        for (Map.Entry<StreamMessageId, Map<Object, Object>> entry :
+                accepted.entrySet()) {
+            if (redelivery) {
+                consumeMessage(entry.getKey(), entry.getValue(), (Subscriber<Object>) data, fetchedAt);
+            } else {
+                dispatch(entry.getKey(), entry.getValue(), (Subscriber<Object>) data, fetchedAt);
+            }
+        }
+    }
+
+    /**
+     * 按订阅的过滤条件筛选消息（只读保留字段，不解码消息体），不接受的消息一次ACK
+     *
+     * @return 接受的消息
+     * @author Barry
+     * @since 2026/10/18 22:20
+     **/
+    private Map<StreamMessageId, Map<Object, Object>> filter(Map<StreamMessageId, Map<Object, Object>> res, Subscriber<?> subscriber) {
+        if (!subscriber.hasFilter()) {
+            return res;
+        }
+        Map<StreamMessageId, Map<Object, Object>> accepted = new LinkedHashMap<>(res.size() * 2);
+        List<StreamMessageId> rejected = new ArrayList<>();
         for (Map.Entry<StreamMessageId, Map<Object, Object>> entry :
                 res.entrySet()) {
-            consumeMessage(entry.getKey(), entry.getValue(), (Subscriber<Object>) data);
+            if (subscriber.accept(entry.getValue())) {
+                accepted.put(entry.getKey(), entry.getValue());
+            } else {
+                rejected.add(entry.getKey());
+            }
+        }
+        if (!rejected.isEmpty()) {
+            CompletableFuture<Long> future = transport.ack(subscriber.getTopicName(), consumerGroup, rejected.toArray(new StreamMessageId[0]));
+            pendingAcks.add(future);
+            future.whenComplete((acked, ex) -> {
+                pendingAcks.remove(future);
+                if (ex != null) {
+                    subscriber.getMetrics().error("ack");
+                    log.info("ack {} filtered messages of {} error:{}", rejected.size(), subscriber.getTopicName(), ex.getMessage());
+                } else {
+                    subscriber.getMetrics().filtered(rejected.size());
+                }
+            });
         }
+        return accepted;
     }
 
     /**
      * 消费单条数据
-     * 判重(一般消费者需要根据业务ID做判重表，消息过的就不再消费消费等幂性存在Redis中进行查重)
-     * 分布式锁 保证查看、消费、删除的原子性
-     * todo 优化：只需要对不幂等的操作加锁，不用全部加
+     * 判重(一般消费者需要根据业务ID做判重表，消息过的就不再消费消费等幂性存在传输层中进行查重)
      *
-     * @param id     消息ID
-     * @param dtoMap Map格式数据
+     * @param id        消息ID
+     * @param dtoMap    Map格式数据
+     * @param fetchedAt 拉取到该消息的时间（System.nanoTime）
      * @author Barry
      * @since 2021/6/28 17:09
      **/
-    private void consumeMessage(StreamMessageId id, Map<Object, Object> dtoMap, Subscriber<Object> subscriber) {
-        RStream<Object, Object> stream = subscriber.getStream();
-        String lockName = consumerGroup + id.toString();
-        RLock lock = client.getLock(lockName);
-        try {
-            RFuture<Boolean> tryAsync = lock.tryLockAsync(100, 10, TimeUnit.SECONDS);
-            tryAsync.thenAccept(tmp -> {
-                RBucket<String> bucket = client.getBucket("bucket" + lockName);
-                RFuture<String> bucketAsync = bucket.getAsync();
-                bucketAsync.thenAccept(bucketRes -> {
-                    if (StringUtil.isNullOrEmpty(bucketRes)) {
-                        try {
-                            subscriber.notify(BeanMapUtils.toBean(subscriber.getMsgClass(), dtoMap));
-                            stream.ackAsync(consumerGroup, id);
-                            bucket.setAsync("consumed");
-                            bucket.expireAsync(30, TimeUnit.MINUTES);
-                        } catch (IntrospectionException | IllegalAccessException | InstantiationException | InvocationTargetException | NoSuchMethodException e) {
-                            e.printStackTrace();
-                        }
+    private void consumeMessage(StreamMessageId id, Map<Object, Object> dtoMap, Subscriber<Object> subscriber, long fetchedAt) {
+        transport.isConsumed(consumedKey(id)).thenAccept(isConsumed -> {
+            if (!isConsumed) {
+                dispatch(id, dtoMap, subscriber, fetchedAt);
+            } else {
+                // 已消费过（上次ACK失败），补一次ACK使其离开PendingList
+                ack(subscriber, id, fetchedAt);
+                finish(subscriber);
+            }
+        }).exceptionally(ex -> {
+            finish(subscriber);
+            subscriber.getMetrics().error("consume");
+            log.error("check consumed flag of {} error", id, ex);
+            return null;
+        });
+    }
+
+    /**
+     * 提交到分发线程执行监听器，成功后ACK并记录已消费标记
+     *
+     * @author Barry
+     * @since 2026/10/18 21:50
+     **/
+    private void dispatch(StreamMessageId id, Map<Object, Object> dtoMap, Subscriber<Object> subscriber, long fetchedAt) {
+        scheduleDeadline(subscriber, id);
+        // 监听器在分发线程上执行，不占用传输层回调线程
+        dispatcher.submit(subscriber.getLane(), () -> {
+            SubscriptionMetrics subscriptionMetrics = subscriber.getMetrics();
+            subscriptionMetrics.queueWait(SequenceUtil.timestampOf(id), SystemClock.now());
+            // 本次执行的结果只能由分发线程或看门狗其中之一处理
+            AtomicBoolean settled = new AtomicBoolean();
+            HashedWheelTimer.Timeout watchdog = startWatchdog(subscriber, id, settled);
+            boolean succeeded = false;
+            boolean poisoned = false;
+            long start = System.nanoTime();
+            try {
+                // 只有视图监听器时不构建消息Bean，另存的消息体由视图在首次访问时取回
+                boolean beans = subscriber.hasBeanListeners();
+                Map<Object, Object> fields = beans ? claimCheck.resolve(dtoMap).join() : dtoMap;
+                Object dto = beans ? BeanMapUtils.toBean(subscriber.getMsgClass(), fields) : null;
+                start = System.nanoTime();
+                if (beans) {
+                    subscriber.notify(dto);
+                }
+                if (subscriber.hasViewListeners()) {
+                    MessageView view = VIEWS.get().reset(subscriber.getTopicName(), id, fields).resolveWith(claimCheck);
+                    try {
+                        subscriber.notifyView(view);
+                    } finally {
+                        view.reset(null, null, null);
                     }
-                }).exceptionally(ex -> {
-                    ex.printStackTrace();
-                    return null;
-                });
+                }
+                succeeded = true;
+            } catch (IntrospectionException | IllegalAccessException | InstantiationException | InvocationTargetException | NoSuchMethodException e) {
+                poisoned = true;
+                subscriber.getMetrics().error("consume");
+                log.error("decode message {} of {} error", id, subscriber.getTopicName(), e);
+            } catch (CompletionException e) {
+                // 另存的消息体已过期或被删除时重试也不会成功
+                poisoned = e.getCause() instanceof IllegalStateException;
+                subscriber.getMetrics().error("consume");
+                log.error("resolve message body {} of {} error", id, subscriber.getTopicName(), e.getCause());
+            } catch (PoisonMessageException e) {
+                poisoned = true;
+                subscriber.getMetrics().error("listener");
+                log.error("listener of {} rejected message {}", subscriber.getTopicName(), id, e);
+            } catch (RuntimeException e) {
+                subscriber.getMetrics().error("listener");
+                log.error("listener of {} failed on message {}", subscriber.getTopicName(), id, e);
+            }
+            if (!settled.compareAndSet(false, true)) {
+                // 看门狗已判定超时并按失败处理，本线程已被替换
+                return;
+            }
+            if (watchdog != null) {
+                watchdog.cancel();
+            }
+            settle(subscriber, id);
+            try {
+                if (succeeded) {
+                    subscriptionMetrics.listenerExecuted(System.nanoTime() - start);
+                    ack(subscriber, id, fetchedAt);
+                    transport.markConsumed(consumedKey(id), 30, TimeUnit.MINUTES);
+                    if (Boolean.TRUE.equals(config.getClaimCheckDeleteOnAck()) && ClaimCheck.isReference(dtoMap)) {
+                        claimCheck.release(dtoMap);
+                    }
+                } else {
+                    onFailure(subscriber, id, poisoned);
+                }
+            } finally {
+                finish(subscriber);
+            }
+        });
+    }
 
-            }).exceptionally(ex -> {
-                ex.printStackTrace();
-                return null;
-            });
+    /**
+     * 执行超时看门狗：超时仍未返回的监听器所在分发线程被放弃（新线程顶替、原线程被中断），该消息按失败处理
+     *
+     * @author Barry
+     * @since 2026/10/19 10:20
+     **/
+    private HashedWheelTimer.Timeout startWatchdog(Subscriber<?> subscriber, StreamMessageId id, AtomicBoolean settled) {
+        long timeout = subscriber.getExecutionTimeout() > 0 ? subscriber.getExecutionTimeout() : config.getExecutionTimeout();
+        HashedWheelTimer current = timer;
+        WeightedFairDispatcher.Execution execution = dispatcher.current();
+        if (timeout <= 0 || current == null || execution == null) {
+            return null;
+        }
+        try {
+            return current.schedule(() -> {
+                if (!settled.compareAndSet(false, true)) {
+                    return;
+                }
+                settle(subscriber, id);
+                execution.abandon();
+                subscriber.getMetrics().error("timeout");
+                log.warn("listener of {} exceeded {}ms on message {}, abandon {}",
+                        subscriber.getTopicName(), timeout, id, execution.getWorker().getName());
+                try {
+                    onFailure(subscriber, id, true);
+                } finally {
+                    finish(subscriber);
+                }
+            }, timeout, TimeUnit.MILLISECONDS);
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 处理失败：解码失败、执行超时或监听器抛出PoisonMessageException为硬失败，同一消息连续硬失败达到quarantineThreshold次时
+     * 立即转入死信队列，不再等待空闲检查与deadLetterThreshold次投递；其他监听器异常（下游暂时不可用等）清零连续次数，只按退避时间重试
+     *
+     * @param hard 是否为硬失败
+     * @author Barry
+     * @since 2026/10/19 10:20
+     **/
+    private void onFailure(Subscriber<?> subscriber, StreamMessageId id, boolean hard) {
+        AckDeadline deadline = subscriber.getDeadline(id);
+        if (deadline == null) {
+            return;
+        }
+        int failures = hard ? deadline.incrementFailures() : deadline.resetFailures();
+        int threshold = config.getQuarantineThreshold();
+        if (threshold > 0 && failures >= threshold) {
+            subscriber.untrack(id);
+            subscriber.getMetrics().quarantined();
+            log.warn("message {} of {} failed {} times in a row, move to dead letter stream", id, subscriber.getTopicName(), failures);
+            consumeDeadLetterMessages(Collections.singleton(id), subscriber);
+            return;
+        }
+        scheduleRetry(subscriber, id);
+    }
+
+    /**
+     * 投递时跟踪该消息（记录投递与失败次数），并在时间轮上登记ACK截止时间，到期仍未ACK（监听器卡住或本地丢失）时立即重新投递，无需等待PendingList检查
+     *
+     * @author Barry
+     * @since 2026/10/19 09:30
+     **/
+    private void scheduleDeadline(Subscriber<?> subscriber, StreamMessageId id) {
+        HashedWheelTimer current = timer;
+        if (current == null) {
+            return;
+        }
+        AckDeadline deadline = subscriber.track(id);
+        deadline.incrementAttempts();
+        deadline.setInFlight(true);
+        if (config.getAckTimeout() > 0) {
+            schedule(current, subscriber, id, deadline, config.getAckTimeout());
+        }
+    }
+
+    /**
+     * 监听器失败后按退避时间重试：retryDelay起每次翻倍，不超过ackTimeout；本地重试达到死信门槛后交给PendingList检查转入死信队列
+     *
+     * @author Barry
+     * @since 2026/10/19 09:30
+     **/
+    private void scheduleRetry(Subscriber<?> subscriber, StreamMessageId id) {
+        HashedWheelTimer current = timer;
+        AckDeadline deadline = subscriber.getDeadline(id);
+        if (current == null || deadline == null) {
+            return;
+        }
+        int attempts = deadline.getAttempts();
+        if (attempts >= config.getDeadLetterThreshold()) {
+            subscriber.untrack(id);
+            return;
+        }
+        long delay = (long) config.getRetryDelay() << Math.min(attempts - 1, 20);
+        if (config.getAckTimeout() > 0) {
+            delay = Math.min(delay, config.getAckTimeout());
+        }
+        schedule(current, subscriber, id, deadline, delay);
+    }
 
-        } finally {
-            lock.unlockAsync();
+    private void schedule(HashedWheelTimer current, Subscriber<?> subscriber, StreamMessageId id, AckDeadline deadline, long delayMillis) {
+        try {
+            deadline.reschedule(current.schedule(() -> redeliver(subscriber, id), delayMillis, TimeUnit.MILLISECONDS));
+        } catch (IllegalStateException e) {
+            // 定时器已停止，消息留在PendingList中
+            subscriber.untrack(id);
         }
     }
 
-    private String getRandConsumerName(Map<String, Long> consumerNames) {
-        List<Map.Entry<String, Long>> entries = consumerNames.entrySet().stream()
-                .filter(entry -> entry.getKey().equals(consumer))
-                .collect(Collectors.toList());
+    /**
+     * 本次执行结束（完成、失败或被看门狗放弃），之后到期的定时可以重新投递
+     */
+    private void settle(Subscriber<?> subscriber, StreamMessageId id) {
+        AckDeadline deadline = subscriber.getDeadline(id);
+        if (deadline != null) {
+            deadline.setInFlight(false);
+        }
+    }
 
-        Random rand = new Random();
-        int i = rand.nextInt(entries.size());
-        return entries.get(i).getKey();
+    /**
+     * 定时到期：把消息重新认领到本消费者（XCLAIM会增加投递次数并重置空闲时间），认领成功则重新消费；
+     * 消息已被ACK或删除时认领结果为空，停止跟踪；仍在分发线程排队或执行中的消息不重新投递，再等待一个ackTimeout
+     *
+     * @author Barry
+     * @since 2026/10/19 09:30
+     **/
+    private void redeliver(Subscriber<?> subscriber, StreamMessageId id) {
+        if (!running.get() || !subscriber.isTracked(id)) {
+            return;
+        }
+        AckDeadline deadline = subscriber.getDeadline(id);
+        HashedWheelTimer current = timer;
+        if (deadline != null && deadline.isInFlight()) {
+            // 监听器较慢但仍在执行：重复投递只会让同一消息并发执行，由executionTimeout负责放弃卡住的执行
+            if (current != null && config.getAckTimeout() > 0) {
+                schedule(current, subscriber, id, deadline, config.getAckTimeout());
+            }
+            return;
+        }
+        pendingFetches.incrementAndGet();
+        transport.claim(subscriber.getTopicName(), consumerGroup, consumer, 0, TimeUnit.MILLISECONDS, id)
+                .thenAccept(claimed -> {
+                    if (claimed.isEmpty()) {
+                        subscriber.untrack(id);
+                        return;
+                    }
+                    subscriber.getMetrics().redelivered(claimed.size());
+                    consumeMessages(claimed, subscriber, true);
+                }).exceptionally(exception -> {
+                    subscriber.getMetrics().error("redeliver");
+                    log.info("redeliver {} of {} error:{}", id, subscriber.getTopicName(), exception.getMessage());
+                    return null;
+                }).whenComplete((res, ex) -> pendingFetches.decrementAndGet());
     }
 
-    private void claim(List<PendingEntry> pendingEntries, String randConsumerName, RStream<Object, Object> stream) {
-        for (PendingEntry entry :
-                pendingEntries) {
-            StreamMessageId id = entry.getId();
-            stream.claimAsync(consumerGroup, randConsumerName, config.getClaimThreshold(), TimeUnit.MILLISECONDS, id, id);
+    /**
+     * 将消息认领到本消费者，认领成功的消息直接进入消费流程
+     * XCLAIM只会认领空闲时间仍超过门槛的消息，多个消费者同时认领时只有一个成功；
+     * 已达到死信门槛的消息只认领不消费，由本消费者下一次PendingList检查转入死信队列
+     *
+     * @author Barry
+     * @since 2021/7/5 16:44
+     **/
+    private void claim(List<PendingEntry> pendingEntries, Subscriber<?> subscriber) {
+        if (pendingEntries.isEmpty()) {
+            return;
         }
+        StreamMessageId[] ids = new StreamMessageId[pendingEntries.size()];
+        Set<StreamMessageId> deadLetterIds = null;
+        for (int i = 0; i < ids.length; i++) {
+            PendingEntry entry = pendingEntries.get(i);
+            ids[i] = entry.getId();
+            if (entry.getLastTimeDelivered() >= config.getDeadLetterThreshold()) {
+                if (deadLetterIds == null) {
+                    deadLetterIds = new HashSet<>();
+                }
+                deadLetterIds.add(entry.getId());
+            }
+        }
+        Set<StreamMessageId> skipped = deadLetterIds;
+        pendingFetches.incrementAndGet();
+        transport.claim(subscriber.getTopicName(), consumerGroup, consumer, config.getClaimThreshold(), TimeUnit.MILLISECONDS, ids)
+                .thenAccept(claimed -> {
+                    if (claimed.isEmpty()) {
+                        return;
+                    }
+                    subscriber.getMetrics().claimed(claimed.size());
+                    if (skipped != null) {
+                        claimed.keySet().removeAll(skipped);
+                    }
+                    if (!claimed.isEmpty()) {
+                        consumeMessages(claimed, subscriber, true);
+                    }
+                }).exceptionally(exception -> {
+                    subscriber.getMetrics().error("claim");
+                    log.info("claimAsync Error:{}", exception.getMessage());
+                    return null;
+                }).whenComplete((res, ex) -> pendingFetches.decrementAndGet());
     }
 
     /**
@@ -372,16 +1188,11 @@ public class PullConsumerClient {
      * @since 2021/7/1 14:36
      **/
     private void createConsumerGroup(boolean startFromHead, Subscriber<?> subscriber) {
-        RStream<Object, Object> stream = subscriber.getStream();
         StreamMessageId id = StreamMessageId.NEWEST;
         if (startFromHead) {
             id = StreamMessageId.ALL;
         }
-        try {
-            stream.createGroup(consumerGroup, id);
-        } catch (RedisBusyException e) {
-            log.info(e.getMessage());
-        }
+        transport.createGroup(subscriber.getTopicName(), consumerGroup, id);
     }
 
 }
@@ -1,12 +1,24 @@
 package com.flowyun.dolphinmq.consumer;
 
-import org.redisson.api.RStream;
-import org.redisson.api.RedissonClient;
+import com.flowyun.dolphinmq.common.Message;
+import com.flowyun.dolphinmq.common.TokenBucket;
+import com.flowyun.dolphinmq.exception.MQClientException;
+import com.flowyun.dolphinmq.metrics.SubscriptionMetrics;
+import com.flowyun.dolphinmq.utils.FieldCodec;
+import org.redisson.api.StreamMessageId;
 
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 订阅者
@@ -15,17 +27,67 @@ import java.util.List;
  * @since 2021/7/6 9:34
  */
 public class Subscriber<T> {
-    private RStream<Object, Object> stream;
     private String topicName;
     private final List<MsgListener<T>> listeners = new ArrayList<>();
+    private final List<MessageViewListener> viewListeners = new ArrayList<>();
     private PullConsumerClient pullConsumerClient;
-    private RedissonClient redissonClient;
+    private final WeightedFairDispatcher.Lane lane;
+    /**
+     * 已拉取但尚未处理完成的消息数
+     */
+    private final AtomicInteger outstanding = new AtomicInteger();
+    /**
+     * 是否有进行中的拉取请求，同一订阅同时只允许一个
+     */
+    private final AtomicBoolean fetching = new AtomicBoolean();
+    /**
+     * 预取上限（已拉取未处理完的消息数），0表示不预取
+     */
+    private volatile int prefetch;
+    /**
+     * 消息数/字节数限流，null表示不限
+     */
+    private volatile TokenBucket messageLimiter;
+    private volatile TokenBucket byteLimiter;
+    private SubscriptionMetrics metrics;
+    private volatile Class<T> msgClass;
+    /**
+     * 过滤条件，null表示不过滤
+     */
+    private volatile MessageFilter filter;
+    /**
+     * 监听器执行超时（毫秒），0表示使用全局配置
+     */
+    private volatile long executionTimeout;
+    /**
+     * 本消费者正在处理的消息的ACK截止/重试定时
+     */
+    private final ConcurrentMap<StreamMessageId, AckDeadline> deadlines = new ConcurrentHashMap<>();
+    /**
+     * 优先级子stream的订阅者指向主题的订阅者，监听器、过滤条件、消息类型与执行超时都取自主题的订阅者；主题的订阅者为null
+     */
+    private final Subscriber<T> parent;
+    private final int priority;
+    /**
+     * 主题的订阅者上设置：拉取策略与下标为优先级的各订阅者（下标0为自身）
+     */
+    private volatile PriorityPolicy priorityPolicy;
+    private volatile List<Subscriber<T>> priorityLanes;
+    /**
+     * 最近一次拉取是否没有新消息，严格优先级据此判断能否拉取低优先级
+     */
+    private volatile boolean drained = true;
 
-    public Subscriber(String topic, RedissonClient redissonClient, PullConsumerClient pullConsumerClient) {
+    public Subscriber(String topic, PullConsumerClient pullConsumerClient, WeightedFairDispatcher.Lane lane) {
+        this(topic, pullConsumerClient, lane, null, 0);
+    }
+
+    Subscriber(String topic, PullConsumerClient pullConsumerClient, WeightedFairDispatcher.Lane lane, Subscriber<T> parent, int priority) {
         this.topicName = topic;
-        initStream(redissonClient);
-        this.redissonClient = redissonClient;
         this.pullConsumerClient = pullConsumerClient;
+        this.lane = lane;
+        this.parent = parent;
+        this.priority = priority;
     }
 
     private Class<?> getSuperClassGenericType(final Class<?> clazz, final int index) {
@@ -43,14 +105,74 @@ public class Subscriber<T> {
         return (Class<?>) params[index];
     }
 
+    /**
+     * 消息类型：优先使用显式指定的类型，否则从监听器的泛型父类推断
+     */
+    @SuppressWarnings("unchecked")
     public Class<T> getMsgClass() {
-        return (Class<T>) getSuperClassGenericType(getClass(), 0);
+        if (parent != null) {
+            return parent.getMsgClass();
+        }
+        Class<T> clazz = msgClass;
+        if (clazz != null) {
+            return clazz;
+        }
+        Class<?> resolved = getSuperClassGenericType(getClass(), 0);
+        for (MsgListener<T> listener : listeners) {
+            if (resolved != Object.class) {
+                break;
+            }
+            resolved = getSuperClassGenericType(listener.getClass(), 0);
+        }
+        clazz = (Class<T>) resolved;
+        if (!listeners.isEmpty()) {
+            msgClass = clazz;
+        }
+        return clazz;
+    }
+
+    public Subscriber<T> setMsgClass(Class<T> msgClass) {
+        this.msgClass = msgClass;
+        return this;
+    }
+
+    /**
+     * 设置过滤条件，不满足条件的消息不解码、不交给监听器，拉取后直接批量ACK
+     *
+     * @param filter 过滤条件，null表示不过滤
+     * @author Barry
+     * @since 2026/10/18 22:20
+     **/
+    public Subscriber<T> setFilter(MessageFilter filter) {
+        this.filter = filter;
+        return this;
+    }
+
+    /**
+     * 按标签过滤，表达式见MessageFilter.tags
+     *
+     * @param expression 例如"created || paid"
+     * @author Barry
+     * @since 2026/10/18 22:20
+     **/
+    public Subscriber<T> setTagFilter(String expression) {
+        return setFilter(MessageFilter.tags(expression));
     }
 
-    private void initStream(RedissonClient client) {
-        if (stream == null) {
-            stream = client.getStream(topicName);
+    boolean hasFilter() {
+        return owner().filter != null;
+    }
+
+    /**
+     * 按保留字段判断是否接受该消息，不解码消息体
+     */
+    boolean accept(Map<Object, Object> fields) {
+        MessageFilter current = owner().filter;
+        if (current == null) {
+            return true;
         }
+        Object tag = fields.get(Message.TAG_FIELD);
+        return current.accept(tag == null ? null : tag.toString(), Message.headersOf(fields));
     }
 
     public Subscriber<T> registerListener(MsgListener<T> listener) {
@@ -58,12 +180,301 @@ public class Subscriber<T> {
         return this;
     }
 
+    /**
+     * 注册消息视图监听器，只注册了视图监听器的订阅不构建消息Bean
+     *
+     * @author Barry
+     * @since 2026/10/18 22:50
+     **/
+    public Subscriber<T> registerViewListener(MessageViewListener listener) {
+        viewListeners.add(listener);
+        return this;
+    }
+
+    /**
+     * 是否有需要消息Bean的监听器
+     */
+    boolean hasBeanListeners() {
+        return !owner().listeners.isEmpty();
+    }
+
+    boolean hasViewListeners() {
+        return !owner().viewListeners.isEmpty();
+    }
+
+    /**
+     * 开启优先级：按策略的优先级个数订阅主题的各优先级子stream（优先级p的消息写入Message.streamOf(topic, p)），
+     * 各子stream使用同一组监听器，但ACK、PendingList、死信与指标分别处理；只能设置一次
+     *
+     * @param policy 严格优先级或加权优先级
+     * @author Barry
+     * @since 2026/10/19 11:40
+     **/
+    public synchronized Subscriber<T> setPriorities(PriorityPolicy policy) {
+        if (parent != null) {
+            throw new IllegalStateException("priorities must be set on the topic subscriber");
+        }
+        if (priorityLanes != null) {
+            throw new IllegalStateException("priorities of " + topicName + " already set");
+        }
+        List<Subscriber<T>> lanes = new ArrayList<>(policy.getLevels());
+        lanes.add(this);
+        for (int p = 1; p < policy.getLevels(); p++) {
+            Subscriber<T> child = pullConsumerClient.subscribePriority(this, p);
+            child.setPrefetch(prefetch);
+            // 限流按整个主题计算，各优先级共用令牌桶
+            child.messageLimiter = messageLimiter;
+            child.byteLimiter = byteLimiter;
+            child.lane.setMaxConcurrency(lane.getMaxConcurrency());
+            lanes.add(child);
+        }
+        for (int p = 0; p < lanes.size(); p++) {
+            lanes.get(p).lane.setWeight(policy.weightOf(p));
+        }
+        this.priorityPolicy = policy;
+        this.priorityLanes = lanes;
+        return this;
+    }
+
+    public PriorityPolicy getPriorityPolicy() {
+        return owner().priorityPolicy;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * 严格优先级下，所有更高优先级的子stream都已拉空且本地没有待分发的消息时才允许拉取
+     */
+    boolean mayFetch() {
+        Subscriber<T> owner = owner();
+        PriorityPolicy policy = owner.priorityPolicy;
+        if (policy == null || !policy.isStrict()) {
+            return true;
+        }
+        List<Subscriber<T>> lanes = owner.priorityLanes;
+        for (int p = priority + 1; p < lanes.size(); p++) {
+            Subscriber<T> higher = lanes.get(p);
+            if (!higher.drained || higher.lane.backlog() > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void setDrained(boolean drained) {
+        this.drained = drained;
+    }
+
+    private Subscriber<T> owner() {
+        return parent == null ? this : parent;
+    }
+
+    /**
+     * 本订阅者及其优先级子stream的订阅者
+     */
+    private List<Subscriber<T>> lanes() {
+        List<Subscriber<T>> lanes = priorityLanes;
+        return lanes == null ? Collections.singletonList(this) : lanes;
+    }
+
+    /**
+     * 设置订阅权重，权重越大每轮拉取与分发的份额越多
+     *
+     * @param weight 权重（正整数，默认1）
+     * @author Barry
+     * @since 2026/10/18 10:40
+     **/
+    public Subscriber<T> setWeight(int weight) {
+        lane.setWeight(weight);
+        return this;
+    }
+
+    /**
+     * 设置该订阅同时执行的监听任务上限
+     *
+     * @param maxConcurrency 并发上限（0表示不限制）
+     * @author Barry
+     * @since 2026/10/18 10:40
+     **/
+    public Subscriber<T> setMaxConcurrency(int maxConcurrency) {
+        for (Subscriber<T> subscriber :
+                lanes()) {
+            subscriber.lane.setMaxConcurrency(maxConcurrency);
+        }
+        return this;
+    }
+
+    /**
+     * 开启预取：处理当前批次时即发起下一次拉取，在途消息（即本消费者PendingList中的消息）不超过prefetch条
+     *
+     * @param prefetch 预取上限（0表示关闭，按拉取周期拉取）
+     * @author Barry
+     * @since 2026/10/18 13:20
+     **/
+    public Subscriber<T> setPrefetch(int prefetch) {
+        for (Subscriber<T> subscriber :
+                lanes()) {
+            subscriber.prefetch = Math.max(0, prefetch);
+        }
+        return this;
+    }
+
+    /**
+     * 设置监听器执行超时，超时的执行被放弃（分发线程被替换并中断），该消息按失败处理
+     *
+     * @param timeout 超时时间（0表示使用全局配置executionTimeout）
+     * @author Barry
+     * @since 2026/10/19 10:20
+     **/
+    public Subscriber<T> setExecutionTimeout(long timeout, TimeUnit unit) {
+        this.executionTimeout = Math.max(0, unit.toMillis(timeout));
+        return this;
+    }
+
+    public long getExecutionTimeout() {
+        return owner().executionTimeout;
+    }
+
+    public int getPrefetch() {
+        return prefetch;
+    }
+
+    /**
+     * 设置令牌桶限流，拉取量受剩余令牌约束，突发上限为一秒的量；开启优先级后各优先级共用同一限额
+     *
+     * @param messagesPerSecond 每秒消息数（0表示不限）
+     * @param bytesPerSecond    每秒字节数（0表示不限，按字段内容估算）
+     * @author Barry
+     * @since 2026/10/18 14:05
+     **/
+    public Subscriber<T> setRateLimit(double messagesPerSecond, double bytesPerSecond) {
+        TokenBucket messages = messagesPerSecond > 0 ? new TokenBucket(messagesPerSecond) : null;
+        TokenBucket bytes = bytesPerSecond > 0 ? new TokenBucket(bytesPerSecond) : null;
+        for (Subscriber<T> subscriber :
+                lanes()) {
+            subscriber.messageLimiter = messages;
+            subscriber.byteLimiter = bytes;
+        }
+        return this;
+    }
+
+    /**
+     * 按剩余令牌限制本次拉取条数
+     */
+    int limitFetchCount(int count) {
+        TokenBucket bytes = byteLimiter;
+        if (bytes != null && bytes.available() <= 0) {
+            return 0;
+        }
+        TokenBucket messages = messageLimiter;
+        if (messages != null) {
+            return (int) Math.min(count, messages.available());
+        }
+        return count;
+    }
+
+    /**
+     * 扣除已拉取消息占用的令牌
+     */
+    void consumeRateTokens(Map<StreamMessageId, Map<Object, Object>> fetched) {
+        TokenBucket messages = messageLimiter;
+        if (messages != null) {
+            messages.consume(fetched.size());
+        }
+        TokenBucket bytes = byteLimiter;
+        if (bytes != null) {
+            long size = 0;
+            for (Map<Object, Object> fields :
+                    fetched.values()) {
+                size += FieldCodec.estimateSize(fields);
+            }
+            bytes.consume(size);
+        }
+    }
+
+    public int getWeight() {
+        return lane.getWeight();
+    }
+
+    public SubscriptionMetrics getMetrics() {
+        return metrics;
+    }
+
+    void setMetrics(SubscriptionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    WeightedFairDispatcher.Lane getLane() {
+        return lane;
+    }
+
     public void notify(T dto) {
-        for (MsgListener<T> listener : listeners) {
+        for (MsgListener<T> listener : owner().listeners) {
             listener.consume(dto);
         }
     }
 
+    public void notifyView(MessageView view) {
+        for (MessageViewListener listener : owner().viewListeners) {
+            listener.consume(view);
+        }
+    }
+
+    /**
+     * 消费组从该ID（包含）开始重新投递，同组的所有消费者共享该位置
+     *
+     * @param id 起始ID，ALL表示从头，NEWEST表示跳到末尾
+     * @author Barry
+     * @since 2026/10/18 21:50
+     **/
+    public CompletableFuture<Void> seek(StreamMessageId id) {
+        return pullConsumerClient.seek(topicName, id);
+    }
+
+    /**
+     * 消费组从该时间（包含）之后生产的消息开始重新投递
+     *
+     * @param timestamp 毫秒时间戳
+     * @author Barry
+     * @since 2026/10/18 21:50
+     **/
+    public CompletableFuture<Void> seek(long timestamp) {
+        return pullConsumerClient.seek(topicName, timestamp);
+    }
+
+    public CompletableFuture<Void> seekToBeginning() {
+        return seek(StreamMessageId.ALL);
+    }
+
+    public CompletableFuture<Void> seekToEnd() {
+        return seek(StreamMessageId.NEWEST);
+    }
+
+    /**
+     * 把ID闭区间内的消息重放给指定监听器，不改变消费组位置与PendingList，在调用线程上同步执行
+     *
+     * @return 重放的条数
+     * @author Barry
+     * @since 2026/10/18 21:50
+     **/
+    public long replay(StreamMessageId startId, StreamMessageId endId, MsgListener<T> listener) throws MQClientException {
+        return pullConsumerClient.replay(topicName, startId, endId, getMsgClass(), listener);
+    }
+
+    /**
+     * 把时间闭区间内生产的消息重放给指定监听器
+     *
+     * @param fromTimestamp 起始时间（毫秒时间戳，包含）
+     * @param toTimestamp   结束时间（毫秒时间戳，包含）
+     * @author Barry
+     * @since 2026/10/18 21:50
+     **/
+    public long replay(long fromTimestamp, long toTimestamp, MsgListener<T> listener) throws MQClientException {
+        return pullConsumerClient.replay(topicName, fromTimestamp, toTimestamp, getMsgClass(), listener);
+    }
+
     public <T> Subscriber<T> subscribe(String topic) {
         return pullConsumerClient.subscribe(topic);
     }
@@ -72,7 +483,60 @@ public class Subscriber<T> {
         pullConsumerClient.start();
     }
 
-    public RStream<Object, Object> getStream() {
-        return stream;
+    public void stop() {
+        pullConsumerClient.stop();
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    void acquire(int count) {
+        outstanding.addAndGet(count);
+    }
+
+    int release() {
+        return outstanding.decrementAndGet();
+    }
+
+    AckDeadline track(StreamMessageId id) {
+        return deadlines.computeIfAbsent(id, k -> new AckDeadline());
+    }
+
+    AckDeadline getDeadline(StreamMessageId id) {
+        return deadlines.get(id);
+    }
+
+    boolean isTracked(StreamMessageId id) {
+        return deadlines.containsKey(id);
+    }
+
+    /**
+     * 停止跟踪并取消定时
+     */
+    void untrack(StreamMessageId id) {
+        AckDeadline deadline = deadlines.remove(id);
+        if (deadline != null) {
+            deadline.cancel();
+        }
+    }
+
+    void untrackAll() {
+        for (StreamMessageId id :
+                deadlines.keySet()) {
+            untrack(id);
+        }
+    }
+
+    boolean tryStartFetch() {
+        return fetching.compareAndSet(false, true);
+    }
+
+    void finishFetch() {
+        fetching.set(false);
+    }
+
+    public String getTopicName() {
+        return topicName;
     }
 }
@@ -0,0 +1,346 @@
+package com.flowyun.dolphinmq.consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 按权重公平分发消费任务（Deficit Round Robin）
+ * 每个订阅对应一条Lane，工作线程按权重轮流从各Lane取任务执行，并受每条Lane的并发上限约束，
+ * 避免高流量主题的慢监听器饿死低流量主题
+ *
+ * @author Barry
+ * @since 2026/10/18 10:40
+ */
+@Slf4j
+public class WeightedFairDispatcher {
+    private static final ThreadLocal<Execution> CURRENT = new ThreadLocal<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final List<Lane> lanes = new ArrayList<>();
+    private final int threads;
+    private final List<Thread> workers = new ArrayList<>();
+    private final AtomicInteger threadIndex = new AtomicInteger();
+    private int cursor;
+    private boolean started;
+
+    public WeightedFairDispatcher(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * 注册一条Lane
+     *
+     * @param name Lane名称（主题名）
+     * @return Lane
+     * @author Barry
+     * @since 2026/10/18 10:40
+     **/
+    public Lane addLane(String name) {
+        Lane lane = new Lane(name);
+        lock.lock();
+        try {
+            lanes.add(lane);
+        } finally {
+            lock.unlock();
+        }
+        return lane;
+    }
+
+    /**
+     * 启动工作线程（重复调用无副作用）
+     *
+     * @author Barry
+     * @since 2026/10/18 10:40
+     **/
+    public void start() {
+        lock.lock();
+        try {
+            if (started) {
+                return;
+            }
+            started = true;
+            for (int i = 0; i < threads; i++) {
+                startWorker();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 调用方需持有锁
+     */
+    private void startWorker() {
+        Thread worker = new Thread(this::work, "DolphinMQ-Dispatch-" + threadIndex.incrementAndGet());
+        worker.setDaemon(true);
+        workers.add(worker);
+        worker.start();
+    }
+
+    /**
+     * 当前工作线程正在执行的任务，不在工作线程上调用时返回null
+     *
+     * @author Barry
+     * @since 2026/10/19 10:20
+     **/
+    public Execution current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 停止工作线程，调用前应确保任务已处理完成，停止后可再次start
+     *
+     * @author Barry
+     * @since 2026/10/18 11:30
+     **/
+    public void stop() {
+        List<Thread> stopping;
+        lock.lock();
+        try {
+            if (!started) {
+                return;
+            }
+            started = false;
+            stopping = new ArrayList<>(workers);
+            workers.clear();
+        } finally {
+            lock.unlock();
+        }
+        for (Thread worker :
+                stopping) {
+            worker.interrupt();
+        }
+        for (Thread worker :
+                stopping) {
+            try {
+                worker.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 提交任务到指定Lane
+     *
+     * @param lane 订阅对应的Lane
+     * @param task 消费任务
+     * @author Barry
+     * @since 2026/10/18 10:40
+     **/
+    public void submit(Lane lane, Runnable task) {
+        lock.lock();
+        try {
+            lane.queue.add(task);
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void work() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Lane lane;
+            Runnable task;
+            lock.lock();
+            try {
+                lane = nextLane();
+                while (lane == null) {
+                    available.await();
+                    lane = nextLane();
+                }
+                task = lane.queue.poll();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+            Execution execution = new Execution(Thread.currentThread(), lane);
+            CURRENT.set(execution);
+            try {
+                task.run();
+            } catch (Throwable e) {
+                log.error("Lane {} task failed", lane.name, e);
+            } finally {
+                CURRENT.remove();
+                if (!complete(execution)) {
+                    // 任务已被放弃，本线程已由新线程替换
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * DRR选择下一条可执行的Lane，调用方需持有锁
+     * 选中时已占用一个并发名额
+     */
+    private Lane nextLane() {
+        int size = lanes.size();
+        for (int scanned = 0; scanned <= size; scanned++) {
+            if (cursor >= size) {
+                cursor = 0;
+            }
+            Lane lane = lanes.get(cursor);
+            if (lane.queue.isEmpty()) {
+                lane.deficit = 0;
+                cursor++;
+                continue;
+            }
+            if (lane.isSaturated()) {
+                cursor++;
+                continue;
+            }
+            if (lane.deficit <= 0) {
+                lane.deficit = lane.weight;
+            }
+            lane.deficit--;
+            lane.inFlight++;
+            if (lane.deficit <= 0) {
+                cursor++;
+            }
+            return lane;
+        }
+        return null;
+    }
+
+    /**
+     * @return 任务被放弃时返回false，工作线程应退出
+     */
+    private boolean complete(Execution execution) {
+        lock.lock();
+        try {
+            execution.finished = true;
+            if (execution.abandoned) {
+                return false;
+            }
+            execution.lane.inFlight--;
+            available.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 工作线程上正在执行的一个任务
+     *
+     * @author Barry
+     * @since 2026/10/19 10:20
+     */
+    public final class Execution {
+        private final Thread worker;
+        private final Lane lane;
+        private boolean finished;
+        private boolean abandoned;
+
+        private Execution(Thread worker, Lane lane) {
+            this.worker = worker;
+            this.lane = lane;
+        }
+
+        /**
+         * 放弃仍在执行的任务：释放Lane的并发名额，用新线程替换该工作线程并中断它；
+         * 任务之后返回时线程直接退出，不响应中断的任务会一直占用该线程
+         *
+         * @return 任务已执行完成时返回false
+         * @author Barry
+         * @since 2026/10/19 10:20
+         **/
+        public boolean abandon() {
+            lock.lock();
+            try {
+                if (finished || abandoned) {
+                    return false;
+                }
+                abandoned = true;
+                lane.inFlight--;
+                if (workers.remove(worker) && started) {
+                    startWorker();
+                }
+                available.signal();
+                worker.interrupt();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public Thread getWorker() {
+            return worker;
+        }
+    }
+
+    /**
+     * 订阅的分发通道，权重与并发上限可随时调整
+     */
+    public class Lane {
+        private final String name;
+        private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+        private int weight = 1;
+        /**
+         * 0表示不限制
+         */
+        private int maxConcurrency;
+        private int deficit;
+        private int inFlight;
+
+        private Lane(String name) {
+            this.name = name;
+        }
+
+        private boolean isSaturated() {
+            return maxConcurrency > 0 && inFlight >= maxConcurrency;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+
+        public void setWeight(int weight) {
+            if (weight <= 0) {
+                throw new IllegalArgumentException("weight must be positive");
+            }
+            lock.lock();
+            try {
+                this.weight = weight;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        public void setMaxConcurrency(int maxConcurrency) {
+            lock.lock();
+            try {
+                this.maxConcurrency = Math.max(0, maxConcurrency);
+                available.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 已排队及正在执行的任务数
+         */
+        public int backlog() {
+            lock.lock();
+            try {
+                return queue.size() + inFlight;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
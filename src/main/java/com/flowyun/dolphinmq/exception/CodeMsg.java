@@ -14,6 +14,8 @@ public class CodeMsg {
     public static CodeMsg SUCCESS = new CodeMsg(0, "success");
     public static CodeMsg SERVER_ERROR = new CodeMsg(500100, "服务端异常");
     public static CodeMsg BIND_ERROR = new CodeMsg(500101, "参数校验异常:%s");
+    public static CodeMsg PRODUCER_LAG_EXCEEDED = new CodeMsg(500102, "消费组积压超过阈值，拒绝发送");
+    public static CodeMsg DELAYED_UNSUPPORTED = new CodeMsg(500103, "传输层不支持延迟消息");
 
     /**
      * 消费端
@@ -0,0 +1,21 @@
+package com.flowyun.dolphinmq.exception;
+
+/**
+ * 监听器抛出该异常表示消息本身无法处理（格式错误、业务上不可能成功等），重试也不会成功；
+ * 与解码失败、执行超时一样计入连续失败次数，达到quarantineThreshold后直接转入死信队列。
+ * 其他异常视为暂时性失败（下游不可用等），只按退避时间重试
+ *
+ * @author Barry
+ * @since 2026/10/19 14:20
+ */
+public class PoisonMessageException extends RuntimeException {
+    private static final long serialVersionUID = 4011385562183731742L;
+
+    public PoisonMessageException(String message) {
+        super(message);
+    }
+
+    public PoisonMessageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,36 @@
+package com.flowyun.dolphinmq.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+
+/**
+ * 指标入口
+ * 未配置MeterRegistry时使用Micrometer全局注册表（引入actuator等实现后自动生效）
+ *
+ * @author Barry
+ * @since 2026/10/18 15:10
+ */
+public class DolphinMQMetrics {
+    private final MeterRegistry registry;
+
+    public DolphinMQMetrics(MeterRegistry registry) {
+        this.registry = registry == null ? Metrics.globalRegistry : registry;
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * 创建订阅指标
+     *
+     * @param topic 主题
+     * @param group 消费组
+     * @return 订阅指标
+     * @author Barry
+     * @since 2026/10/18 15:10
+     **/
+    public SubscriptionMetrics forSubscription(String topic, String group) {
+        return new SubscriptionMetrics(registry, topic, group);
+    }
+}
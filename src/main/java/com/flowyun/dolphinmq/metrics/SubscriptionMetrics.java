@@ -0,0 +1,155 @@
+package com.flowyun.dolphinmq.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个订阅（主题+消费组）的指标，创建时注册全部Meter，热路径上只做记录
+ * 延迟类指标使用带百分位直方图的Timer，底层为HdrHistogram Recorder，记录时无锁且不分配对象
+ *
+ * @author Barry
+ * @since 2026/10/18 15:10
+ */
+public class SubscriptionMetrics {
+    private final MeterRegistry registry;
+    private final Tags tags;
+    private final AtomicLong lag = new AtomicLong();
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong oldestPendingAge = new AtomicLong();
+    private final Counter deadLetters;
+    private final Counter claims;
+    private final Counter filtered;
+    private final Counter redeliveries;
+    private final Counter quarantined;
+    private final DistributionSummary fetchBatchSize;
+    private final Timer ackLatency;
+    private final Timer queueWait;
+    private final Timer listenerExecution;
+    private final Timer fetchToAck;
+
+    SubscriptionMetrics(MeterRegistry registry, String topic, String group) {
+        this.registry = registry;
+        this.tags = Tags.of("topic", topic, "group", group);
+        Gauge.builder("dolphinmq.consumer.lag", lag, AtomicLong::get)
+                .description("未投递与未确认的消息数")
+                .tags(tags)
+                .register(registry);
+        Gauge.builder("dolphinmq.consumer.pending", pending, AtomicLong::get)
+                .description("PendingList大小")
+                .tags(tags)
+                .register(registry);
+        Gauge.builder("dolphinmq.consumer.pending.oldest.age", oldestPendingAge, AtomicLong::get)
+                .description("PendingList中最早消息的年龄（毫秒）")
+                .baseUnit("milliseconds")
+                .tags(tags)
+                .register(registry);
+        this.deadLetters = Counter.builder("dolphinmq.consumer.dead.letters")
+                .description("转入死信队列的消息数")
+                .tags(tags)
+                .register(registry);
+        this.claims = Counter.builder("dolphinmq.consumer.claims")
+                .description("认领的消息数")
+                .tags(tags)
+                .register(registry);
+        this.filtered = Counter.builder("dolphinmq.consumer.filtered")
+                .description("被订阅过滤条件丢弃（直接ACK）的消息数")
+                .tags(tags)
+                .register(registry);
+        this.redeliveries = Counter.builder("dolphinmq.consumer.redeliveries")
+                .description("ACK截止或重试时间到期后由本地定时器重新投递的消息数")
+                .tags(tags)
+                .register(registry);
+        this.quarantined = Counter.builder("dolphinmq.consumer.quarantined")
+                .description("连续失败达到隔离门槛、直接转入死信队列的消息数")
+                .tags(tags)
+                .register(registry);
+        this.fetchBatchSize = DistributionSummary.builder("dolphinmq.consumer.fetch.batch.size")
+                .description("每次拉取到的消息数")
+                .tags(tags)
+                .register(registry);
+        this.ackLatency = latencyTimer("dolphinmq.consumer.ack.latency", "ACK往返耗时");
+        this.queueWait = latencyTimer("dolphinmq.consumer.queue.wait", "从生产（消息ID中的时间）到监听器开始执行的耗时");
+        this.listenerExecution = latencyTimer("dolphinmq.consumer.listener.execution", "监听器执行耗时");
+        this.fetchToAck = latencyTimer("dolphinmq.consumer.fetch.to.ack", "从拉取到ACK完成的耗时");
+    }
+
+    private Timer latencyTimer(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    public void updateLag(long value) {
+        lag.set(value);
+    }
+
+    public void updatePending(long count, long oldestAgeMillis) {
+        pending.set(count);
+        oldestPendingAge.set(oldestAgeMillis);
+    }
+
+    public void deadLetter() {
+        deadLetters.increment();
+    }
+
+    public void claimed(int count) {
+        claims.increment(count);
+    }
+
+    public void redelivered(int count) {
+        redeliveries.increment(count);
+    }
+
+    public void quarantined() {
+        quarantined.increment();
+    }
+
+    public void filtered(int count) {
+        filtered.increment(count);
+    }
+
+    public void fetched(int batchSize) {
+        fetchBatchSize.record(batchSize);
+    }
+
+    public void acked(long nanos) {
+        ackLatency.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param producedAtMillis 生产时间（毫秒时间戳）
+     * @param nowMillis        当前时间（毫秒时间戳）
+     */
+    public void queueWait(long producedAtMillis, long nowMillis) {
+        queueWait.record(Math.max(0, nowMillis - producedAtMillis), TimeUnit.MILLISECONDS);
+    }
+
+    public void listenerExecuted(long nanos) {
+        listenerExecution.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void fetchToAck(long nanos) {
+        fetchToAck.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录错误，按阶段区分（fetch、pending、consume、dead-letter、claim、ack）
+     *
+     * @param stage 出错阶段
+     * @author Barry
+     * @since 2026/10/18 15:10
+     **/
+    public void error(String stage) {
+        registry.counter("dolphinmq.consumer.errors", tags.and("stage", stage)).increment();
+    }
+}
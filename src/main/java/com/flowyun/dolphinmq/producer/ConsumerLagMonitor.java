@@ -0,0 +1,84 @@
+package com.flowyun.dolphinmq.producer;
+
+import com.flowyun.dolphinmq.common.DolphinMQConfig;
+import com.flowyun.dolphinmq.transport.Transport;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 生产端的消费积压监控
+ * 后台按producerLagCheckPeriod周期刷新发送过的主题的积压量，发送路径只读取缓存值
+ *
+ * @author Barry
+ * @since 2026/10/18 14:05
+ */
+@Slf4j
+public class ConsumerLagMonitor {
+    private final Transport transport;
+    private final DolphinMQConfig config;
+    private final Map<String, Long> lags = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    public ConsumerLagMonitor(Transport transport, DolphinMQConfig config) {
+        this.transport = transport;
+        this.config = config;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "DolphinMQ-LagMonitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refresh,
+                config.getProducerLagCheckPeriod(),
+                config.getProducerLagCheckPeriod(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 获取主题最近一次统计的积压量，首次访问的主题返回0并开始监控
+     *
+     * @param topic 主题
+     * @return 积压条数
+     * @author Barry
+     * @since 2026/10/18 14:05
+     **/
+    public long lag(String topic) {
+        Long lag = lags.get(topic);
+        if (lag == null) {
+            lags.putIfAbsent(topic, 0L);
+            return 0L;
+        }
+        return lag;
+    }
+
+    /**
+     * 在监控线程上延迟执行任务
+     *
+     * @author Barry
+     * @since 2026/10/18 14:05
+     **/
+    public void schedule(Runnable task, long delayMillis) {
+        scheduler.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    private void refresh() {
+        long cap = config.getProducerLagThreshold() + 1L;
+        for (String topic :
+                lags.keySet()) {
+            transport.lag(topic, null, cap)
+                    .thenAccept(lag -> lags.put(topic, lag))
+                    .exceptionally(exception -> {
+                        log.info("refresh lag of {} error:{}", topic, exception.getMessage());
+                        return null;
+                    });
+        }
+    }
+}
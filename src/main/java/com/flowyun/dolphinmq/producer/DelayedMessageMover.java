@@ -0,0 +1,110 @@
+package com.flowyun.dolphinmq.producer;
+
+import com.flowyun.dolphinmq.common.DolphinMQConfig;
+import com.flowyun.dolphinmq.common.SequenceUtil;
+import com.flowyun.dolphinmq.common.SystemClock;
+import com.flowyun.dolphinmq.transport.DelayedMessage;
+import com.flowyun.dolphinmq.transport.Transport;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 把到期的延迟消息批量投递到目标主题
+ * 每个delayedMovePeriod周期竞选搬运角色（租约为三个周期），只有持有者搬运；每批按投递时间顺序读取delayedBatchSize条，
+ * 追加到主题（重新生成消息ID）后删除，追加失败的消息留待下个周期重试，即至少投递一次
+ *
+ * @author Barry
+ * @since 2026/10/19 11:10
+ */
+@Slf4j
+public class DelayedMessageMover {
+    static final String ROLE = "delayed-mover";
+
+    private final Transport transport;
+    private final DolphinMQConfig config;
+    private final String owner = UUID.randomUUID().toString();
+    private final ScheduledExecutorService scheduler;
+
+    public DelayedMessageMover(Transport transport, DolphinMQConfig config) {
+        this.transport = transport;
+        this.config = config;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "DolphinMQ-DelayedMessageMover");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::moveAll,
+                config.getDelayedMovePeriod(),
+                config.getDelayedMovePeriod(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    private void moveAll() {
+        try {
+            if (lead()) {
+                move(SystemClock.now());
+            }
+        } catch (Exception e) {
+            log.info("move delayed messages error:{}", e.getMessage());
+        }
+    }
+
+    private boolean lead() {
+        return transport.tryLead(ROLE, owner, config.getDelayedMovePeriod() * 3L).join();
+    }
+
+    /**
+     * 投递投递时间不晚于now的消息，一个周期内搬运不完时续租后继续，失去租约时停止
+     *
+     * @return 投递的条数
+     * @author Barry
+     * @since 2026/10/19 11:10
+     **/
+    long move(long now) {
+        int batchSize = Math.max(1, config.getDelayedBatchSize());
+        long renewAt = SystemClock.now() + config.getDelayedMovePeriod();
+        long moved = 0;
+        while (true) {
+            List<DelayedMessage> due = transport.pollDue(now, batchSize).join();
+            if (due.isEmpty()) {
+                return moved;
+            }
+            List<CompletableFuture<Void>> appends = new ArrayList<>(due.size());
+            for (DelayedMessage message :
+                    due) {
+                appends.add(transport.append(message.getTopic(), SequenceUtil.nextMessageId(), message.getFields(), 0));
+            }
+            List<DelayedMessage> delivered = new ArrayList<>(due.size());
+            for (int i = 0; i < due.size(); i++) {
+                try {
+                    appends.get(i).join();
+                    delivered.add(due.get(i));
+                } catch (Exception e) {
+                    log.info("deliver delayed message {} error:{}", due.get(i), e.getMessage());
+                }
+            }
+            transport.removeDelayed(delivered).join();
+            moved += delivered.size();
+            if (due.size() < batchSize || delivered.isEmpty()) {
+                return moved;
+            }
+            if (SystemClock.now() >= renewAt) {
+                if (!lead()) {
+                    return moved;
+                }
+                renewAt = SystemClock.now() + config.getDelayedMovePeriod();
+            }
+        }
+    }
+}
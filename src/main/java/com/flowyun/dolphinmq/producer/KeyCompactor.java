@@ -0,0 +1,157 @@
+package com.flowyun.dolphinmq.producer;
+
+import com.flowyun.dolphinmq.common.DolphinMQConfig;
+import com.flowyun.dolphinmq.common.Message;
+import com.flowyun.dolphinmq.common.RetentionPolicy;
+import com.flowyun.dolphinmq.common.SequenceUtil;
+import com.flowyun.dolphinmq.common.SystemClock;
+import com.flowyun.dolphinmq.transport.Transport;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.StreamMessageId;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按消息键压缩主题：每个消息键只保留最新的一条，墓碑消息超过保留时长后连同墓碑一起删除
+ * <p>
+ * 每个周期从上次读到的位置继续读取至多compactionScanSize条，在内存中维护消息键到最新消息ID的映射；
+ * 被同键新消息取代的旧消息在低于消费组低水位（所有消费组都已确认）后按ID逐条删除（XDEL），
+ * 不重写stream，不阻塞生产者与消费组。同一主题只由竞选到压缩角色的实例执行，切换实例后从头重新读取
+ * </p>
+ *
+ * @author Barry
+ * @since 2026/10/19 12:40
+ */
+@Slf4j
+public class KeyCompactor {
+    static final String ROLE_PREFIX = "compactor:";
+    private static final Comparator<StreamMessageId> ORDER = Comparator
+            .comparingLong(StreamMessageId::getId0)
+            .thenComparingLong(StreamMessageId::getId1);
+    /**
+     * 每条XDEL最多删除的条数
+     */
+    private static final int REMOVE_BATCH_SIZE = 500;
+
+    private final Transport transport;
+    private final DolphinMQConfig config;
+    private final String owner = UUID.randomUUID().toString();
+    private final Map<String, State> states = new ConcurrentHashMap<>();
+
+    public KeyCompactor(Transport transport, DolphinMQConfig config) {
+        this.transport = transport;
+        this.config = config;
+    }
+
+    /**
+     * 压缩一次
+     *
+     * @param leaseMillis 压缩角色的租约时长，应大于压缩周期
+     * @return 删除的条数
+     * @author Barry
+     * @since 2026/10/19 12:40
+     **/
+    public long compact(String topic, RetentionPolicy policy, long leaseMillis) {
+        if (!transport.tryLead(ROLE_PREFIX + topic, owner, leaseMillis).join()) {
+            // 其他实例在压缩，交回角色时从头重新读取
+            states.remove(topic);
+            return 0;
+        }
+        State state = states.computeIfAbsent(topic, k -> new State());
+        scan(topic, state);
+        StreamMessageId watermark = transport.lowWatermark(topic).join();
+        List<StreamMessageId> removable = new ArrayList<>();
+        // 没有消费组时没有需要保护的消息
+        NavigableSet<StreamMessageId> superseded = watermark == null
+                ? state.superseded
+                : state.superseded.headSet(watermark, false);
+        removable.addAll(superseded);
+        superseded.clear();
+        long expireBefore = SystemClock.now() - policy.getTombstoneRetentionMillis();
+        NavigableMap<StreamMessageId, String> tombstones = watermark == null
+                ? state.tombstones
+                : state.tombstones.headMap(watermark, false);
+        for (Iterator<Map.Entry<StreamMessageId, String>> it = tombstones.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<StreamMessageId, String> tombstone = it.next();
+            if (SequenceUtil.timestampOf(tombstone.getKey()) >= expireBefore) {
+                break;
+            }
+            removable.add(tombstone.getKey());
+            state.latest.remove(tombstone.getValue());
+            it.remove();
+        }
+        return remove(topic, removable);
+    }
+
+    /**
+     * 读取新写入的消息，更新每个消息键的最新消息
+     */
+    private void scan(String topic, State state) {
+        int budget = Math.max(1, config.getCompactionScanSize());
+        int batchSize = Math.min(budget, Math.max(1, config.getRetentionBatchSize()));
+        while (budget > 0) {
+            StreamMessageId from = state.scanned == null
+                    ? StreamMessageId.MIN
+                    : new StreamMessageId(state.scanned.getId0(), state.scanned.getId1() + 1);
+            Map<StreamMessageId, Map<Object, Object>> batch = transport.range(topic, from, StreamMessageId.MAX,
+                    Math.min(budget, batchSize)).join();
+            for (Map.Entry<StreamMessageId, Map<Object, Object>> entry :
+                    batch.entrySet()) {
+                StreamMessageId id = entry.getKey();
+                state.scanned = id;
+                Object key = entry.getValue().get(Message.KEY_FIELD);
+                if (key == null) {
+                    continue;
+                }
+                StreamMessageId previous = state.latest.put(key.toString(), id);
+                if (previous != null) {
+                    state.superseded.add(previous);
+                    state.tombstones.remove(previous);
+                }
+                if (entry.getValue().containsKey(Message.TOMBSTONE_FIELD)) {
+                    state.tombstones.put(id, key.toString());
+                }
+            }
+            budget -= batch.size();
+            if (batch.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    private long remove(String topic, List<StreamMessageId> ids) {
+        long removed = 0;
+        for (int from = 0; from < ids.size(); from += REMOVE_BATCH_SIZE) {
+            List<StreamMessageId> chunk = ids.subList(from, Math.min(ids.size(), from + REMOVE_BATCH_SIZE));
+            removed += transport.remove(topic, chunk.toArray(new StreamMessageId[0])).join();
+        }
+        if (removed > 0) {
+            log.debug("compact {} removed {} messages", topic, removed);
+        }
+        return removed;
+    }
+
+    /**
+     * 单个主题的压缩进度，只由裁剪线程访问
+     */
+    private static final class State {
+        private final Map<String, StreamMessageId> latest = new HashMap<>();
+        private final NavigableSet<StreamMessageId> superseded = new TreeSet<>(ORDER);
+        /**
+         * 仍是该键最新消息的墓碑
+         */
+        private final NavigableMap<StreamMessageId, String> tombstones = new TreeMap<>(ORDER);
+        private StreamMessageId scanned;
+    }
+}
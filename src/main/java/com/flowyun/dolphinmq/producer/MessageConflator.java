@@ -0,0 +1,190 @@
+package com.flowyun.dolphinmq.producer;
+
+import com.flowyun.dolphinmq.common.Message;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 按消息键合并发送：每个stream的第一条消息到达后等待一个合并窗口，窗口内同一个键只保留最新的一条，到期后一起发送
+ * <p>
+ * 被替换的消息与替换它的消息共用同一个发送结果；窗口内的消息按各键最后一次更新的顺序发送，
+ * 发送的是重新生成消息ID的副本（不修改调用方的消息），保证晚于窗口内直接发送的消息；停止后放入的消息以RejectedExecutionException结束；每个stream注册dolphinmq.producer.conflation.offered
+ * 与dolphinmq.producer.conflated两个计数器
+ * </p>
+ *
+ * @author Barry
+ * @since 2026/10/19 12:10
+ */
+@Slf4j
+public class MessageConflator {
+    private final Function<Message, CompletableFuture<Void>> sender;
+    private final MeterRegistry registry;
+    private final Map<String, Buffer> buffers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param sender   实际发送消息
+     * @param registry 注册计数器的注册表
+     */
+    public MessageConflator(Function<Message, CompletableFuture<Void>> sender, MeterRegistry registry) {
+        this.sender = sender;
+        this.registry = registry;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "DolphinMQ-Conflator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 放入合并窗口
+     *
+     * @param stream       消息写入的stream
+     * @param msg          带消息键的消息
+     * @param lingerMillis 合并窗口（毫秒）
+     * @return 发送结果，被同键的新消息替换时为新消息的发送结果
+     * @author Barry
+     * @since 2026/10/19 12:10
+     **/
+    public CompletableFuture<Void> offer(String stream, Message msg, long lingerMillis) {
+        Buffer buffer = buffers.computeIfAbsent(stream, this::newBuffer);
+        buffer.offered.increment();
+        synchronized (buffer) {
+            Pending pending = buffer.latest.remove(msg.getKey());
+            if (pending != null) {
+                pending.message = msg;
+                buffer.conflated.increment();
+            } else {
+                pending = new Pending(msg);
+            }
+            // 按最后一次更新的顺序发送
+            buffer.latest.put(msg.getKey(), pending);
+            if (!buffer.scheduled) {
+                try {
+                    scheduler.schedule(() -> flush(buffer), lingerMillis, TimeUnit.MILLISECONDS);
+                    buffer.scheduled = true;
+                } catch (RejectedExecutionException e) {
+                    // 已停止，窗口中的消息不会再发送
+                    for (Pending rejected :
+                            buffer.latest.values()) {
+                        rejected.future.completeExceptionally(e);
+                    }
+                    buffer.latest.clear();
+                }
+            }
+            return pending.future;
+        }
+    }
+
+    /**
+     * 放入合并窗口的消息数
+     */
+    public long getOffered(String stream) {
+        Buffer buffer = buffers.get(stream);
+        return buffer == null ? 0 : buffer.offered.sum();
+    }
+
+    /**
+     * 被同键的新消息替换、没有发送的消息数
+     */
+    public long getConflated(String stream) {
+        Buffer buffer = buffers.get(stream);
+        return buffer == null ? 0 : buffer.conflated.sum();
+    }
+
+    /**
+     * 立即发送所有窗口中的消息并停止
+     *
+     * @author Barry
+     * @since 2026/10/19 12:10
+     **/
+    public void stop() {
+        scheduler.shutdownNow();
+        for (Buffer buffer :
+                buffers.values()) {
+            flush(buffer);
+        }
+    }
+
+    private Buffer newBuffer(String stream) {
+        Buffer buffer = new Buffer(stream);
+        FunctionCounter.builder("dolphinmq.producer.conflation.offered", buffer.offered, LongAdder::sum)
+                .description("放入合并窗口的消息数")
+                .tags("topic", stream)
+                .register(registry);
+        FunctionCounter.builder("dolphinmq.producer.conflated", buffer.conflated, LongAdder::sum)
+                .description("被同键的新消息替换、没有发送的消息数")
+                .tags("topic", stream)
+                .register(registry);
+        return buffer;
+    }
+
+    private void flush(Buffer buffer) {
+        List<Pending> batch;
+        synchronized (buffer) {
+            buffer.scheduled = false;
+            if (buffer.latest.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(buffer.latest.values());
+            buffer.latest.clear();
+        }
+        for (Pending pending :
+                batch) {
+            Message msg = pending.message.copy();
+            try {
+                sender.apply(msg).whenComplete((res, ex) -> {
+                    if (ex != null) {
+                        pending.future.completeExceptionally(ex);
+                    } else {
+                        pending.future.complete(res);
+                    }
+                });
+            } catch (RuntimeException e) {
+                log.info("send conflated message of {} error:{}", buffer.stream, e.getMessage());
+                pending.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * 单个stream的合并窗口
+     */
+    private static final class Buffer {
+        private final String stream;
+        private final LinkedHashMap<String, Pending> latest = new LinkedHashMap<>();
+        private final LongAdder offered = new LongAdder();
+        private final LongAdder conflated = new LongAdder();
+        private boolean scheduled;
+
+        private Buffer(String stream) {
+            this.stream = stream;
+        }
+    }
+
+    /**
+     * 窗口中某个键的最新消息
+     */
+    private static final class Pending {
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private Message message;
+
+        private Pending(Message message) {
+            this.message = message;
+        }
+    }
+}
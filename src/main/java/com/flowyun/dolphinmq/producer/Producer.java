@@ -1,18 +1,34 @@
 package com.flowyun.dolphinmq.producer;
 
+import com.flowyun.dolphinmq.archive.ArchiveStore;
+import com.flowyun.dolphinmq.archive.StreamArchiver;
 import com.flowyun.dolphinmq.common.DolphinMQConfig;
+import com.flowyun.dolphinmq.common.LagPolicy;
 import com.flowyun.dolphinmq.common.Message;
+import com.flowyun.dolphinmq.common.RetentionPolicy;
+import com.flowyun.dolphinmq.common.SystemClock;
+import com.flowyun.dolphinmq.exception.CodeMsg;
+import com.flowyun.dolphinmq.exception.MQClientException;
+import com.flowyun.dolphinmq.transport.ClaimCheck;
+import com.flowyun.dolphinmq.transport.RedisTransport;
+import com.flowyun.dolphinmq.transport.Transport;
 import com.flowyun.dolphinmq.utils.BeanMapUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import io.netty.util.internal.StringUtil;
 import lombok.extern.slf4j.Slf4j;
-import org.redisson.api.RFuture;
-import org.redisson.api.RStream;
 import org.redisson.api.RedissonClient;
-import org.redisson.api.stream.StreamAddArgs;
-import org.redisson.api.stream.TrimStrategy;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
 /**
  * 生产者基类
  *
@@ -21,13 +37,41 @@ import org.springframework.stereotype.Component;
  */
 @Slf4j
 @Component
-public class Producer {
-    private RedissonClient client;
+public class Producer implements DisposableBean {
+    /**
+     * 传输层，设置RedissonClient时默认使用Redis Stream
+     */
+    private Transport transport;
     /**
      * 超过了该长度stream前面部分会被持久化（非严格模式——MAXLEN~）
      */
 
     private DolphinMQConfig config;
+    /**
+     * 开启积压限流（producerLagThreshold > 0）时懒加载
+     */
+    private volatile ConsumerLagMonitor lagMonitor;
+    /**
+     * 首次发送时懒加载
+     */
+    private volatile RetentionTrimmer retentionTrimmer;
+    /**
+     * 首次发送延迟消息或调用startDelayedMover时懒加载
+     */
+    private volatile DelayedMessageMover delayedMessageMover;
+    /**
+     * 开启合并发送的主题及其合并窗口（毫秒）
+     */
+    private final Map<String, Long> conflationLingers = new ConcurrentHashMap<>();
+    /**
+     * 首次设置合并发送时懒加载
+     */
+    private volatile MessageConflator conflator;
+    /**
+     * 首次发送时懒加载
+     */
+    private volatile ClaimCheck claimCheck;
+    private MeterRegistry meterRegistry;
 
     @Autowired
     public void setConfig(DolphinMQConfig config) {
@@ -35,7 +79,69 @@ public class Producer {
     }
 
     public void setClient(RedissonClient client) {
-        this.client = client;
+        this.transport = new RedisTransport(client);
+    }
+
+    /**
+     * 生产端指标的注册表，未设置时使用Micrometer全局注册表
+     */
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 指定传输层，例如同一JVM内收发时使用InMemoryTransport
+     *
+     * @throws UnsupportedOperationException 设置了claimCheckThreshold但传输层不支持另存消息体
+     */
+    public void setTransport(Transport transport) {
+        this.transport = transport;
+        // 已有配置时立即创建，不支持的组合在设置时即失败，而不是等到首次发送
+        this.claimCheck = config == null ? null : new ClaimCheck(transport, config);
+    }
+
+    /**
+     * 设置主题的保留策略，未设置的主题按trimThreshold、retentionMaxAge、retentionKeepUndelivered组成的默认策略裁剪
+     * 须在设置传输层之后调用
+     *
+     * @param topic  主题
+     * @param policy 保留策略
+     * @author Barry
+     * @since 2026/10/18 21:10
+     **/
+    public void setRetentionPolicy(String topic, RetentionPolicy policy) {
+        getRetentionTrimmer().setPolicy(topic, policy);
+    }
+
+    /**
+     * 开启主题的合并发送：设置了消息键的消息先进入合并窗口，窗口内同一个键只发送最新的一条，适合只关心每个键最新状态的主题
+     * 合并后的消息在窗口到期时发送，发送时重新生成消息ID；没有消息键的消息不受影响
+     *
+     * @param topic  主题
+     * @param linger 合并窗口，不大于0时关闭合并发送
+     * @author Barry
+     * @since 2026/10/19 12:10
+     **/
+    public void setConflation(String topic, long linger, TimeUnit unit) {
+        long lingerMillis = unit.toMillis(linger);
+        if (lingerMillis <= 0) {
+            conflationLingers.remove(topic);
+            return;
+        }
+        getConflator();
+        conflationLingers.put(topic, lingerMillis);
+    }
+
+    /**
+     * 被同键的新消息替换、没有发送的消息数
+     *
+     * @param stream 主题（优先级子stream单独计数）
+     * @author Barry
+     * @since 2026/10/19 12:10
+     **/
+    public long getConflatedCount(String stream) {
+        MessageConflator current = conflator;
+        return current == null ? 0 : current.getConflated(stream);
     }
 
     public Producer() {
@@ -44,29 +150,247 @@ public class Producer {
 
 
     /**
-     * 异步发送消息到Redis
+     * 异步发送消息
+     * 开启积压限流后，消息写入的（优先级）stream任一消费组积压超过producerLagThreshold时按producerLagPolicy延迟或拒绝发送；
+     * 开启合并发送的主题上带消息键的消息先进入合并窗口
      *
      * @param msg 消息
+     * @return 发送结果，被拒绝时以MQClientException结束
      * @author Barry
      * @since 2021/6/28 15:38
      **/
-    public void sendMessageAsync(Message msg) {
+    public CompletableFuture<Void> sendMessageAsync(Message msg) {
+        if (StringUtil.isNullOrEmpty(msg.getTopic())) {
+            throw new NullPointerException("Message topic is required");
+        }
+        if (msg.getKey() != null && !conflationLingers.isEmpty()) {
+            Long linger = conflationLingers.get(msg.getTopic());
+            if (linger != null) {
+                return conflator.offer(Message.streamOf(msg.getTopic(), msg.getPriority()), msg, linger);
+            }
+        }
+        return sendThrottled(msg);
+    }
+
+    /**
+     * 按积压限流发送
+     */
+    private CompletableFuture<Void> sendThrottled(Message msg) {
+        if (config.getProducerLagThreshold() <= 0) {
+            return send(msg);
+        }
+        ConsumerLagMonitor monitor = getLagMonitor();
+        if (monitor.lag(Message.streamOf(msg.getTopic(), msg.getPriority())) <= config.getProducerLagThreshold()) {
+            return send(msg);
+        }
+        if (config.getProducerLagPolicy() == LagPolicy.REJECT) {
+            return CompletableFuture.failedFuture(new MQClientException(CodeMsg.PRODUCER_LAG_EXCEEDED));
+        }
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        sendWhenLagRecovered(msg, result, SystemClock.now() + config.getProducerMaxDelayMillis());
+        return result;
+    }
+
+    /**
+     * 异步发送延迟消息，延迟到期后投递到主题
+     *
+     * @param msg   消息
+     * @param delay 延迟，不大于0时立即发送
+     * @return 延迟消息保存结果
+     * @author Barry
+     * @since 2026/10/19 11:10
+     **/
+    public CompletableFuture<Void> sendMessageAsync(Message msg, long delay, TimeUnit unit) {
+        return sendMessageAtAsync(msg, SystemClock.now() + unit.toMillis(delay));
+    }
+
+    /**
+     * 异步发送定时消息：消息先保存在延迟队列中（Redis为有序集合），到投递时间后由搬运任务批量追加到主题，投递时重新生成消息ID
+     * 投递精度约为delayedMovePeriod；同一主题的多个实例中只有一个在搬运
+     *
+     * @param msg       消息
+     * @param deliverAt 投递时间（毫秒时间戳），不晚于当前时间时立即发送
+     * @return 延迟消息保存结果，传输层不支持延迟消息时以MQClientException失败
+     * @author Barry
+     * @since 2026/10/19 11:10
+     **/
+    public CompletableFuture<Void> sendMessageAtAsync(Message msg, long deliverAt) {
         if (StringUtil.isNullOrEmpty(msg.getTopic())) {
             throw new NullPointerException("Message topic is required");
         }
-        RStream<Object, Object> stream = client.getStream(msg.getTopic());
-        RFuture<Void> sendMessageFuture =
-                stream.addAsync(
+        if (deliverAt <= SystemClock.now()) {
+            return sendMessageAsync(msg);
+        }
+        if (!transport.supportsDelayed()) {
+            return CompletableFuture.failedFuture(new MQClientException(CodeMsg.DELAYED_UNSUPPORTED));
+        }
+        startDelayedMover();
+        String stream = Message.streamOf(msg.getTopic(), msg.getPriority());
+        getRetentionTrimmer().track(stream);
+        return getClaimCheck().checkIn(stream, msg.getId(), fieldsOf(msg))
+                .thenCompose(fields -> transport.addDelayed(stream, msg.getId(), deliverAt, fields));
+    }
+
+    /**
+     * 启动延迟消息搬运任务（参与搬运角色竞选）；只负责搬运、自身不发送延迟消息的实例可在启动时调用，须在设置传输层之后调用
+     *
+     * @throws UnsupportedOperationException 传输层不支持延迟消息
+     * @author Barry
+     * @since 2026/10/19 11:10
+     **/
+    public void startDelayedMover() {
+        if (!transport.supportsDelayed()) {
+            throw new UnsupportedOperationException("delayed messages are not supported by " + transport.getClass().getSimpleName());
+        }
+        if (delayedMessageMover == null) {
+            synchronized (this) {
+                if (delayedMessageMover == null) {
+                    delayedMessageMover = new DelayedMessageMover(transport, config);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (conflator != null) {
+            conflator.stop();
+        }
+        if (lagMonitor != null) {
+            lagMonitor.stop();
+        }
+        if (retentionTrimmer != null) {
+            retentionTrimmer.stop();
+        }
+        if (delayedMessageMover != null) {
+            delayedMessageMover.stop();
+        }
+    }
+
+    /**
+     * 发送时不裁剪，由后台裁剪线程按主题的保留策略裁剪；设置了优先级的消息写入对应的优先级子stream；
+     * 消息体超过claimCheckThreshold时先另存消息体，stream中只写入引用
+     */
+    private CompletableFuture<Void> send(Message msg) {
+        String stream = Message.streamOf(msg.getTopic(), msg.getPriority());
+        getRetentionTrimmer().track(stream);
+        CompletableFuture<Void> sendMessageFuture = getClaimCheck()
+                .checkIn(stream, msg.getId(), fieldsOf(msg))
+                .thenCompose(fields -> transport.append(
+                        stream,
                         msg.getId(),
-                        StreamAddArgs.entries(BeanMapUtils.getObjectObjectMap(msg.getProperties())).trim(TrimStrategy.MAXLEN, config.getTrimThreshold()));
+                        fields,
+                        0));
         sendMessageFuture.thenAccept(res -> log.debug("stream : {} add message:{} success",
-                msg.getTopic(),
+                stream,
                 msg.getProperties())).exceptionally(exception -> {
             log.debug("stream : {} add message:{} error, exception:{}",
-                    msg.getTopic(),
+                    stream,
                     msg.getProperties(),
                     exception.getMessage());
             return null;
         });
+        return sendMessageFuture;
+    }
+
+    /**
+     * 消息内容加上标签、消息键、消息头保留字段
+     *
+     * @author Barry
+     * @since 2026/10/18 22:20
+     **/
+    private static Map<Object, Object> fieldsOf(Message msg) {
+        // 墓碑消息可以没有消息内容
+        Map<Object, Object> fields = msg.getProperties() == null
+                ? new HashMap<>()
+                : BeanMapUtils.getObjectObjectMap(msg.getProperties());
+        if (msg.getTag() != null) {
+            fields.put(Message.TAG_FIELD, msg.getTag());
+        }
+        if (msg.getKey() != null) {
+            fields.put(Message.KEY_FIELD, msg.getKey());
+        }
+        if (msg.isTombstone()) {
+            fields.put(Message.TOMBSTONE_FIELD, "1");
+        }
+        if (msg.getHeaders() != null) {
+            for (Map.Entry<String, String> header :
+                    msg.getHeaders().entrySet()) {
+                fields.put(Message.HEADER_PREFIX + header.getKey(), header.getValue());
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * 积压回落后再发送，超过截止时间仍未回落则拒绝
+     *
+     * @author Barry
+     * @since 2026/10/18 14:05
+     **/
+    private void sendWhenLagRecovered(Message msg, CompletableFuture<Void> result, long deadline) {
+        lagMonitor.schedule(() -> {
+            if (lagMonitor.lag(Message.streamOf(msg.getTopic(), msg.getPriority())) <= config.getProducerLagThreshold()) {
+                send(msg).whenComplete((res, ex) -> {
+                    if (ex != null) {
+                        result.completeExceptionally(ex);
+                    } else {
+                        result.complete(res);
+                    }
+                });
+            } else if (SystemClock.now() >= deadline) {
+                result.completeExceptionally(new MQClientException(CodeMsg.PRODUCER_LAG_EXCEEDED));
+            } else {
+                sendWhenLagRecovered(msg, result, deadline);
+            }
+        }, config.getProducerLagCheckPeriod());
+    }
+
+    private MessageConflator getConflator() {
+        if (conflator == null) {
+            synchronized (this) {
+                if (conflator == null) {
+                    conflator = new MessageConflator(this::sendThrottled,
+                            meterRegistry == null ? Metrics.globalRegistry : meterRegistry);
+                }
+            }
+        }
+        return conflator;
+    }
+
+    private ClaimCheck getClaimCheck() {
+        if (claimCheck == null) {
+            synchronized (this) {
+                if (claimCheck == null) {
+                    claimCheck = new ClaimCheck(transport, config);
+                }
+            }
+        }
+        return claimCheck;
+    }
+
+    private ConsumerLagMonitor getLagMonitor() {
+        if (lagMonitor == null) {
+            synchronized (this) {
+                if (lagMonitor == null) {
+                    lagMonitor = new ConsumerLagMonitor(transport, config);
+                }
+            }
+        }
+        return lagMonitor;
+    }
+
+    private RetentionTrimmer getRetentionTrimmer() {
+        if (retentionTrimmer == null) {
+            synchronized (this) {
+                if (retentionTrimmer == null) {
+                    StreamArchiver archiver = Boolean.TRUE.equals(config.getArchiveEnabled())
+                            ? new StreamArchiver(transport, new ArchiveStore(Paths.get(config.getArchiveDir())), config)
+                            : null;
+                    retentionTrimmer = new RetentionTrimmer(transport, config, archiver);
+                }
+            }
+        }
+        return retentionTrimmer;
     }
 }
@@ -0,0 +1,187 @@
+package com.flowyun.dolphinmq.producer;
+
+import com.flowyun.dolphinmq.archive.StreamArchiver;
+import com.flowyun.dolphinmq.common.DolphinMQConfig;
+import com.flowyun.dolphinmq.common.RetentionPolicy;
+import com.flowyun.dolphinmq.common.SequenceUtil;
+import com.flowyun.dolphinmq.common.SystemClock;
+import com.flowyun.dolphinmq.transport.Transport;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.StreamMessageId;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 后台按保留策略裁剪主题，发送路径不再携带MAXLEN
+ * 每个retentionPeriod周期对发送过的主题计算裁剪位置（长度、时间、消费组低水位三者综合），再按MINID裁剪；
+ * 开启归档时改为先归档再按ID删除；按键压缩的主题由KeyCompactor在同一线程上压缩
+ *
+ * @author Barry
+ * @since 2026/10/18 21:10
+ */
+@Slf4j
+public class RetentionTrimmer {
+    private final Transport transport;
+    private final DolphinMQConfig config;
+    private final StreamArchiver archiver;
+    private final RetentionPolicy defaultPolicy;
+    private final KeyCompactor compactor;
+    /**
+     * 主题 -> 保留策略
+     */
+    private final Map<String, RetentionPolicy> policies = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param archiver 为null时不归档
+     */
+    public RetentionTrimmer(Transport transport, DolphinMQConfig config, StreamArchiver archiver) {
+        this.transport = transport;
+        this.config = config;
+        this.archiver = archiver;
+        this.defaultPolicy = defaultPolicy(config);
+        this.compactor = new KeyCompactor(transport, config);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "DolphinMQ-RetentionTrimmer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::trimAll,
+                config.getRetentionPeriod(),
+                config.getRetentionPeriod(),
+                TimeUnit.SECONDS);
+    }
+
+    /**
+     * 由配置生成默认策略：trimThreshold、retentionMaxAge、retentionKeepUndelivered
+     */
+    static RetentionPolicy defaultPolicy(DolphinMQConfig config) {
+        RetentionPolicy policy = RetentionPolicy.byLength(Math.max(0, config.getTrimThreshold()));
+        if (config.getRetentionMaxAge() > 0) {
+            policy = policy.withAge(config.getRetentionMaxAge(), TimeUnit.SECONDS);
+        }
+        return Boolean.TRUE.equals(config.getRetentionKeepUndelivered()) ? policy.keepUndelivered() : policy;
+    }
+
+    /**
+     * 登记需要裁剪的主题，未单独设置策略的主题使用默认策略
+     *
+     * @param topic 主题
+     * @author Barry
+     * @since 2026/10/18 21:10
+     **/
+    public void track(String topic) {
+        policies.putIfAbsent(topic, defaultPolicy);
+    }
+
+    /**
+     * 设置主题的保留策略
+     *
+     * @author Barry
+     * @since 2026/10/18 21:10
+     **/
+    public void setPolicy(String topic, RetentionPolicy policy) {
+        policies.put(topic, policy);
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    private void trimAll() {
+        for (Map.Entry<String, RetentionPolicy> entry :
+                policies.entrySet()) {
+            try {
+                trim(entry.getKey(), entry.getValue());
+                if (entry.getValue().isCompact()) {
+                    compactor.compact(entry.getKey(), entry.getValue(), TimeUnit.SECONDS.toMillis(config.getRetentionPeriod() * 3L));
+                }
+                if (archiver != null) {
+                    archiver.purge(entry.getKey());
+                }
+            } catch (Exception e) {
+                log.info("trim {} by {} error:{}", entry.getKey(), entry.getValue(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 按策略裁剪主题
+     *
+     * @return 删除的条数
+     * @author Barry
+     * @since 2026/10/18 21:10
+     **/
+    long trim(String topic, RetentionPolicy policy) throws IOException {
+        // 只按长度裁剪且不归档时直接使用XTRIM MAXLEN，不需要读取消息定位裁剪位置
+        if (archiver == null && !policy.isKeepUndelivered() && policy.getMaxAgeMillis() == 0) {
+            return policy.getMaxLen() > 0 ? transport.trim(topic, policy.getMaxLen()).join() : 0;
+        }
+        StreamMessageId minId = null;
+        if (policy.getMaxAgeMillis() > 0) {
+            minId = SequenceUtil.minIdOf(SystemClock.now() - policy.getMaxAgeMillis());
+        }
+        if (policy.getMaxLen() > 0) {
+            minId = max(minId, lengthCut(topic, policy.getMaxLen()));
+        }
+        if (policy.isKeepUndelivered()) {
+            StreamMessageId watermark = transport.lowWatermark(topic).join();
+            if (watermark == null) {
+                // 没有消费组时无需保护，但只按消费进度裁剪的策略没有可裁剪的位置
+                if (policy.getMaxLen() == 0 && policy.getMaxAgeMillis() == 0) {
+                    return 0;
+                }
+            } else {
+                minId = minId == null ? watermark : min(minId, watermark);
+            }
+        }
+        if (minId == null) {
+            return 0;
+        }
+        if (archiver != null) {
+            return archiver.archiveBefore(topic, minId);
+        }
+        return transport.trimBefore(topic, minId).join();
+    }
+
+    /**
+     * 只保留maxLen条时第一条保留消息的ID，每次最多向前定位retentionBatchSize条，超出部分留到下个周期
+     */
+    private StreamMessageId lengthCut(String topic, int maxLen) {
+        long excess = transport.size(topic).join() - maxLen;
+        if (excess <= 0) {
+            return null;
+        }
+        Map<StreamMessageId, Map<Object, Object>> head = transport.range(topic,
+                StreamMessageId.MIN,
+                StreamMessageId.MAX,
+                (int) Math.min(excess, config.getRetentionBatchSize())).join();
+        StreamMessageId last = null;
+        for (StreamMessageId id :
+                head.keySet()) {
+            last = id;
+        }
+        return last == null ? null : new StreamMessageId(last.getId0(), last.getId1() + 1);
+    }
+
+    private static int compare(StreamMessageId a, StreamMessageId b) {
+        int cmp = Long.compare(a.getId0(), b.getId0());
+        return cmp != 0 ? cmp : Long.compare(a.getId1(), b.getId1());
+    }
+
+    private static StreamMessageId max(StreamMessageId a, StreamMessageId b) {
+        if (a == null || b == null) {
+            return a == null ? b : a;
+        }
+        return compare(a, b) >= 0 ? a : b;
+    }
+
+    private static StreamMessageId min(StreamMessageId a, StreamMessageId b) {
+        return compare(a, b) <= 0 ? a : b;
+    }
+}
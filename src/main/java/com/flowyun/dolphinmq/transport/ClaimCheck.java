@@ -0,0 +1,197 @@
+package com.flowyun.dolphinmq.transport;
+
+import com.flowyun.dolphinmq.common.DolphinMQConfig;
+import com.flowyun.dolphinmq.common.Message;
+import com.flowyun.dolphinmq.utils.FieldCodec;
+import org.redisson.api.StreamMessageId;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 大消息另存（Claim Check）
+ * <p>
+ * 消息体超过claimCheckThreshold时编码（可选GZIP压缩）后按claimCheckChunkSize分块另存，stream记录中只保留
+ * 存储键与标签、消息键、消息头等保留字段，过滤、压缩不需要读取消息体；消费端在需要消息体时才取回。
+ * 另存的消息体在claimCheckTtl后过期，开启claimCheckDeleteOnAck时ACK后即删除
+ * </p>
+ *
+ * @author Barry
+ * @since 2026/10/19 13:10
+ */
+public class ClaimCheck {
+    static final String KEY_PREFIX = "dolphinmq:blob:";
+    private static final byte RAW = 0;
+    private static final byte GZIP = 1;
+
+    private final Transport transport;
+    private final DolphinMQConfig config;
+
+    /**
+     * @throws UnsupportedOperationException 设置了claimCheckThreshold但传输层不支持另存消息体
+     */
+    public ClaimCheck(Transport transport, DolphinMQConfig config) {
+        if (config.getClaimCheckThreshold() != null && config.getClaimCheckThreshold() > 0 && !transport.supportsBlobs()) {
+            throw new UnsupportedOperationException("claimCheckThreshold is set but blobs are not supported by "
+                    + transport.getClass().getSimpleName());
+        }
+        this.transport = transport;
+        this.config = config;
+    }
+
+    /**
+     * 消息体超过阈值时另存
+     *
+     * @param fields 完整的stream记录
+     * @return 写入stream的记录：未超过阈值时为原记录，否则为保留字段加存储键
+     * @author Barry
+     * @since 2026/10/19 13:10
+     **/
+    public CompletableFuture<Map<Object, Object>> checkIn(String topic, StreamMessageId id, Map<Object, Object> fields) {
+        int threshold = config.getClaimCheckThreshold() == null ? 0 : config.getClaimCheckThreshold();
+        // 先按内容估算，绝大多数消息不需要编码
+        if (threshold <= 0 || FieldCodec.estimateSize(fields) < threshold) {
+            return CompletableFuture.completedFuture(fields);
+        }
+        Map<Object, Object> body = new LinkedHashMap<>(fields.size() * 2);
+        Map<Object, Object> reference = new HashMap<>();
+        for (Map.Entry<Object, Object> field :
+                fields.entrySet()) {
+            if (isReserved(field.getKey())) {
+                reference.put(field.getKey(), field.getValue());
+            } else {
+                body.put(field.getKey(), field.getValue());
+            }
+        }
+        byte[] encoded = FieldCodec.encode(body);
+        if (encoded.length < threshold) {
+            return CompletableFuture.completedFuture(fields);
+        }
+        String key = KEY_PREFIX + topic + ":" + id;
+        reference.put(Message.BLOB_FIELD, key);
+        List<byte[]> chunks = split(pack(encoded, Boolean.TRUE.equals(config.getClaimCheckCompress())),
+                Math.max(1, config.getClaimCheckChunkSize()));
+        return transport.putBlob(key, chunks, TimeUnit.SECONDS.toMillis(config.getClaimCheckTtl()))
+                .thenApply(res -> reference);
+    }
+
+    public static boolean isReference(Map<Object, Object> fields) {
+        return fields.containsKey(Message.BLOB_FIELD);
+    }
+
+    /**
+     * 取回另存的消息体，与stream记录中的保留字段合并
+     *
+     * @param fields stream记录，不是引用时原样返回
+     * @return 完整的记录，消息体已过期或被删除时以IllegalStateException结束
+     * @author Barry
+     * @since 2026/10/19 13:10
+     **/
+    public CompletableFuture<Map<Object, Object>> resolve(Map<Object, Object> fields) {
+        Object key = fields.get(Message.BLOB_FIELD);
+        if (key == null) {
+            return CompletableFuture.completedFuture(fields);
+        }
+        return transport.getBlob(key.toString()).thenApply(chunks -> {
+            if (chunks.isEmpty()) {
+                throw new IllegalStateException("blob " + key + " expired or deleted");
+            }
+            Map<Object, Object> resolved = FieldCodec.decode(unpack(chunks));
+            for (Map.Entry<Object, Object> field :
+                    fields.entrySet()) {
+                if (!Message.BLOB_FIELD.equals(field.getKey())) {
+                    resolved.put(field.getKey(), field.getValue());
+                }
+            }
+            return resolved;
+        });
+    }
+
+    /**
+     * 删除另存的消息体
+     *
+     * @param fields stream记录，不是引用时不做任何事
+     * @author Barry
+     * @since 2026/10/19 13:10
+     **/
+    public CompletableFuture<Boolean> release(Map<Object, Object> fields) {
+        Object key = fields.get(Message.BLOB_FIELD);
+        if (key == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return transport.deleteBlob(key.toString());
+    }
+
+    private static boolean isReserved(Object field) {
+        return field instanceof String && ((String) field).startsWith(Message.RESERVED_PREFIX);
+    }
+
+    /**
+     * 首字节标记是否压缩
+     */
+    private static byte[] pack(byte[] encoded, boolean compress) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(compress ? encoded.length / 4 + 64 : encoded.length + 1);
+        bytes.write(compress ? GZIP : RAW);
+        if (!compress) {
+            bytes.write(encoded, 0, encoded.length);
+            return bytes.toByteArray();
+        }
+        try (OutputStream out = new GZIPOutputStream(bytes, 8192)) {
+            out.write(encoded);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ByteBuffer unpack(List<byte[]> chunks) {
+        byte[] packed = chunks.size() == 1 ? chunks.get(0) : concat(chunks);
+        if (packed[0] == RAW) {
+            return ByteBuffer.wrap(packed, 1, packed.length - 1);
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(packed, 1, packed.length - 1), 8192)) {
+            return ByteBuffer.wrap(in.readAllBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<byte[]> split(byte[] payload, int chunkSize) {
+        List<byte[]> chunks = new ArrayList<>(payload.length / chunkSize + 1);
+        for (int from = 0; from < payload.length; from += chunkSize) {
+            chunks.add(Arrays.copyOfRange(payload, from, Math.min(payload.length, from + chunkSize)));
+        }
+        return chunks;
+    }
+
+    private static byte[] concat(List<byte[]> chunks) {
+        int size = 0;
+        for (byte[] chunk :
+                chunks) {
+            size += chunk.length;
+        }
+        byte[] packed = new byte[size];
+        int offset = 0;
+        for (byte[] chunk :
+                chunks) {
+            System.arraycopy(chunk, 0, packed, offset, chunk.length);
+            offset += chunk.length;
+        }
+        return packed;
+    }
+}
@@ -0,0 +1,42 @@
+package com.flowyun.dolphinmq.transport;
+
+import lombok.Getter;
+import org.redisson.api.StreamMessageId;
+
+import java.util.Map;
+
+/**
+ * 等待投递的延迟消息
+ *
+ * @author Barry
+ * @since 2026/10/19 11:10
+ */
+@Getter
+public final class DelayedMessage {
+    private final String topic;
+    /**
+     * 发送时生成的消息ID，只用于标识延迟消息；投递到主题时重新生成ID
+     */
+    private final StreamMessageId id;
+    /**
+     * 投递时间（毫秒时间戳）
+     */
+    private final long deliverAt;
+    private final Map<Object, Object> fields;
+
+    public DelayedMessage(String topic, StreamMessageId id, long deliverAt, Map<Object, Object> fields) {
+        this.topic = topic;
+        this.id = id;
+        this.deliverAt = deliverAt;
+        this.fields = fields;
+    }
+
+    @Override
+    public String toString() {
+        return "DelayedMessage{" +
+                "topic='" + topic + '\'' +
+                ", id=" + id +
+                ", deliverAt=" + deliverAt +
+                '}';
+    }
+}
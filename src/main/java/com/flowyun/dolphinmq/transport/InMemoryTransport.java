@@ -0,0 +1,596 @@
+package com.flowyun.dolphinmq.transport;
+
+import com.flowyun.dolphinmq.common.SystemClock;
+import org.redisson.api.PendingEntry;
+import org.redisson.api.PendingResult;
+import org.redisson.api.StreamConsumer;
+import org.redisson.api.StreamMessageId;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内传输层实现，消费组语义与Redis Stream一致（最后投递位置、PendingList、投递次数、认领）
+ * 用于不依赖Redis的单元测试，以及生产者与消费者在同一JVM内时的零网络模式；数据不持久化
+ * 所有操作同步完成，返回的Future已结束，回调在调用线程上执行
+ *
+ * @author Barry
+ * @since 2026/10/18 17:40
+ */
+public class InMemoryTransport implements Transport {
+    private static final Comparator<StreamMessageId> ORDER =
+            Comparator.comparingLong(StreamMessageId::getId0).thenComparingLong(StreamMessageId::getId1);
+    private static final StreamMessageId ZERO = new StreamMessageId(0, 0);
+    private static final Comparator<DelayedMessage> DELAYED_ORDER = Comparator.comparingLong(DelayedMessage::getDeliverAt)
+            .thenComparing(DelayedMessage::getId, ORDER)
+            .thenComparing(DelayedMessage::getTopic);
+
+    private final Map<String, Topic> topics = new ConcurrentHashMap<>();
+    /**
+     * 已消费标记 -> 过期时间
+     */
+    private final Map<String, Long> consumed = new ConcurrentHashMap<>();
+    private final Map<String, Blob> blobs = new ConcurrentHashMap<>();
+    /**
+     * 延迟消息，按投递时间排序
+     */
+    private final NavigableSet<DelayedMessage> delayed = new TreeSet<>(DELAYED_ORDER);
+    /**
+     * 角色名 -> 租约
+     */
+    private final Map<String, Lease> leases = new HashMap<>();
+
+    private static class Topic {
+        final NavigableMap<StreamMessageId, Map<Object, Object>> entries = new TreeMap<>(ORDER);
+        final Map<String, Group> groups = new HashMap<>();
+        StreamMessageId lastId = ZERO;
+    }
+
+    private static class Lease {
+        final String owner;
+        final long expireAt;
+
+        Lease(String owner, long expireAt) {
+            this.owner = owner;
+            this.expireAt = expireAt;
+        }
+    }
+
+    private static class Blob {
+        final List<byte[]> chunks;
+        final long expireAt;
+
+        Blob(List<byte[]> chunks, long expireAt) {
+            this.chunks = chunks;
+            this.expireAt = expireAt;
+        }
+    }
+
+    private static class Group {
+        StreamMessageId lastDeliveredId;
+        final NavigableMap<StreamMessageId, Delivery> pending = new TreeMap<>(ORDER);
+        /**
+         * 消费者 -> 最近一次读取或认领消息的时间
+         */
+        final Map<String, Long> seen = new HashMap<>();
+
+        Group(StreamMessageId lastDeliveredId) {
+            this.lastDeliveredId = lastDeliveredId;
+        }
+    }
+
+    private static class Delivery {
+        String consumer;
+        long deliveredAt;
+        long deliveries;
+
+        Delivery(String consumer, long deliveredAt) {
+            this.consumer = consumer;
+            this.deliveredAt = deliveredAt;
+            this.deliveries = 1;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> append(String topic, StreamMessageId id, Map<Object, Object> fields, int maxLen) {
+        Topic t = topics.computeIfAbsent(topic, k -> new Topic());
+        synchronized (t) {
+            StreamMessageId newId;
+            if (id == StreamMessageId.AUTO_GENERATED) {
+                long now = SystemClock.now();
+                newId = now > t.lastId.getId0()
+                        ? new StreamMessageId(now, 0)
+                        : new StreamMessageId(t.lastId.getId0(), t.lastId.getId1() + 1);
+            } else if (ORDER.compare(id, t.lastId) <= 0) {
+                return CompletableFuture.failedFuture(new IllegalArgumentException(
+                        "The ID specified is equal or smaller than the target stream top item: " + id));
+            } else {
+                newId = id;
+            }
+            t.entries.put(newId, new LinkedHashMap<>(fields));
+            t.lastId = newId;
+        }
+        if (maxLen > 0) {
+            trim(topic, maxLen);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void createGroup(String topic, String group, StreamMessageId id) {
+        Topic t = topics.computeIfAbsent(topic, k -> new Topic());
+        synchronized (t) {
+            if (t.groups.containsKey(group)) {
+                return;
+            }
+            StreamMessageId start = id;
+            if (id == StreamMessageId.NEWEST) {
+                start = t.lastId;
+            } else if (id == StreamMessageId.ALL) {
+                start = ZERO;
+            }
+            t.groups.put(group, new Group(start));
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> setGroupId(String topic, String group, StreamMessageId id) {
+        try {
+            Topic t = topic(topic);
+            synchronized (t) {
+                Group g = group(t, topic, group);
+                if (id == StreamMessageId.NEWEST) {
+                    g.lastDeliveredId = t.lastId;
+                } else if (id == StreamMessageId.ALL) {
+                    g.lastDeliveredId = ZERO;
+                } else {
+                    g.lastDeliveredId = id;
+                }
+            }
+            return CompletableFuture.completedFuture(null);
+        } catch (IllegalStateException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Map<StreamMessageId, Map<Object, Object>>> readGroup(String topic, String group, String consumer, int count, StreamMessageId id) {
+        try {
+            return CompletableFuture.completedFuture(read(topic, group, consumer, count, id));
+        } catch (IllegalStateException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Map<StreamMessageId, Map<Object, Object>>>> readGroup(List<String> topics, String group, String consumer, int count) {
+        Map<String, Map<StreamMessageId, Map<Object, Object>>> result = new HashMap<>(topics.size() * 2);
+        try {
+            for (String topic :
+                    topics) {
+                Map<StreamMessageId, Map<Object, Object>> messages = read(topic, group, consumer, count, StreamMessageId.NEVER_DELIVERED);
+                if (!messages.isEmpty()) {
+                    result.put(topic, messages);
+                }
+            }
+        } catch (IllegalStateException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return CompletableFuture.completedFuture(result);
+    }
+
+    private Map<StreamMessageId, Map<Object, Object>> read(String topic, String group, String consumer, int count, StreamMessageId id) {
+        Topic t = topic(topic);
+        synchronized (t) {
+            Group g = group(t, topic, group);
+            int limit = count > 0 ? count : Integer.MAX_VALUE;
+            long now = SystemClock.now();
+            g.seen.put(consumer, now);
+            Map<StreamMessageId, Map<Object, Object>> result = new LinkedHashMap<>();
+            if (id == StreamMessageId.NEVER_DELIVERED) {
+                for (Map.Entry<StreamMessageId, Map<Object, Object>> entry :
+                        t.entries.tailMap(g.lastDeliveredId, false).entrySet()) {
+                    if (result.size() >= limit) {
+                        break;
+                    }
+                    result.put(entry.getKey(), entry.getValue());
+                    g.pending.put(entry.getKey(), new Delivery(consumer, now));
+                    g.lastDeliveredId = entry.getKey();
+                }
+                return result;
+            }
+            // 读取本消费者PendingList中的历史消息
+            for (Map.Entry<StreamMessageId, Delivery> entry :
+                    g.pending.tailMap(id, false).entrySet()) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                Delivery delivery = entry.getValue();
+                Map<Object, Object> fields = t.entries.get(entry.getKey());
+                if (!consumer.equals(delivery.consumer) || fields == null) {
+                    continue;
+                }
+                delivery.deliveredAt = now;
+                delivery.deliveries++;
+                result.put(entry.getKey(), fields);
+            }
+            return result;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Long> ack(String topic, String group, StreamMessageId... ids) {
+        Topic t = topics.get(topic);
+        if (t == null) {
+            return CompletableFuture.completedFuture(0L);
+        }
+        long acked = 0;
+        synchronized (t) {
+            Group g = t.groups.get(group);
+            if (g != null) {
+                for (StreamMessageId id :
+                        ids) {
+                    if (g.pending.remove(id) != null) {
+                        acked++;
+                    }
+                }
+            }
+        }
+        return CompletableFuture.completedFuture(acked);
+    }
+
+    @Override
+    public CompletableFuture<PendingResult> getPendingInfo(String topic, String group) {
+        try {
+            Topic t = topic(topic);
+            synchronized (t) {
+                Group g = group(t, topic, group);
+                if (g.pending.isEmpty()) {
+                    return CompletableFuture.completedFuture(new PendingResult(0, null, null, Collections.emptyMap()));
+                }
+                Map<String, Long> consumers = new LinkedHashMap<>();
+                for (Delivery delivery :
+                        g.pending.values()) {
+                    consumers.merge(delivery.consumer, 1L, Long::sum);
+                }
+                return CompletableFuture.completedFuture(new PendingResult(
+                        g.pending.size(), g.pending.firstKey(), g.pending.lastKey(), consumers));
+            }
+        } catch (IllegalStateException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * 没有读取记录的消费者按其最近一次投递计算空闲时间
+     */
+    @Override
+    public CompletableFuture<List<StreamConsumer>> listConsumers(String topic, String group) {
+        try {
+            Topic t = topic(topic);
+            synchronized (t) {
+                Group g = group(t, topic, group);
+                Map<String, Long> lastSeen = new LinkedHashMap<>(g.seen);
+                Map<String, Integer> pending = new HashMap<>();
+                for (Delivery delivery :
+                        g.pending.values()) {
+                    pending.merge(delivery.consumer, 1, Integer::sum);
+                    if (!g.seen.containsKey(delivery.consumer)) {
+                        lastSeen.merge(delivery.consumer, delivery.deliveredAt, Math::max);
+                    }
+                }
+                long now = SystemClock.now();
+                List<StreamConsumer> result = new ArrayList<>(lastSeen.size());
+                for (Map.Entry<String, Long> entry :
+                        lastSeen.entrySet()) {
+                    result.add(new StreamConsumer(entry.getKey(), pending.getOrDefault(entry.getKey(), 0), now - entry.getValue()));
+                }
+                return CompletableFuture.completedFuture(result);
+            }
+        } catch (IllegalStateException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<PendingEntry>> listPending(String topic, String group, String consumer, long idleTime, TimeUnit unit, int count) {
+        try {
+            Topic t = topic(topic);
+            synchronized (t) {
+                Group g = group(t, topic, group);
+                long minIdle = unit.toMillis(idleTime);
+                long now = SystemClock.now();
+                List<PendingEntry> result = new ArrayList<>();
+                for (Map.Entry<StreamMessageId, Delivery> entry :
+                        g.pending.entrySet()) {
+                    if (result.size() >= count) {
+                        break;
+                    }
+                    Delivery delivery = entry.getValue();
+                    long idle = now - delivery.deliveredAt;
+                    if (consumer.equals(delivery.consumer) && idle >= minIdle) {
+                        result.add(new PendingEntry(entry.getKey(), delivery.consumer, idle, delivery.deliveries));
+                    }
+                }
+                return CompletableFuture.completedFuture(result);
+            }
+        } catch (IllegalStateException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Map<StreamMessageId, Map<Object, Object>>> claim(String topic, String group, String consumer, long idleTime, TimeUnit unit, StreamMessageId... ids) {
+        try {
+            Topic t = topic(topic);
+            synchronized (t) {
+                Group g = group(t, topic, group);
+                long minIdle = unit.toMillis(idleTime);
+                long now = SystemClock.now();
+                g.seen.put(consumer, now);
+                Map<StreamMessageId, Map<Object, Object>> result = new LinkedHashMap<>();
+                for (StreamMessageId id :
+                        ids) {
+                    Delivery delivery = g.pending.get(id);
+                    if (delivery == null || now - delivery.deliveredAt < minIdle) {
+                        continue;
+                    }
+                    Map<Object, Object> fields = t.entries.get(id);
+                    if (fields == null) {
+                        // 消息已被删除，与Redis 7一致从PendingList中移除
+                        g.pending.remove(id);
+                        continue;
+                    }
+                    delivery.consumer = consumer;
+                    delivery.deliveredAt = now;
+                    delivery.deliveries++;
+                    result.put(id, fields);
+                }
+                return CompletableFuture.completedFuture(result);
+            }
+        } catch (IllegalStateException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Map<StreamMessageId, Map<Object, Object>>> range(String topic, StreamMessageId startId, StreamMessageId endId, int count) {
+        Topic t = topics.get(topic);
+        if (t == null) {
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+        synchronized (t) {
+            if (t.entries.isEmpty()) {
+                return CompletableFuture.completedFuture(Collections.emptyMap());
+            }
+            StreamMessageId from = startId == StreamMessageId.MIN ? t.entries.firstKey() : startId;
+            StreamMessageId to = endId == StreamMessageId.MAX ? t.entries.lastKey() : endId;
+            if (ORDER.compare(from, to) > 0) {
+                return CompletableFuture.completedFuture(Collections.emptyMap());
+            }
+            int limit = count > 0 ? count : Integer.MAX_VALUE;
+            Map<StreamMessageId, Map<Object, Object>> result = new LinkedHashMap<>();
+            for (Map.Entry<StreamMessageId, Map<Object, Object>> entry :
+                    t.entries.subMap(from, true, to, true).entrySet()) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                result.put(entry.getKey(), entry.getValue());
+            }
+            return CompletableFuture.completedFuture(result);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Long> size(String topic) {
+        Topic t = topics.get(topic);
+        if (t == null) {
+            return CompletableFuture.completedFuture(0L);
+        }
+        synchronized (t) {
+            return CompletableFuture.completedFuture((long) t.entries.size());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Long> remove(String topic, StreamMessageId... ids) {
+        Topic t = topics.get(topic);
+        if (t == null) {
+            return CompletableFuture.completedFuture(0L);
+        }
+        long removed = 0;
+        synchronized (t) {
+            for (StreamMessageId id :
+                    ids) {
+                if (t.entries.remove(id) != null) {
+                    removed++;
+                }
+            }
+        }
+        return CompletableFuture.completedFuture(removed);
+    }
+
+    @Override
+    public CompletableFuture<Long> trim(String topic, int maxLen) {
+        Topic t = topics.get(topic);
+        if (t == null) {
+            return CompletableFuture.completedFuture(0L);
+        }
+        long removed = 0;
+        synchronized (t) {
+            while (t.entries.size() > maxLen) {
+                t.entries.pollFirstEntry();
+                removed++;
+            }
+        }
+        return CompletableFuture.completedFuture(removed);
+    }
+
+    @Override
+    public CompletableFuture<Long> trimBefore(String topic, StreamMessageId minId) {
+        Topic t = topics.get(topic);
+        if (t == null) {
+            return CompletableFuture.completedFuture(0L);
+        }
+        synchronized (t) {
+            Map<StreamMessageId, Map<Object, Object>> head = t.entries.headMap(minId, false);
+            long removed = head.size();
+            head.clear();
+            return CompletableFuture.completedFuture(removed);
+        }
+    }
+
+    @Override
+    public CompletableFuture<StreamMessageId> lowWatermark(String topic) {
+        Topic t = topics.get(topic);
+        if (t == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        StreamMessageId result = null;
+        synchronized (t) {
+            for (Group g :
+                    t.groups.values()) {
+                StreamMessageId id = g.pending.isEmpty() ? g.lastDeliveredId : g.pending.firstKey();
+                if (result == null || ORDER.compare(id, result) < 0) {
+                    result = id;
+                }
+            }
+        }
+        return CompletableFuture.completedFuture(result);
+    }
+
+    @Override
+    public CompletableFuture<Long> lag(String topic, String group, long cap) {
+        Topic t = topics.get(topic);
+        if (t == null) {
+            return CompletableFuture.completedFuture(0L);
+        }
+        long result = 0;
+        synchronized (t) {
+            for (Map.Entry<String, Group> entry :
+                    t.groups.entrySet()) {
+                if (group != null && !group.equals(entry.getKey())) {
+                    continue;
+                }
+                Group g = entry.getValue();
+                long undelivered = Math.min(cap, t.entries.tailMap(g.lastDeliveredId, false).size());
+                result = Math.max(result, undelivered + g.pending.size());
+            }
+        }
+        return CompletableFuture.completedFuture(result);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isConsumed(String key) {
+        Long expireAt = consumed.get(key);
+        if (expireAt != null && expireAt <= SystemClock.now()) {
+            consumed.remove(key, expireAt);
+            expireAt = null;
+        }
+        return CompletableFuture.completedFuture(expireAt != null);
+    }
+
+    @Override
+    public void markConsumed(String key, long ttl, TimeUnit unit) {
+        consumed.put(key, SystemClock.now() + unit.toMillis(ttl));
+    }
+
+    @Override
+    public boolean supportsDelayed() {
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<Void> addDelayed(String topic, StreamMessageId id, long deliverAt, Map<Object, Object> fields) {
+        synchronized (delayed) {
+            delayed.add(new DelayedMessage(topic, id, deliverAt, new HashMap<>(fields)));
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<List<DelayedMessage>> pollDue(long now, int limit) {
+        List<DelayedMessage> result = new ArrayList<>();
+        synchronized (delayed) {
+            for (DelayedMessage message :
+                    delayed) {
+                if (message.getDeliverAt() > now || result.size() >= limit) {
+                    break;
+                }
+                result.add(message);
+            }
+        }
+        return CompletableFuture.completedFuture(result);
+    }
+
+    @Override
+    public CompletableFuture<Long> removeDelayed(List<DelayedMessage> messages) {
+        long removed = 0;
+        synchronized (delayed) {
+            for (DelayedMessage message :
+                    messages) {
+                if (delayed.remove(message)) {
+                    removed++;
+                }
+            }
+        }
+        return CompletableFuture.completedFuture(removed);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> tryLead(String name, String owner, long leaseMillis) {
+        long now = SystemClock.now();
+        synchronized (leases) {
+            Lease lease = leases.get(name);
+            if (lease != null && lease.expireAt > now && !lease.owner.equals(owner)) {
+                return CompletableFuture.completedFuture(false);
+            }
+            leases.put(name, new Lease(owner, now + leaseMillis));
+            return CompletableFuture.completedFuture(true);
+        }
+    }
+
+    @Override
+    public boolean supportsBlobs() {
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<Void> putBlob(String key, List<byte[]> chunks, long ttlMillis) {
+        blobs.put(key, new Blob(new ArrayList<>(chunks), SystemClock.now() + ttlMillis));
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<List<byte[]>> getBlob(String key) {
+        Blob blob = blobs.get(key);
+        if (blob != null && blob.expireAt <= SystemClock.now()) {
+            blobs.remove(key, blob);
+            blob = null;
+        }
+        return CompletableFuture.completedFuture(blob == null ? Collections.emptyList() : blob.chunks);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteBlob(String key) {
+        return CompletableFuture.completedFuture(blobs.remove(key) != null);
+    }
+
+    private Topic topic(String topic) {
+        Topic t = topics.get(topic);
+        if (t == null) {
+            throw new IllegalStateException("NOGROUP No such key '" + topic + "'");
+        }
+        return t;
+    }
+
+    private static Group group(Topic t, String topic, String group) {
+        Group g = t.groups.get(group);
+        if (g == null) {
+            throw new IllegalStateException("NOGROUP No such consumer group '" + group + "' for key name '" + topic + "'");
+        }
+        return g;
+    }
+}
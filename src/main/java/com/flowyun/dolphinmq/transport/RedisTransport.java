@@ -0,0 +1,359 @@
+package com.flowyun.dolphinmq.transport;
+
+import com.flowyun.dolphinmq.common.StreamLag;
+import io.netty.util.internal.StringUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.*;
+import org.redisson.api.stream.StreamAddArgs;
+import org.redisson.api.stream.StreamMultiReadGroupArgs;
+import org.redisson.api.stream.TrimStrategy;
+import org.redisson.client.RedisBusyException;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.client.protocol.ScoredEntry;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于Redis Stream的传输层实现
+ *
+ * @author Barry
+ * @since 2026/10/18 17:40
+ */
+@Slf4j
+public class RedisTransport implements Transport {
+    /**
+     * 已消费标记的key前缀
+     */
+    private static final String CONSUMED_PREFIX = "bucket";
+    /**
+     * 延迟消息：有序集合（成员为"消息ID@主题"，分值为投递时间）与保存消息内容的Hash，使用同一hash tag
+     */
+    private static final String DELAYED_KEY = "{dolphinmq:delayed}";
+    private static final String DELAYED_PAYLOAD_KEY = "{dolphinmq:delayed}:payload";
+    private static final String LEADER_PREFIX = "dolphinmq:leader:";
+    private static final String LEAD_SCRIPT =
+            "local owner = redis.call('GET', KEYS[1]) " +
+                    "if owner == false then " +
+                    "  redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2]) " +
+                    "  return 1 " +
+                    "end " +
+                    "if owner == ARGV[1] then " +
+                    "  redis.call('PEXPIRE', KEYS[1], ARGV[2]) " +
+                    "  return 1 " +
+                    "end " +
+                    "return 0";
+    private static final String TRIM_SCRIPT =
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+                    "return redis.call('XTRIM', KEYS[1], ARGV[1], '~', ARGV[2])";
+    private static final String LOW_WATERMARK_SCRIPT =
+            "local function less(a, b) " +
+                    "  local a0, a1 = string.match(a, '(%d+)-(%d+)') " +
+                    "  local b0, b1 = string.match(b, '(%d+)-(%d+)') " +
+                    "  if tonumber(a0) ~= tonumber(b0) then return tonumber(a0) < tonumber(b0) end " +
+                    "  return tonumber(a1) < tonumber(b1) " +
+                    "end " +
+                    "if redis.call('EXISTS', KEYS[1]) == 0 then return false end " +
+                    "local result = false " +
+                    "for _, info in ipairs(redis.call('XINFO', 'GROUPS', KEYS[1])) do " +
+                    "  local fields = {} " +
+                    "  for i = 1, #info, 2 do fields[info[i]] = info[i + 1] end " +
+                    "  local id = fields['last-delivered-id'] " +
+                    "  if fields['pending'] > 0 then " +
+                    "    local lowest = redis.call('XPENDING', KEYS[1], fields['name'])[2] " +
+                    "    if less(lowest, id) then id = lowest end " +
+                    "  end " +
+                    "  if not result or less(id, result) then result = id end " +
+                    "end " +
+                    "return result";
+
+    private final RedissonClient client;
+
+    public RedisTransport(RedissonClient client) {
+        this.client = client;
+    }
+
+    public RedissonClient getClient() {
+        return client;
+    }
+
+    @Override
+    public CompletableFuture<Void> append(String topic, StreamMessageId id, Map<Object, Object> fields, int maxLen) {
+        StreamAddArgs<Object, Object> args = StreamAddArgs.entries(fields);
+        if (maxLen > 0) {
+            args = args.trim(TrimStrategy.MAXLEN, maxLen);
+        }
+        return stream(topic).addAsync(id, args).toCompletableFuture();
+    }
+
+    @Override
+    public void createGroup(String topic, String group, StreamMessageId id) {
+        try {
+            stream(topic).createGroup(group, id);
+        } catch (RedisBusyException e) {
+            log.info(e.getMessage());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> setGroupId(String topic, String group, StreamMessageId id) {
+        return stream(topic).updateGroupMessageIdAsync(group, id).toCompletableFuture();
+    }
+
+    @Override
+    public CompletableFuture<Map<StreamMessageId, Map<Object, Object>>> readGroup(String topic, String group, String consumer, int count, StreamMessageId id) {
+        RStream<Object, Object> stream = stream(topic);
+        RFuture<Map<StreamMessageId, Map<Object, Object>>> future = count > 0
+                ? stream.readGroupAsync(group, consumer, count, id)
+                : stream.readGroupAsync(group, consumer, id);
+        return future.toCompletableFuture();
+    }
+
+    /**
+     * 注意：集群模式下多key命令要求所有stream位于同一slot，此时需一次只读一个主题或使用hash tag命名主题
+     */
+    @Override
+    public CompletableFuture<Map<String, Map<StreamMessageId, Map<Object, Object>>>> readGroup(List<String> topics, String group, String consumer, int count) {
+        Map<String, StreamMessageId> offsets = new HashMap<>(topics.size() * 2);
+        for (int i = 1; i < topics.size(); i++) {
+            offsets.put(topics.get(i), StreamMessageId.NEVER_DELIVERED);
+        }
+        return stream(topics.get(0)).readGroupAsync(
+                group,
+                consumer,
+                StreamMultiReadGroupArgs.greaterThan(StreamMessageId.NEVER_DELIVERED, offsets).count(count))
+                .toCompletableFuture();
+    }
+
+    @Override
+    public CompletableFuture<Long> ack(String topic, String group, StreamMessageId... ids) {
+        return stream(topic).ackAsync(group, ids).toCompletableFuture();
+    }
+
+    @Override
+    public CompletableFuture<PendingResult> getPendingInfo(String topic, String group) {
+        return stream(topic).getPendingInfoAsync(group).toCompletableFuture();
+    }
+
+    @Override
+    public CompletableFuture<List<StreamConsumer>> listConsumers(String topic, String group) {
+        return stream(topic).listConsumersAsync(group).toCompletableFuture();
+    }
+
+    @Override
+    public CompletableFuture<List<PendingEntry>> listPending(String topic, String group, String consumer, long idleTime, TimeUnit unit, int count) {
+        return stream(topic).listPendingAsync(
+                group,
+                consumer,
+                StreamMessageId.MIN,
+                StreamMessageId.MAX,
+                idleTime,
+                unit,
+                count).toCompletableFuture();
+    }
+
+    @Override
+    public CompletableFuture<Map<StreamMessageId, Map<Object, Object>>> claim(String topic, String group, String consumer, long idleTime, TimeUnit unit, StreamMessageId... ids) {
+        return stream(topic).claimAsync(group, consumer, idleTime, unit, ids).toCompletableFuture();
+    }
+
+    @Override
+    public CompletableFuture<Map<StreamMessageId, Map<Object, Object>>> range(String topic, StreamMessageId startId, StreamMessageId endId, int count) {
+        RStream<Object, Object> stream = stream(topic);
+        RFuture<Map<StreamMessageId, Map<Object, Object>>> future = count > 0
+                ? stream.rangeAsync(count, startId, endId)
+                : stream.rangeAsync(startId, endId);
+        return future.toCompletableFuture();
+    }
+
+    @Override
+    public CompletableFuture<Long> size(String topic) {
+        return stream(topic).sizeAsync().toCompletableFuture();
+    }
+
+    @Override
+    public CompletableFuture<Long> remove(String topic, StreamMessageId... ids) {
+        return stream(topic).removeAsync(ids).toCompletableFuture();
+    }
+
+    @Override
+    public CompletableFuture<Long> trim(String topic, int maxLen) {
+        return trim(topic, "MAXLEN", String.valueOf(maxLen));
+    }
+
+    @Override
+    public CompletableFuture<Long> trimBefore(String topic, StreamMessageId minId) {
+        return trim(topic, "MINID", minId.toString());
+    }
+
+    private CompletableFuture<Long> trim(String topic, String strategy, String threshold) {
+        return client.getScript(StringCodec.INSTANCE).<Long>evalAsync(
+                RScript.Mode.READ_WRITE,
+                TRIM_SCRIPT,
+                RScript.ReturnType.INTEGER,
+                Collections.<Object>singletonList(topic),
+                strategy,
+                threshold).toCompletableFuture();
+    }
+
+    @Override
+    public CompletableFuture<StreamMessageId> lowWatermark(String topic) {
+        return client.getScript(StringCodec.INSTANCE).<String>evalAsync(
+                RScript.Mode.READ_ONLY,
+                LOW_WATERMARK_SCRIPT,
+                RScript.ReturnType.VALUE,
+                Collections.<Object>singletonList(topic))
+                .toCompletableFuture()
+                .thenApply(id -> id == null ? null : parseId(id));
+    }
+
+    @Override
+    public CompletableFuture<Long> lag(String topic, String group, long cap) {
+        return StreamLag.lagAsync(client, topic, group, cap).toCompletableFuture();
+    }
+
+    /**
+     * 只读取已消费标记，不加分布式锁：原先的锁在读取返回前就已释放，起不到互斥作用
+     */
+    @Override
+    public CompletableFuture<Boolean> isConsumed(String key) {
+        return client.<String>getBucket(CONSUMED_PREFIX + key).getAsync()
+                .thenApply(value -> !StringUtil.isNullOrEmpty(value))
+                .toCompletableFuture();
+    }
+
+    @Override
+    public void markConsumed(String key, long ttl, TimeUnit unit) {
+        client.<String>getBucket(CONSUMED_PREFIX + key).setAsync("consumed", ttl, unit);
+    }
+
+    @Override
+    public boolean supportsDelayed() {
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<Void> addDelayed(String topic, StreamMessageId id, long deliverAt, Map<Object, Object> fields) {
+        String member = id + "@" + topic;
+        // 先写内容再写索引，搬运时读到的成员一定有内容
+        return delayedPayload().fastPutAsync(member, fields)
+                .thenCompose(res -> delayedIndex().addAsync(deliverAt, member))
+                .thenApply(res -> (Void) null)
+                .toCompletableFuture();
+    }
+
+    @Override
+    public CompletableFuture<List<DelayedMessage>> pollDue(long now, int limit) {
+        RScoredSortedSet<String> index = delayedIndex();
+        return index.entryRangeAsync(Double.NEGATIVE_INFINITY, true, now, true, 0, limit)
+                .toCompletableFuture()
+                .thenCompose(entries -> {
+                    if (entries.isEmpty()) {
+                        return CompletableFuture.completedFuture(Collections.<DelayedMessage>emptyList());
+                    }
+                    Set<String> members = new LinkedHashSet<>(entries.size() * 2);
+                    for (ScoredEntry<String> entry :
+                            entries) {
+                        members.add(entry.getValue());
+                    }
+                    return delayedPayload().getAllAsync(members).toCompletableFuture().thenApply(payloads -> {
+                        List<DelayedMessage> result = new ArrayList<>(entries.size());
+                        List<String> orphans = new ArrayList<>();
+                        for (ScoredEntry<String> entry :
+                                entries) {
+                            Map<Object, Object> fields = payloads.get(entry.getValue());
+                            if (fields == null) {
+                                orphans.add(entry.getValue());
+                                continue;
+                            }
+                            String member = entry.getValue();
+                            int at = member.indexOf('@');
+                            result.add(new DelayedMessage(member.substring(at + 1), parseId(member.substring(0, at)),
+                                    entry.getScore().longValue(), fields));
+                        }
+                        if (!orphans.isEmpty()) {
+                            // 内容已丢失的成员不再占据队首
+                            log.warn("drop {} delayed messages without payload", orphans.size());
+                            index.removeAllAsync(orphans);
+                        }
+                        return result;
+                    });
+                });
+    }
+
+    @Override
+    public CompletableFuture<Long> removeDelayed(List<DelayedMessage> messages) {
+        if (messages.isEmpty()) {
+            return CompletableFuture.completedFuture(0L);
+        }
+        String[] members = new String[messages.size()];
+        for (int i = 0; i < members.length; i++) {
+            DelayedMessage message = messages.get(i);
+            members[i] = message.getId() + "@" + message.getTopic();
+        }
+        return delayedIndex().removeAllAsync(Arrays.asList(members))
+                .thenCompose(res -> delayedPayload().fastRemoveAsync(members))
+                .toCompletableFuture();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> tryLead(String name, String owner, long leaseMillis) {
+        return client.getScript(StringCodec.INSTANCE).<Boolean>evalAsync(
+                RScript.Mode.READ_WRITE,
+                LEAD_SCRIPT,
+                RScript.ReturnType.BOOLEAN,
+                Collections.<Object>singletonList(LEADER_PREFIX + name),
+                owner,
+                String.valueOf(leaseMillis)).toCompletableFuture();
+    }
+
+    /**
+     * 消息体分块保存在一个列表中，删除、写入与设置过期在同一批次内执行
+     */
+    @Override
+    public boolean supportsBlobs() {
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<Void> putBlob(String key, List<byte[]> chunks, long ttlMillis) {
+        RBatch batch = client.createBatch();
+        RListAsync<byte[]> list = batch.getList(key, ByteArrayCodec.INSTANCE);
+        list.deleteAsync();
+        list.addAllAsync(chunks);
+        list.expireAsync(ttlMillis, TimeUnit.MILLISECONDS);
+        return batch.executeAsync()
+                .thenApply(res -> (Void) null)
+                .toCompletableFuture();
+    }
+
+    @Override
+    public CompletableFuture<List<byte[]>> getBlob(String key) {
+        return client.<byte[]>getList(key, ByteArrayCodec.INSTANCE).readAllAsync().toCompletableFuture();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteBlob(String key) {
+        return client.getList(key, ByteArrayCodec.INSTANCE).deleteAsync().toCompletableFuture();
+    }
+
+    private RScoredSortedSet<String> delayedIndex() {
+        return client.getScoredSortedSet(DELAYED_KEY, StringCodec.INSTANCE);
+    }
+
+    private RMap<String, Map<Object, Object>> delayedPayload() {
+        return client.getMap(DELAYED_PAYLOAD_KEY);
+    }
+
+    private static StreamMessageId parseId(String id) {
+        int separator = id.indexOf('-');
+        return new StreamMessageId(Long.parseLong(id.substring(0, separator)),
+                Long.parseLong(id.substring(separator + 1)));
+    }
+
+    private RStream<Object, Object> stream(String topic) {
+        return client.getStream(topic);
+    }
+}
@@ -0,0 +1,265 @@
+package com.flowyun.dolphinmq.transport;
+
+import org.redisson.api.PendingEntry;
+import org.redisson.api.PendingResult;
+import org.redisson.api.StreamConsumer;
+import org.redisson.api.StreamMessageId;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 消息传输层SPI，生产者与消费者只通过该接口读写主题
+ * 语义与Redis Stream消费组一致：每个消费组记录最后投递位置，已投递未ACK的消息进入投递给的消费者的PendingList，
+ * 可被其他消费者认领；消息ID沿用StreamMessageId，NEVER_DELIVERED、ALL、MIN、MAX等常量含义与Redisson相同
+ *
+ * @author Barry
+ * @since 2026/10/18 17:40
+ */
+public interface Transport {
+
+    /**
+     * 追加消息
+     *
+     * @param topic  主题
+     * @param id     消息ID，AUTO_GENERATED表示由传输层生成；须大于主题中已有的最大ID
+     * @param fields 消息内容
+     * @param maxLen 主题保留的最大条数（近似），0表示不裁剪
+     * @author Barry
+     * @since 2026/10/18 17:40
+     **/
+    CompletableFuture<Void> append(String topic, StreamMessageId id, Map<Object, Object> fields, int maxLen);
+
+    /**
+     * 创建消费组，已存在时忽略
+     *
+     * @param id 消费组起始位置，NEWEST表示只消费之后的新消息，ALL表示从头消费
+     * @author Barry
+     * @since 2026/10/18 17:40
+     **/
+    void createGroup(String topic, String group, StreamMessageId id);
+
+    /**
+     * 重置消费组的最后投递位置（XGROUP SETID），之后读取新消息从该ID之后开始，PendingList不变
+     *
+     * @param id 最后投递位置，NEWEST表示主题末尾，ALL表示从头
+     * @author Barry
+     * @since 2026/10/18 21:50
+     **/
+    CompletableFuture<Void> setGroupId(String topic, String group, StreamMessageId id);
+
+    /**
+     * 消费组读取
+     *
+     * @param count 最多读取条数，0表示不限
+     * @param id    NEVER_DELIVERED读取新消息并记入PendingList；其他ID读取本消费者PendingList中大于该ID的消息并增加投递次数
+     * @author Barry
+     * @since 2026/10/18 17:40
+     **/
+    CompletableFuture<Map<StreamMessageId, Map<Object, Object>>> readGroup(String topic, String group, String consumer, int count, StreamMessageId id);
+
+    /**
+     * 一次读取多个主题的新消息
+     *
+     * @return 主题 -> 消息，没有新消息的主题可能不出现在结果中
+     * @author Barry
+     * @since 2026/10/18 17:40
+     **/
+    CompletableFuture<Map<String, Map<StreamMessageId, Map<Object, Object>>>> readGroup(List<String> topics, String group, String consumer, int count);
+
+    CompletableFuture<Long> ack(String topic, String group, StreamMessageId... ids);
+
+    /**
+     * 消费组PendingList汇总：总数、最小/最大ID、各消费者的未确认条数
+     */
+    CompletableFuture<PendingResult> getPendingInfo(String topic, String group);
+
+    /**
+     * 消费组中的消费者：未确认条数与距最近一次读取或认领消息的空闲时间（XINFO CONSUMERS）
+     */
+    CompletableFuture<List<StreamConsumer>> listConsumers(String topic, String group);
+
+    /**
+     * 列出消费者PendingList中空闲时间超过idleTime的消息
+     */
+    CompletableFuture<List<PendingEntry>> listPending(String topic, String group, String consumer, long idleTime, TimeUnit unit, int count);
+
+    /**
+     * 将空闲时间仍超过idleTime的消息认领到consumer，返回认领成功且仍存在的消息
+     */
+    CompletableFuture<Map<StreamMessageId, Map<Object, Object>>> claim(String topic, String group, String consumer, long idleTime, TimeUnit unit, StreamMessageId... ids);
+
+    /**
+     * 按ID闭区间读取消息，MIN/MAX表示不限
+     */
+    default CompletableFuture<Map<StreamMessageId, Map<Object, Object>>> range(String topic, StreamMessageId startId, StreamMessageId endId) {
+        return range(topic, startId, endId, 0);
+    }
+
+    /**
+     * 按ID闭区间读取消息
+     *
+     * @param count 最多读取条数，0表示不限
+     * @author Barry
+     * @since 2026/10/18 20:30
+     **/
+    CompletableFuture<Map<StreamMessageId, Map<Object, Object>>> range(String topic, StreamMessageId startId, StreamMessageId endId, int count);
+
+    /**
+     * 主题当前的消息条数
+     */
+    CompletableFuture<Long> size(String topic);
+
+    CompletableFuture<Long> remove(String topic, StreamMessageId... ids);
+
+    /**
+     * 按长度裁剪，保留最新的约maxLen条（近似裁剪，只会多留）
+     *
+     * @return 删除的条数
+     * @author Barry
+     * @since 2026/10/18 21:10
+     **/
+    CompletableFuture<Long> trim(String topic, int maxLen);
+
+    /**
+     * 按ID裁剪，删除ID小于minId的消息（近似裁剪，只会多留；Redis实现使用XTRIM MINID，需要Redis 6.2+）
+     *
+     * @return 删除的条数
+     * @author Barry
+     * @since 2026/10/18 21:10
+     **/
+    CompletableFuture<Long> trimBefore(String topic, StreamMessageId minId);
+
+    /**
+     * 消费组仍需保留的最小ID：各消费组PendingList中的最小ID与最后投递ID中的最小值
+     *
+     * @return 没有消费组时为null
+     * @author Barry
+     * @since 2026/10/18 21:10
+     **/
+    CompletableFuture<StreamMessageId> lowWatermark(String topic);
+
+    /**
+     * 消费组积压量（PendingList + 尚未投递的消息数）
+     *
+     * @param group 消费组，为null时取所有消费组中的最大值
+     * @param cap   未投递部分最多统计的条数
+     * @author Barry
+     * @since 2026/10/18 17:40
+     **/
+    CompletableFuture<Long> lag(String topic, String group, long cap);
+
+    /**
+     * 查询消息是否已被消费过（消费幂等判重）
+     *
+     * @param key 消费组+消息ID
+     * @author Barry
+     * @since 2026/10/18 17:40
+     **/
+    CompletableFuture<Boolean> isConsumed(String key);
+
+    void markConsumed(String key, long ttl, TimeUnit unit);
+
+    /**
+     * 是否支持延迟消息（addDelayed、pollDue、removeDelayed）；不支持时Producer拒绝发送延迟消息且不启动搬运任务
+     *
+     * @author Barry
+     * @since 2026/10/19 11:10
+     **/
+    default boolean supportsDelayed() {
+        return false;
+    }
+
+    /**
+     * 保存延迟消息，到期后由DelayedMessageMover投递到主题
+     *
+     * @param deliverAt 投递时间（毫秒时间戳）
+     * @author Barry
+     * @since 2026/10/19 11:10
+     **/
+    default CompletableFuture<Void> addDelayed(String topic, StreamMessageId id, long deliverAt, Map<Object, Object> fields) {
+        return CompletableFuture.failedFuture(new UnsupportedOperationException("delayed messages are not supported by " + getClass().getSimpleName()));
+    }
+
+    /**
+     * 按投递时间顺序读取已到期的延迟消息（不删除），投递后调用removeDelayed
+     *
+     * @param now   当前时间（毫秒时间戳）
+     * @param limit 最多读取条数
+     * @author Barry
+     * @since 2026/10/19 11:10
+     **/
+    default CompletableFuture<List<DelayedMessage>> pollDue(long now, int limit) {
+        return CompletableFuture.failedFuture(new UnsupportedOperationException("delayed messages are not supported by " + getClass().getSimpleName()));
+    }
+
+    /**
+     * 删除已投递的延迟消息
+     *
+     * @return 删除的条数
+     * @author Barry
+     * @since 2026/10/19 11:10
+     **/
+    default CompletableFuture<Long> removeDelayed(List<DelayedMessage> messages) {
+        return CompletableFuture.failedFuture(new UnsupportedOperationException("delayed messages are not supported by " + getClass().getSimpleName()));
+    }
+
+    /**
+     * 租约式选主：name没有持有者或持有者为owner时获得（续期）租约；默认实现适用于只在单个进程内使用的传输层，始终为持有者
+     *
+     * @param name        角色名
+     * @param owner       竞选者标识
+     * @param leaseMillis 租约时长，持有者未续期时到期后由其他竞选者接替
+     * @return 是否为持有者
+     * @author Barry
+     * @since 2026/10/19 11:10
+     **/
+    default CompletableFuture<Boolean> tryLead(String name, String owner, long leaseMillis) {
+        return CompletableFuture.completedFuture(true);
+    }
+
+    /**
+     * 是否支持大消息另存（putBlob、getBlob、deleteBlob）；不支持时claimCheckThreshold须为0
+     *
+     * @author Barry
+     * @since 2026/10/19 13:10
+     **/
+    default boolean supportsBlobs() {
+        return false;
+    }
+
+    /**
+     * 保存大消息的消息体（按块），已存在时覆盖
+     *
+     * @param key       存储键
+     * @param chunks    消息体分块
+     * @param ttlMillis 过期时间（毫秒）
+     * @author Barry
+     * @since 2026/10/19 13:10
+     **/
+    default CompletableFuture<Void> putBlob(String key, List<byte[]> chunks, long ttlMillis) {
+        return CompletableFuture.failedFuture(new UnsupportedOperationException("blobs are not supported by " + getClass().getSimpleName()));
+    }
+
+    /**
+     * 按顺序读取消息体的所有分块
+     *
+     * @return 分块，不存在（已删除或过期）时为空列表
+     * @author Barry
+     * @since 2026/10/19 13:10
+     **/
+    default CompletableFuture<List<byte[]>> getBlob(String key) {
+        return CompletableFuture.failedFuture(new UnsupportedOperationException("blobs are not supported by " + getClass().getSimpleName()));
+    }
+
+    /**
+     * @return 是否删除了消息体
+     * @author Barry
+     * @since 2026/10/19 13:10
+     **/
+    default CompletableFuture<Boolean> deleteBlob(String key) {
+        return CompletableFuture.failedFuture(new UnsupportedOperationException("blobs are not supported by " + getClass().getSimpleName()));
+    }
+}
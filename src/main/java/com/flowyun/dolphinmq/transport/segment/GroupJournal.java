@@ -0,0 +1,153 @@
+package com.flowyun.dolphinmq.transport.segment;
+
+import org.redisson.api.StreamMessageId;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * 消费组状态（最后投递位置与PendingList），以追加日志的形式持久化，打开时重放恢复
+ * 日志记录数远超PendingList大小时重写为快照
+ *
+ * @author Barry
+ * @since 2026/10/18 19:20
+ */
+final class GroupJournal implements Closeable {
+    private static final byte SET_ID = 1;
+    private static final byte DELIVER = 2;
+    private static final byte ACK = 3;
+    private static final int MIN_COMPACT_RECORDS = 4096;
+
+    static final class Delivery {
+        String consumer;
+        long deliveredAt;
+        long deliveries;
+
+        Delivery(String consumer, long deliveredAt, long deliveries) {
+            this.consumer = consumer;
+            this.deliveredAt = deliveredAt;
+            this.deliveries = deliveries;
+        }
+    }
+
+    private final Path file;
+    private DataOutputStream out;
+    private long records;
+    StreamMessageId lastDeliveredId;
+    final NavigableMap<StreamMessageId, Delivery> pending = new TreeMap<>(SegmentLog.ORDER);
+    /**
+     * 消费者 -> 最近一次读取或认领消息的时间，不写入日志
+     */
+    final Map<String, Long> seen = new HashMap<>();
+
+    private GroupJournal(Path file) {
+        this.file = file;
+    }
+
+    static GroupJournal create(Path file, StreamMessageId start) throws IOException {
+        GroupJournal journal = new GroupJournal(file);
+        journal.lastDeliveredId = start;
+        journal.rewrite();
+        return journal;
+    }
+
+    static GroupJournal open(Path file) throws IOException {
+        GroupJournal journal = new GroupJournal(file);
+        journal.lastDeliveredId = SegmentLog.ZERO;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                byte type = in.readByte();
+                StreamMessageId id = new StreamMessageId(in.readLong(), in.readLong());
+                if (type == SET_ID) {
+                    journal.lastDeliveredId = id;
+                } else if (type == DELIVER) {
+                    journal.pending.put(id, new Delivery(in.readUTF(), in.readLong(), in.readLong()));
+                } else if (type == ACK) {
+                    journal.pending.remove(id);
+                } else {
+                    throw new IOException("corrupted group journal " + file);
+                }
+                journal.records++;
+            }
+        } catch (EOFException e) {
+            // 读到文件末尾（包括宕机时写了一半的记录）
+        }
+        journal.rewrite();
+        return journal;
+    }
+
+    void setLastDeliveredId(StreamMessageId id) throws IOException {
+        lastDeliveredId = id;
+        writeId(SET_ID, id);
+    }
+
+    void deliver(StreamMessageId id, Delivery delivery) throws IOException {
+        pending.put(id, delivery);
+        writeDelivery(id, delivery);
+    }
+
+    boolean ack(StreamMessageId id) throws IOException {
+        if (pending.remove(id) == null) {
+            return false;
+        }
+        writeId(ACK, id);
+        return true;
+    }
+
+    /**
+     * 一次操作结束后刷出，记录过多时压缩
+     */
+    void flush() throws IOException {
+        if (records > MIN_COMPACT_RECORDS && records > 4L * (pending.size() + 1)) {
+            rewrite();
+        } else {
+            out.flush();
+        }
+    }
+
+    private void writeId(byte type, StreamMessageId id) throws IOException {
+        out.writeByte(type);
+        out.writeLong(id.getId0());
+        out.writeLong(id.getId1());
+        records++;
+    }
+
+    private void writeDelivery(StreamMessageId id, Delivery delivery) throws IOException {
+        writeId(DELIVER, id);
+        out.writeUTF(delivery.consumer);
+        out.writeLong(delivery.deliveredAt);
+        out.writeLong(delivery.deliveries);
+    }
+
+    /**
+     * 把当前状态写成新文件后原子替换
+     */
+    private void rewrite() throws IOException {
+        if (out != null) {
+            out.close();
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        records = 0;
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)));
+        writeId(SET_ID, lastDeliveredId);
+        for (Map.Entry<StreamMessageId, Delivery> entry :
+                pending.entrySet()) {
+            writeDelivery(entry.getKey(), entry.getValue());
+        }
+        out.close();
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.APPEND)));
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
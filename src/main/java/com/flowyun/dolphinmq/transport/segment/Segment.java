@@ -0,0 +1,212 @@
+package com.flowyun.dolphinmq.transport.segment;
+
+import com.flowyun.dolphinmq.utils.FieldCodec;
+import org.redisson.api.StreamMessageId;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * 日志段：一个内存映射的数据文件加一个内存映射的稠密索引文件
+ * 数据记录格式为 [长度int][id0 long][id1 long][字段]，长度最后写入作为提交标记；
+ * 索引项格式为 [id0 long][id1 long][位置int]，ID递增，按ID二分查找
+ *
+ * @author Barry
+ * @since 2026/10/18 19:20
+ */
+final class Segment implements Closeable {
+    static final int RECORD_HEADER = 4 + 8 + 8;
+    private static final int INDEX_ENTRY = 8 + 8 + 4;
+    /**
+     * 字段编码至少包含4字节的字段数
+     */
+    private static final int MIN_RECORD = RECORD_HEADER + 4;
+
+    private final long baseOffset;
+    private final Path logFile;
+    private final Path indexFile;
+    private final MappedByteBuffer log;
+    private final MappedByteBuffer index;
+    private final int capacity;
+    private final int indexCapacity;
+    private int size;
+    private int count;
+
+    private Segment(long baseOffset, Path logFile, Path indexFile, int capacity) throws IOException {
+        this.baseOffset = baseOffset;
+        this.logFile = logFile;
+        this.indexFile = indexFile;
+        this.capacity = capacity;
+        this.indexCapacity = capacity / MIN_RECORD + 1;
+        this.log = map(logFile, capacity);
+        this.index = map(indexFile, (long) indexCapacity * INDEX_ENTRY);
+        recover();
+    }
+
+    /**
+     * 打开或创建日志段，已存在的段按原文件大小映射
+     */
+    static Segment open(Path dir, long baseOffset, int capacity) throws IOException {
+        String name = String.format("%020d", baseOffset);
+        Path logFile = dir.resolve(name + ".log");
+        if (Files.exists(logFile) && Files.size(logFile) > 0) {
+            capacity = (int) Files.size(logFile);
+        }
+        return new Segment(baseOffset, logFile, dir.resolve(name + ".index"), capacity);
+    }
+
+    private static MappedByteBuffer map(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    /**
+     * 恢复写入位置：索引中ID为0-0的项表示结束，再向后扫描数据文件补齐宕机前已写入数据但未写入索引的记录
+     */
+    private void recover() {
+        int low = 0;
+        int high = indexCapacity;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (index.getLong(mid * INDEX_ENTRY) != 0 || index.getLong(mid * INDEX_ENTRY + 8) != 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        count = low;
+        size = count == 0 ? 0 : positionAt(count - 1) + RECORD_HEADER + log.getInt(positionAt(count - 1));
+        while (size + MIN_RECORD <= capacity && count < indexCapacity) {
+            int length = log.getInt(size);
+            if (length <= 0 || size + RECORD_HEADER + length > capacity) {
+                break;
+            }
+            writeIndex(count, log.getLong(size + 4), log.getLong(size + 12), size);
+            count++;
+            size += RECORD_HEADER + length;
+        }
+    }
+
+    /**
+     * 追加记录
+     *
+     * @return 空间不足时返回false，由调用方滚动到新的段
+     */
+    boolean append(StreamMessageId id, byte[] fields) {
+        if (size + RECORD_HEADER + fields.length > capacity || count >= indexCapacity) {
+            return false;
+        }
+        log.putLong(size + 4, id.getId0());
+        log.putLong(size + 12, id.getId1());
+        ByteBuffer target = log.duplicate();
+        target.position(size + RECORD_HEADER);
+        target.put(fields);
+        log.putInt(size, fields.length);
+        writeIndex(count, id.getId0(), id.getId1(), size);
+        count++;
+        size += RECORD_HEADER + fields.length;
+        return true;
+    }
+
+    private void writeIndex(int entry, long id0, long id1, int position) {
+        int offset = entry * INDEX_ENTRY;
+        index.putInt(offset + 16, position);
+        index.putLong(offset + 8, id1);
+        index.putLong(offset, id0);
+    }
+
+    /**
+     * 二分查找ID
+     *
+     * @return 找到时返回序号，否则返回 -(插入位置) - 1
+     */
+    int find(StreamMessageId id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(mid, id);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * 第一个ID大于（inclusive时为大于等于）给定ID的记录序号
+     */
+    int ceiling(StreamMessageId id, boolean inclusive) {
+        int found = find(id);
+        if (found >= 0) {
+            return inclusive ? found : found + 1;
+        }
+        return -found - 1;
+    }
+
+    private int compare(int entry, StreamMessageId id) {
+        int offset = entry * INDEX_ENTRY;
+        int cmp = Long.compare(index.getLong(offset), id.getId0());
+        return cmp != 0 ? cmp : Long.compare(index.getLong(offset + 8), id.getId1());
+    }
+
+    StreamMessageId idAt(int entry) {
+        int offset = entry * INDEX_ENTRY;
+        return new StreamMessageId(index.getLong(offset), index.getLong(offset + 8));
+    }
+
+    private int positionAt(int entry) {
+        return index.getInt(entry * INDEX_ENTRY + 16);
+    }
+
+    /**
+     * 读取记录字段，直接在映射内存上解码
+     */
+    Map<Object, Object> fieldsAt(int entry) {
+        int position = positionAt(entry);
+        ByteBuffer buffer = log.duplicate();
+        buffer.position(position + RECORD_HEADER);
+        buffer.limit(position + RECORD_HEADER + log.getInt(position));
+        return FieldCodec.decode(buffer.slice());
+    }
+
+    StreamMessageId lastId() {
+        return count == 0 ? null : idAt(count - 1);
+    }
+
+    long getBaseOffset() {
+        return baseOffset;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    void flush() {
+        log.force();
+        index.force();
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(logFile);
+        Files.deleteIfExists(indexFile);
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+}
@@ -0,0 +1,250 @@
+package com.flowyun.dolphinmq.transport.segment;
+
+import org.redisson.api.StreamMessageId;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * 单个主题的追加日志，由按起始序号命名的多个日志段组成，只有最后一段可写
+ * XDEL删除的消息记录在tombstones文件中，读取时跳过
+ *
+ * @author Barry
+ * @since 2026/10/18 19:20
+ */
+final class SegmentLog implements Closeable {
+    static final Comparator<StreamMessageId> ORDER =
+            Comparator.comparingLong(StreamMessageId::getId0).thenComparingLong(StreamMessageId::getId1);
+    static final StreamMessageId ZERO = new StreamMessageId(0, 0);
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final List<Segment> segments = new ArrayList<>();
+    private final Set<StreamMessageId> deleted = new HashSet<>();
+    private final DataOutputStream tombstones;
+    private StreamMessageId lastId = ZERO;
+
+    SegmentLog(Path dir, int segmentBytes) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(dir);
+        List<Long> baseOffsets = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(".log"))
+                    .forEach(name -> baseOffsets.add(Long.parseLong(name.substring(0, name.length() - 4))));
+        }
+        Collections.sort(baseOffsets);
+        for (Long baseOffset :
+                baseOffsets) {
+            Segment segment = Segment.open(dir, baseOffset, segmentBytes);
+            segments.add(segment);
+            if (segment.lastId() != null) {
+                lastId = segment.lastId();
+            }
+        }
+        Path tombstoneFile = dir.resolve("tombstones");
+        if (Files.exists(tombstoneFile)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(tombstoneFile)))) {
+                while (true) {
+                    deleted.add(new StreamMessageId(in.readLong(), in.readLong()));
+                }
+            } catch (EOFException e) {
+                // 读到文件末尾（包括宕机时写了一半的记录）
+            }
+        }
+        this.tombstones = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tombstoneFile,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+    }
+
+    StreamMessageId getLastId() {
+        return lastId;
+    }
+
+    /**
+     * 追加消息，ID须大于已有的最大ID
+     */
+    void append(StreamMessageId id, byte[] fields) throws IOException {
+        Segment active = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (active == null || !active.append(id, fields)) {
+            long baseOffset = active == null ? 0 : active.getBaseOffset() + active.getCount();
+            active = Segment.open(dir, baseOffset, Math.max(segmentBytes, Segment.RECORD_HEADER + fields.length));
+            segments.add(active);
+            if (!active.append(id, fields)) {
+                throw new IOException("message " + id + " does not fit into a new segment");
+            }
+        }
+        lastId = id;
+    }
+
+    /**
+     * 按ID顺序读取
+     *
+     * @param from      起始ID
+     * @param inclusive 是否包含起始ID
+     * @param to        结束ID（包含），null表示不限
+     * @param limit     最多条数
+     */
+    Map<StreamMessageId, Map<Object, Object>> read(StreamMessageId from, boolean inclusive, StreamMessageId to, int limit) {
+        Map<StreamMessageId, Map<Object, Object>> result = new LinkedHashMap<>();
+        int first = firstSegment(from);
+        for (int s = first; s < segments.size() && result.size() < limit; s++) {
+            Segment segment = segments.get(s);
+            for (int entry = s == first ? segment.ceiling(from, inclusive) : 0;
+                 entry < segment.getCount() && result.size() < limit; entry++) {
+                StreamMessageId id = segment.idAt(entry);
+                if (to != null && ORDER.compare(id, to) > 0) {
+                    return result;
+                }
+                if (!deleted.contains(id)) {
+                    result.put(id, segment.fieldsAt(entry));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 读取单条消息，不存在或已删除时返回null
+     */
+    Map<Object, Object> get(StreamMessageId id) {
+        if (deleted.contains(id)) {
+            return null;
+        }
+        int s = firstSegment(id);
+        if (s >= segments.size()) {
+            return null;
+        }
+        int entry = segments.get(s).find(id);
+        return entry >= 0 ? segments.get(s).fieldsAt(entry) : null;
+    }
+
+    /**
+     * ID大于给定ID的消息条数（按序号计算并扣除已删除的消息），最多统计cap条
+     */
+    long countAfter(StreamMessageId id, long cap) {
+        if (segments.isEmpty()) {
+            return 0;
+        }
+        int s = firstSegment(id);
+        if (s >= segments.size()) {
+            return 0;
+        }
+        Segment segment = segments.get(s);
+        long offset = segment.getBaseOffset() + segment.ceiling(id, false);
+        long count = endOffset() - offset;
+        for (StreamMessageId removed :
+                deleted) {
+            if (ORDER.compare(removed, id) > 0) {
+                count--;
+            }
+        }
+        return Math.max(0, Math.min(cap, count));
+    }
+
+    /**
+     * 现存消息条数（扣除已删除的消息）
+     */
+    long size() {
+        return segments.isEmpty() ? 0 : endOffset() - segments.get(0).getBaseOffset() - deleted.size();
+    }
+
+    /**
+     * 按整段删除最旧的消息，直到再删一段就会少于maxLen条（与MAXLEN ~一致，只会多留不会少留）
+     *
+     * @return 删除的条数
+     */
+    long trim(long maxLen) throws IOException {
+        long removed = 0;
+        while (segments.size() > 1 && endOffset() - segments.get(1).getBaseOffset() >= maxLen) {
+            removed += deleteOldest();
+        }
+        pruneTombstones();
+        return removed;
+    }
+
+    /**
+     * 删除全部消息ID都小于minId的整段（与MINID ~一致），最后一段不删除
+     *
+     * @return 删除的条数
+     */
+    long trimBefore(StreamMessageId minId) throws IOException {
+        long removed = 0;
+        while (segments.size() > 1 && ORDER.compare(segments.get(0).lastId(), minId) < 0) {
+            removed += deleteOldest();
+        }
+        pruneTombstones();
+        return removed;
+    }
+
+    private long deleteOldest() throws IOException {
+        Segment oldest = segments.remove(0);
+        long removed = oldest.getCount();
+        for (StreamMessageId id :
+                deleted) {
+            if (oldest.find(id) >= 0) {
+                removed--;
+            }
+        }
+        oldest.delete();
+        return removed;
+    }
+
+    private void pruneTombstones() {
+        if (segments.isEmpty()) {
+            return;
+        }
+        StreamMessageId firstId = segments.get(0).getCount() > 0 ? segments.get(0).idAt(0) : lastId;
+        deleted.removeIf(id -> ORDER.compare(id, firstId) < 0);
+    }
+
+    long remove(StreamMessageId... ids) throws IOException {
+        long removed = 0;
+        for (StreamMessageId id :
+                ids) {
+            if (!deleted.contains(id) && get(id) != null) {
+                deleted.add(id);
+                tombstones.writeLong(id.getId0());
+                tombstones.writeLong(id.getId1());
+                removed++;
+            }
+        }
+        tombstones.flush();
+        return removed;
+    }
+
+    /**
+     * 可能包含该ID的段：最后一个首条ID不大于该ID的段
+     */
+    private int firstSegment(StreamMessageId id) {
+        for (int s = segments.size() - 1; s > 0; s--) {
+            Segment segment = segments.get(s);
+            if (segment.getCount() > 0 && ORDER.compare(segment.idAt(0), id) <= 0) {
+                return s;
+            }
+        }
+        return 0;
+    }
+
+    private long endOffset() {
+        Segment active = segments.get(segments.size() - 1);
+        return active.getBaseOffset() + active.getCount();
+    }
+
+    void flush() {
+        for (Segment segment :
+                segments) {
+            segment.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        tombstones.close();
+    }
+}
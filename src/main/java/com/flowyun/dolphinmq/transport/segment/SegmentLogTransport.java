@@ -0,0 +1,583 @@
+package com.flowyun.dolphinmq.transport.segment;
+
+import com.flowyun.dolphinmq.common.SystemClock;
+import com.flowyun.dolphinmq.transport.Transport;
+import com.flowyun.dolphinmq.utils.FieldCodec;
+import org.redisson.api.PendingEntry;
+import org.redisson.api.PendingResult;
+import org.redisson.api.StreamConsumer;
+import org.redisson.api.StreamMessageId;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 基于本地内存映射日志段的传输层实现，用于无法部署Redis的边缘环境
+ * <p>
+ * 每个主题一个目录：按起始序号命名的日志段（数据文件 + 稠密ID索引，均为内存映射，顺序写入、读取时直接在映射内存上解码），
+ * 消费组的最后投递位置与PendingList以追加日志持久化在groups目录下。消费组语义与Redis Stream一致。
+ * </p>
+ * <p>
+ * 写入只落到页缓存，由操作系统回写；需要落盘时调用flush。所有操作同步完成，返回的Future已结束。
+ * 消费判重标记只保存在内存中，重启后由ACK保证不重复消费已确认的消息。
+ * </p>
+ *
+ * @author Barry
+ * @since 2026/10/18 19:20
+ */
+public class SegmentLogTransport implements Transport, Closeable {
+    /**
+     * 默认日志段大小64MB
+     */
+    public static final int DEFAULT_SEGMENT_BYTES = 64 * 1024 * 1024;
+    private static final String GROUPS_DIR = "groups";
+    private static final String JOURNAL_SUFFIX = ".journal";
+
+    private final Path baseDir;
+    private final int segmentBytes;
+    private final Map<String, TopicState> topics = new ConcurrentHashMap<>();
+    /**
+     * 已消费标记 -> 过期时间
+     */
+    private final Map<String, Long> consumed = new ConcurrentHashMap<>();
+
+    private static final class TopicState {
+        final Path dir;
+        final SegmentLog log;
+        final Map<String, GroupJournal> groups = new HashMap<>();
+
+        TopicState(Path dir, int segmentBytes) throws IOException {
+            this.dir = dir;
+            this.log = new SegmentLog(dir, segmentBytes);
+            Path groupsDir = dir.resolve(GROUPS_DIR);
+            if (Files.isDirectory(groupsDir)) {
+                try (Stream<Path> files = Files.list(groupsDir)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        String name = file.getFileName().toString();
+                        if (name.endsWith(JOURNAL_SUFFIX)) {
+                            groups.put(decode(name.substring(0, name.length() - JOURNAL_SUFFIX.length())),
+                                    GroupJournal.open(file));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public SegmentLogTransport(Path baseDir) {
+        this(baseDir, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * @param baseDir      数据目录，已有数据在首次访问主题时加载
+     * @param segmentBytes 日志段大小
+     */
+    public SegmentLogTransport(Path baseDir, int segmentBytes) {
+        this.baseDir = baseDir;
+        this.segmentBytes = segmentBytes;
+    }
+
+    @Override
+    public CompletableFuture<Void> append(String topic, StreamMessageId id, Map<Object, Object> fields, int maxLen) {
+        try {
+            byte[] encoded = FieldCodec.encode(fields);
+            TopicState t = topic(topic, true);
+            synchronized (t) {
+                StreamMessageId lastId = t.log.getLastId();
+                StreamMessageId newId;
+                if (id == StreamMessageId.AUTO_GENERATED) {
+                    long now = SystemClock.now();
+                    newId = now > lastId.getId0()
+                            ? new StreamMessageId(now, 0)
+                            : new StreamMessageId(lastId.getId0(), lastId.getId1() + 1);
+                } else if (SegmentLog.ORDER.compare(id, lastId) <= 0) {
+                    return CompletableFuture.failedFuture(new IllegalArgumentException(
+                            "The ID specified is equal or smaller than the target stream top item: " + id));
+                } else {
+                    newId = id;
+                }
+                t.log.append(newId, encoded);
+                if (maxLen > 0) {
+                    t.log.trim(maxLen);
+                }
+            }
+            return CompletableFuture.completedFuture(null);
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public void createGroup(String topic, String group, StreamMessageId id) {
+        TopicState t = topic(topic, true);
+        synchronized (t) {
+            if (t.groups.containsKey(group)) {
+                return;
+            }
+            StreamMessageId start = id;
+            if (id == StreamMessageId.NEWEST) {
+                start = t.log.getLastId();
+            } else if (id == StreamMessageId.ALL) {
+                start = SegmentLog.ZERO;
+            }
+            try {
+                Path groupsDir = Files.createDirectories(t.dir.resolve(GROUPS_DIR));
+                t.groups.put(group, GroupJournal.create(groupsDir.resolve(encode(group) + JOURNAL_SUFFIX), start));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> setGroupId(String topic, String group, StreamMessageId id) {
+        try {
+            TopicState t = existingTopic(topic);
+            synchronized (t) {
+                GroupJournal g = group(t, topic, group);
+                if (id == StreamMessageId.NEWEST) {
+                    g.setLastDeliveredId(t.log.getLastId());
+                } else if (id == StreamMessageId.ALL) {
+                    g.setLastDeliveredId(SegmentLog.ZERO);
+                } else {
+                    g.setLastDeliveredId(id);
+                }
+                g.flush();
+            }
+            return CompletableFuture.completedFuture(null);
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Map<StreamMessageId, Map<Object, Object>>> readGroup(String topic, String group, String consumer, int count, StreamMessageId id) {
+        try {
+            return CompletableFuture.completedFuture(read(topic, group, consumer, count, id));
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Map<StreamMessageId, Map<Object, Object>>>> readGroup(List<String> topics, String group, String consumer, int count) {
+        Map<String, Map<StreamMessageId, Map<Object, Object>>> result = new HashMap<>(topics.size() * 2);
+        try {
+            for (String topic :
+                    topics) {
+                Map<StreamMessageId, Map<Object, Object>> messages = read(topic, group, consumer, count, StreamMessageId.NEVER_DELIVERED);
+                if (!messages.isEmpty()) {
+                    result.put(topic, messages);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return CompletableFuture.completedFuture(result);
+    }
+
+    private Map<StreamMessageId, Map<Object, Object>> read(String topic, String group, String consumer, int count, StreamMessageId id) throws IOException {
+        TopicState t = existingTopic(topic);
+        synchronized (t) {
+            GroupJournal g = group(t, topic, group);
+            int limit = count > 0 ? count : Integer.MAX_VALUE;
+            long now = SystemClock.now();
+            g.seen.put(consumer, now);
+            if (id == StreamMessageId.NEVER_DELIVERED) {
+                Map<StreamMessageId, Map<Object, Object>> result = t.log.read(g.lastDeliveredId, false, null, limit);
+                if (!result.isEmpty()) {
+                    StreamMessageId last = null;
+                    for (StreamMessageId messageId :
+                            result.keySet()) {
+                        g.deliver(messageId, new GroupJournal.Delivery(consumer, now, 1));
+                        last = messageId;
+                    }
+                    g.setLastDeliveredId(last);
+                    g.flush();
+                }
+                return result;
+            }
+            // 读取本消费者PendingList中的历史消息
+            Map<StreamMessageId, Map<Object, Object>> result = new LinkedHashMap<>();
+            for (Map.Entry<StreamMessageId, GroupJournal.Delivery> entry :
+                    g.pending.tailMap(id, false).entrySet()) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                GroupJournal.Delivery delivery = entry.getValue();
+                if (!consumer.equals(delivery.consumer)) {
+                    continue;
+                }
+                Map<Object, Object> fields = t.log.get(entry.getKey());
+                if (fields == null) {
+                    continue;
+                }
+                delivery.deliveredAt = now;
+                delivery.deliveries++;
+                g.deliver(entry.getKey(), delivery);
+                result.put(entry.getKey(), fields);
+            }
+            g.flush();
+            return result;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Long> ack(String topic, String group, StreamMessageId... ids) {
+        try {
+            TopicState t = topic(topic, false);
+            if (t == null) {
+                return CompletableFuture.completedFuture(0L);
+            }
+            long acked = 0;
+            synchronized (t) {
+                GroupJournal g = t.groups.get(group);
+                if (g != null) {
+                    for (StreamMessageId id :
+                            ids) {
+                        if (g.ack(id)) {
+                            acked++;
+                        }
+                    }
+                    g.flush();
+                }
+            }
+            return CompletableFuture.completedFuture(acked);
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<PendingResult> getPendingInfo(String topic, String group) {
+        try {
+            TopicState t = existingTopic(topic);
+            synchronized (t) {
+                GroupJournal g = group(t, topic, group);
+                if (g.pending.isEmpty()) {
+                    return CompletableFuture.completedFuture(new PendingResult(0, null, null, Collections.emptyMap()));
+                }
+                Map<String, Long> consumers = new LinkedHashMap<>();
+                for (GroupJournal.Delivery delivery :
+                        g.pending.values()) {
+                    consumers.merge(delivery.consumer, 1L, Long::sum);
+                }
+                return CompletableFuture.completedFuture(new PendingResult(
+                        g.pending.size(), g.pending.firstKey(), g.pending.lastKey(), consumers));
+            }
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * 读取时间不写入日志，重新打开后没有读取记录的消费者按其最近一次投递计算空闲时间
+     */
+    @Override
+    public CompletableFuture<List<StreamConsumer>> listConsumers(String topic, String group) {
+        try {
+            TopicState t = existingTopic(topic);
+            synchronized (t) {
+                GroupJournal g = group(t, topic, group);
+                Map<String, Long> lastSeen = new LinkedHashMap<>(g.seen);
+                Map<String, Integer> pending = new HashMap<>();
+                for (GroupJournal.Delivery delivery :
+                        g.pending.values()) {
+                    pending.merge(delivery.consumer, 1, Integer::sum);
+                    if (!g.seen.containsKey(delivery.consumer)) {
+                        lastSeen.merge(delivery.consumer, delivery.deliveredAt, Math::max);
+                    }
+                }
+                long now = SystemClock.now();
+                List<StreamConsumer> result = new ArrayList<>(lastSeen.size());
+                for (Map.Entry<String, Long> entry :
+                        lastSeen.entrySet()) {
+                    result.add(new StreamConsumer(entry.getKey(), pending.getOrDefault(entry.getKey(), 0), now - entry.getValue()));
+                }
+                return CompletableFuture.completedFuture(result);
+            }
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<PendingEntry>> listPending(String topic, String group, String consumer, long idleTime, TimeUnit unit, int count) {
+        try {
+            TopicState t = existingTopic(topic);
+            synchronized (t) {
+                GroupJournal g = group(t, topic, group);
+                long minIdle = unit.toMillis(idleTime);
+                long now = SystemClock.now();
+                List<PendingEntry> result = new ArrayList<>();
+                for (Map.Entry<StreamMessageId, GroupJournal.Delivery> entry :
+                        g.pending.entrySet()) {
+                    if (result.size() >= count) {
+                        break;
+                    }
+                    GroupJournal.Delivery delivery = entry.getValue();
+                    long idle = now - delivery.deliveredAt;
+                    if (consumer.equals(delivery.consumer) && idle >= minIdle) {
+                        result.add(new PendingEntry(entry.getKey(), delivery.consumer, idle, delivery.deliveries));
+                    }
+                }
+                return CompletableFuture.completedFuture(result);
+            }
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Map<StreamMessageId, Map<Object, Object>>> claim(String topic, String group, String consumer, long idleTime, TimeUnit unit, StreamMessageId... ids) {
+        try {
+            TopicState t = existingTopic(topic);
+            synchronized (t) {
+                GroupJournal g = group(t, topic, group);
+                long minIdle = unit.toMillis(idleTime);
+                long now = SystemClock.now();
+                g.seen.put(consumer, now);
+                Map<StreamMessageId, Map<Object, Object>> result = new LinkedHashMap<>();
+                for (StreamMessageId id :
+                        ids) {
+                    GroupJournal.Delivery delivery = g.pending.get(id);
+                    if (delivery == null || now - delivery.deliveredAt < minIdle) {
+                        continue;
+                    }
+                    Map<Object, Object> fields = t.log.get(id);
+                    if (fields == null) {
+                        // 消息已被删除，与Redis 7一致从PendingList中移除
+                        g.ack(id);
+                        continue;
+                    }
+                    delivery.consumer = consumer;
+                    delivery.deliveredAt = now;
+                    delivery.deliveries++;
+                    g.deliver(id, delivery);
+                    result.put(id, fields);
+                }
+                g.flush();
+                return CompletableFuture.completedFuture(result);
+            }
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Map<StreamMessageId, Map<Object, Object>>> range(String topic, StreamMessageId startId, StreamMessageId endId, int count) {
+        try {
+            TopicState t = topic(topic, false);
+            if (t == null) {
+                return CompletableFuture.completedFuture(Collections.emptyMap());
+            }
+            synchronized (t) {
+                StreamMessageId from = startId == StreamMessageId.MIN ? SegmentLog.ZERO : startId;
+                StreamMessageId to = endId == StreamMessageId.MAX ? null : endId;
+                return CompletableFuture.completedFuture(t.log.read(from, true, to, count > 0 ? count : Integer.MAX_VALUE));
+            }
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Long> size(String topic) {
+        TopicState t = topic(topic, false);
+        if (t == null) {
+            return CompletableFuture.completedFuture(0L);
+        }
+        synchronized (t) {
+            return CompletableFuture.completedFuture(t.log.size());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Long> remove(String topic, StreamMessageId... ids) {
+        try {
+            TopicState t = topic(topic, false);
+            if (t == null) {
+                return CompletableFuture.completedFuture(0L);
+            }
+            synchronized (t) {
+                return CompletableFuture.completedFuture(t.log.remove(ids));
+            }
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Long> trim(String topic, int maxLen) {
+        try {
+            TopicState t = topic(topic, false);
+            if (t == null) {
+                return CompletableFuture.completedFuture(0L);
+            }
+            synchronized (t) {
+                return CompletableFuture.completedFuture(t.log.trim(maxLen));
+            }
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Long> trimBefore(String topic, StreamMessageId minId) {
+        try {
+            TopicState t = topic(topic, false);
+            if (t == null) {
+                return CompletableFuture.completedFuture(0L);
+            }
+            synchronized (t) {
+                return CompletableFuture.completedFuture(t.log.trimBefore(minId));
+            }
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<StreamMessageId> lowWatermark(String topic) {
+        TopicState t = topic(topic, false);
+        if (t == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        StreamMessageId result = null;
+        synchronized (t) {
+            for (GroupJournal g :
+                    t.groups.values()) {
+                StreamMessageId id = g.pending.isEmpty() ? g.lastDeliveredId : g.pending.firstKey();
+                if (result == null || SegmentLog.ORDER.compare(id, result) < 0) {
+                    result = id;
+                }
+            }
+        }
+        return CompletableFuture.completedFuture(result);
+    }
+
+    @Override
+    public CompletableFuture<Long> lag(String topic, String group, long cap) {
+        try {
+            TopicState t = topic(topic, false);
+            if (t == null) {
+                return CompletableFuture.completedFuture(0L);
+            }
+            long result = 0;
+            synchronized (t) {
+                for (Map.Entry<String, GroupJournal> entry :
+                        t.groups.entrySet()) {
+                    if (group != null && !group.equals(entry.getKey())) {
+                        continue;
+                    }
+                    GroupJournal g = entry.getValue();
+                    result = Math.max(result, t.log.countAfter(g.lastDeliveredId, cap) + g.pending.size());
+                }
+            }
+            return CompletableFuture.completedFuture(result);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isConsumed(String key) {
+        Long expireAt = consumed.get(key);
+        if (expireAt != null && expireAt <= SystemClock.now()) {
+            consumed.remove(key, expireAt);
+            expireAt = null;
+        }
+        return CompletableFuture.completedFuture(expireAt != null);
+    }
+
+    @Override
+    public void markConsumed(String key, long ttl, TimeUnit unit) {
+        consumed.put(key, SystemClock.now() + unit.toMillis(ttl));
+    }
+
+    /**
+     * 把已打开主题的映射内存刷到磁盘
+     */
+    public void flush() {
+        for (TopicState t :
+                topics.values()) {
+            synchronized (t) {
+                t.log.flush();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (TopicState t :
+                topics.values()) {
+            synchronized (t) {
+                t.log.close();
+                for (GroupJournal g :
+                        t.groups.values()) {
+                    g.close();
+                }
+            }
+        }
+        topics.clear();
+    }
+
+    /**
+     * 获取主题状态，首次访问时从磁盘加载
+     *
+     * @param create 目录不存在时是否创建
+     * @return 主题不存在且create为false时返回null
+     */
+    private TopicState topic(String topic, boolean create) {
+        TopicState t = topics.get(topic);
+        if (t != null) {
+            return t;
+        }
+        Path dir = baseDir.resolve(encode(topic));
+        if (!create && !Files.isDirectory(dir)) {
+            return null;
+        }
+        return topics.computeIfAbsent(topic, k -> {
+            try {
+                return new TopicState(dir, segmentBytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private TopicState existingTopic(String topic) {
+        TopicState t = topic(topic, false);
+        if (t == null) {
+            throw new IllegalStateException("NOGROUP No such key '" + topic + "'");
+        }
+        return t;
+    }
+
+    private static GroupJournal group(TopicState t, String topic, String group) {
+        GroupJournal g = t.groups.get(group);
+        if (g == null) {
+            throw new IllegalStateException("NOGROUP No such consumer group '" + group + "' for key name '" + topic + "'");
+        }
+        return g;
+    }
+
+    private static String encode(String name) {
+        return URLEncoder.encode(name, StandardCharsets.UTF_8);
+    }
+
+    private static String decode(String name) {
+        return URLDecoder.decode(name, StandardCharsets.UTF_8);
+    }
+}
@@ -4,16 +4,23 @@ import java.beans.BeanInfo;
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 /**
  * Bean和Map类型转换工具类
  * @author  Barry
  * @since  2021/7/6 10:24
  **/
 public final class BeanMapUtils {
+    private static final Object[] NO_ARGS = new Object[0];
+    private static final ConcurrentMap<Class<?>, BeanProperties> PROPERTIES = new ConcurrentHashMap<>();
 
     /**
      * Converts a map to a JavaBean.
@@ -28,17 +35,17 @@ public final class BeanMapUtils {
      */
     public static final Object toBean(Class<?> type, Map<Object, ? extends Object> map)
             throws IntrospectionException, IllegalAccessException, InstantiationException, InvocationTargetException, NoSuchMethodException {
-        BeanInfo beanInfo = Introspector.getBeanInfo(type);
-        Object obj = type.getDeclaredConstructor().newInstance();
-        PropertyDescriptor[] propertyDescriptors = beanInfo.getPropertyDescriptors();
-        for (int i = 0; i < propertyDescriptors.length; i++) {
-            PropertyDescriptor descriptor = propertyDescriptors[i];
-            Object propertyName = descriptor.getName();
-            if (map.containsKey(propertyName)) {
-                Object value = map.get(propertyName);
-                Object[] args = new Object[1];
+        BeanProperties properties = propertiesOf(type);
+        Object obj = properties.constructor().newInstance();
+        Method[] writeMethods = properties.writeMethods;
+        Object[] names = properties.writeNames;
+        // 单参数数组在属性间复用，避免每个setter一次可变参数分配
+        Object[] args = new Object[1];
+        for (int i = 0; i < writeMethods.length; i++) {
+            Object value = map.get(names[i]);
+            if (value != null || map.containsKey(names[i])) {
                 args[0] = value;
-                descriptor.getWriteMethod().invoke(obj, args);
+                writeMethods[i].invoke(obj, args);
             }
         }
         return obj;
@@ -55,20 +62,16 @@ public final class BeanMapUtils {
      */
     public static final Map<String, Object> toMap(Object bean)
             throws IntrospectionException, IllegalAccessException, InvocationTargetException {
-        Map<String, Object> returnMap = new HashMap<String, Object>();
-        BeanInfo beanInfo = Introspector.getBeanInfo(bean.getClass());
-        PropertyDescriptor[] propertyDescriptors = beanInfo.getPropertyDescriptors();
-        for (int i = 0; i < propertyDescriptors.length; i++) {
-            PropertyDescriptor descriptor = propertyDescriptors[i];
-            String propertyName = descriptor.getName();
-            if (!propertyName.equals("class")) {
-                Method readMethod = descriptor.getReadMethod();
-                Object result = readMethod.invoke(bean, new Object[0]);
-                if (result != null) {
-                    returnMap.put(propertyName, result);
-                } else {
-                    returnMap.put(propertyName, "");
-                }
+        BeanProperties properties = propertiesOf(bean.getClass());
+        Method[] readMethods = properties.readMethods;
+        String[] names = properties.readNames;
+        Map<String, Object> returnMap = new HashMap<String, Object>(capacityOf(readMethods.length));
+        for (int i = 0; i < readMethods.length; i++) {
+            Object result = readMethods[i].invoke(bean, NO_ARGS);
+            if (result != null) {
+                returnMap.put(names[i], result);
+            } else {
+                returnMap.put(names[i], "");
             }
         }
         return returnMap;
@@ -83,10 +86,79 @@ public final class BeanMapUtils {
      * @since 2021/7/1 10:35
      **/
     public static final Map<Object, Object> getObjectObjectMap(Map<String, Object> map) {
-        Map<Object, Object> omap = new HashMap<>();
-        map.forEach((str, obj) -> {
-            omap.put((Object) str, obj);
-        });
+        Map<Object, Object> omap = new HashMap<>(capacityOf(map.size()));
+        for (Map.Entry<String, Object> entry :
+                map.entrySet()) {
+            omap.put(entry.getKey(), entry.getValue());
+        }
         return omap;
     }
+
+    private static int capacityOf(int size) {
+        return (int) (size / 0.75f) + 1;
+    }
+
+    /**
+     * 取类的属性读写方法，按类缓存，避免每条消息都做一次内省
+     */
+    private static BeanProperties propertiesOf(Class<?> type) throws IntrospectionException {
+        BeanProperties properties = PROPERTIES.get(type);
+        if (properties == null) {
+            properties = new BeanProperties(type);
+            BeanProperties existing = PROPERTIES.putIfAbsent(type, properties);
+            if (existing != null) {
+                properties = existing;
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * 类的可读、可写属性及无参构造方法
+     *
+     * @author Barry
+     * @since 2026/10/18 23:20
+     */
+    private static final class BeanProperties {
+        private final Class<?> type;
+        private final String[] readNames;
+        private final Method[] readMethods;
+        private final Object[] writeNames;
+        private final Method[] writeMethods;
+        private volatile Constructor<?> constructor;
+
+        private BeanProperties(Class<?> type) throws IntrospectionException {
+            this.type = type;
+            PropertyDescriptor[] descriptors = Introspector.getBeanInfo(type).getPropertyDescriptors();
+            List<String> readNames = new ArrayList<>(descriptors.length);
+            List<Method> readMethods = new ArrayList<>(descriptors.length);
+            List<String> writeNames = new ArrayList<>(descriptors.length);
+            List<Method> writeMethods = new ArrayList<>(descriptors.length);
+            for (PropertyDescriptor descriptor :
+                    descriptors) {
+                String name = descriptor.getName();
+                if (!name.equals("class") && descriptor.getReadMethod() != null) {
+                    readNames.add(name);
+                    readMethods.add(descriptor.getReadMethod());
+                }
+                if (descriptor.getWriteMethod() != null) {
+                    writeNames.add(name);
+                    writeMethods.add(descriptor.getWriteMethod());
+                }
+            }
+            this.readNames = readNames.toArray(new String[0]);
+            this.readMethods = readMethods.toArray(new Method[0]);
+            this.writeNames = writeNames.toArray(new Object[0]);
+            this.writeMethods = writeMethods.toArray(new Method[0]);
+        }
+
+        private Constructor<?> constructor() throws NoSuchMethodException {
+            Constructor<?> cached = constructor;
+            if (cached == null) {
+                cached = type.getDeclaredConstructor();
+                constructor = cached;
+            }
+            return cached;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,124 @@
+package com.flowyun.dolphinmq;
+
+import com.flowyun.dolphinmq.common.DolphinMQConfig;
+import com.flowyun.dolphinmq.consumer.MessageView;
+import com.flowyun.dolphinmq.consumer.MessageViewListener;
+import com.flowyun.dolphinmq.consumer.PullConsumerClient;
+import com.flowyun.dolphinmq.exception.PoisonMessageException;
+import com.flowyun.dolphinmq.transport.InMemoryTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.StreamMessageId;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ACK截止时间、重试与隔离测试
+ *
+ * @author Barry
+ * @since 2026/10/19 14:00
+ */
+public class AckDeadlineTest {
+    private static final String TOPIC = "deadline";
+    private static final String DEAD_STREAM = "DeadStream";
+
+    private AnnotationConfigApplicationContext context;
+    private DolphinMQConfig config;
+    private InMemoryTransport transport;
+    private PullConsumerClient consumer;
+
+    @BeforeEach
+    void setUp() {
+        context = new AnnotationConfigApplicationContext(DolphinMQConfig.class);
+        config = context.getBean(DolphinMQConfig.class);
+        config.setMetricsEnabled(false);
+        config.setTimerTickMillis(10);
+        transport = new InMemoryTransport();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (consumer != null) {
+            consumer.stop();
+        }
+        context.close();
+    }
+
+    private void start(MessageViewListener listener) {
+        consumer = new PullConsumerClient.Builder(config)
+                .setTransport(transport)
+                .setService("g")
+                .setConsumerName("c")
+                .build();
+        consumer.subscribe(TOPIC).registerViewListener(listener);
+        consumer.start();
+        transport.append(TOPIC, StreamMessageId.AUTO_GENERATED, Collections.singletonMap("seq", 1), 0).join();
+        consumer.consumeHealthMessages();
+    }
+
+    @Test
+    void slowListenerNotRedeliveredWhileRunning() throws InterruptedException {
+        config.setAckTimeout(100);
+        AtomicInteger executions = new AtomicInteger();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        start(new MessageViewListener() {
+            @Override
+            public void consume(MessageView view) {
+                executions.incrementAndGet();
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    running.decrementAndGet();
+                }
+            }
+        });
+        Thread.sleep(1000);
+        Assertions.assertEquals(1, executions.get());
+        Assertions.assertEquals(1, maxRunning.get());
+        Assertions.assertEquals(0, transport.getPendingInfo(TOPIC, "g").join().getTotal());
+    }
+
+    @Test
+    void transientFailuresAreNotQuarantined() throws InterruptedException {
+        config.setQuarantineThreshold(2);
+        config.setRetryDelay(20);
+        AtomicInteger executions = new AtomicInteger();
+        start(new MessageViewListener() {
+            @Override
+            public void consume(MessageView view) {
+                executions.incrementAndGet();
+                throw new IllegalStateException("downstream unavailable");
+            }
+        });
+        Thread.sleep(500);
+        Assertions.assertTrue(executions.get() > 2);
+        Assertions.assertEquals(1L, transport.size(TOPIC).join().longValue());
+        Assertions.assertEquals(0L, transport.size(DEAD_STREAM).join().longValue());
+    }
+
+    @Test
+    void poisonMessageQuarantined() throws InterruptedException {
+        config.setQuarantineThreshold(2);
+        config.setRetryDelay(20);
+        AtomicInteger executions = new AtomicInteger();
+        start(new MessageViewListener() {
+            @Override
+            public void consume(MessageView view) {
+                executions.incrementAndGet();
+                throw new PoisonMessageException("bad message");
+            }
+        });
+        Thread.sleep(500);
+        Assertions.assertEquals(2, executions.get());
+        Assertions.assertEquals(0L, transport.size(TOPIC).join().longValue());
+        Assertions.assertEquals(1L, transport.size(DEAD_STREAM).join().longValue());
+    }
+}
@@ -0,0 +1,60 @@
+package com.flowyun.dolphinmq;
+
+import com.flowyun.dolphinmq.archive.ArchiveStore;
+import com.flowyun.dolphinmq.common.SequenceUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.StreamMessageId;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * ArchiveStore 测试：跨段、跨压缩块按ID/时间读取，重复归档去重，按保留时间清理
+ *
+ * @author Barry
+ * @since 2026/10/18 20:30
+ */
+public class ArchiveStoreTest {
+
+    private static Map<StreamMessageId, Map<Object, Object>> batch(long fromSecond, int count) {
+        Map<StreamMessageId, Map<Object, Object>> batch = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            long second = fromSecond + i;
+            Map<Object, Object> fields = new LinkedHashMap<>();
+            fields.put("seq", second);
+            fields.put("name", "msg-" + second);
+            batch.put(SequenceUtil.minIdOf(second * 1000), fields);
+        }
+        return batch;
+    }
+
+    @Test
+    void readAcrossSegments() throws IOException {
+        Path dir = Files.createTempDirectory("dolphinmq-archive");
+        ArchiveStore store = new ArchiveStore(dir);
+        store.write("orders/eu", batch(2_000_000_000L, 1000));
+        // 宕机重放：与上一段重叠的消息再次归档
+        store.write("orders/eu", batch(2_000_000_900L, 600));
+
+        Map<StreamMessageId, Map<Object, Object>> read = store.readByTime("orders/eu",
+                2_000_000_990_000L, 2_000_001_009_000L, 0);
+        Assertions.assertEquals(20, read.size());
+        Assertions.assertEquals(2_000_000_990L, read.values().iterator().next().get("seq"));
+
+        // 新建实例从文件尾部读取块索引
+        ArchiveStore reopened = new ArchiveStore(dir);
+        List<Object> seqs = new ArrayList<>();
+        reopened.replay("orders/eu", StreamMessageId.MIN, StreamMessageId.MAX, (id, fields) -> seqs.add(fields.get("seq")));
+        Assertions.assertEquals(1500, seqs.size());
+        Assertions.assertEquals(2_000_001_499L, seqs.get(seqs.size() - 1));
+        Assertions.assertEquals(10, reopened.read("orders/eu", StreamMessageId.MIN, StreamMessageId.MAX, 10).size());
+        Assertions.assertEquals(Collections.singletonList("orders/eu"), reopened.topics());
+
+        Assertions.assertEquals(1, reopened.purge("orders/eu", 2_000_001_000_000L));
+        Map<StreamMessageId, Map<Object, Object>> left = reopened.read("orders/eu", StreamMessageId.MIN, StreamMessageId.MAX, 0);
+        Assertions.assertEquals(600, left.size());
+    }
+}
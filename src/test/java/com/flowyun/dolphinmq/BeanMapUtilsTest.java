@@ -3,6 +3,7 @@ package com.flowyun.dolphinmq;
 import com.flowyun.dolphinmq.utils.BeanMapUtils;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.beans.IntrospectionException;
@@ -33,5 +34,21 @@ public class BeanMapUtilsTest {
         }
     }
 
-
+    @Test
+    void roundTripIgnoresReservedFields() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            Map<Object, Object> omap = BeanMapUtils.getObjectObjectMap(BeanMapUtils.toMap(new Testbean("test" + i, i)));
+            Assertions.assertEquals(2, omap.size());
+            omap.put("__tag", "paid");
+            Testbean o = (Testbean) BeanMapUtils.toBean(Testbean.class, omap);
+            Assertions.assertEquals("test" + i, o.getName());
+            Assertions.assertEquals(i, o.getAge());
+        }
+        Map<Object, Object> withNull = new HashMap<>();
+        withNull.put("name", null);
+        withNull.put("age", 7);
+        Testbean o = (Testbean) BeanMapUtils.toBean(Testbean.class, withNull);
+        Assertions.assertNull(o.getName());
+        Assertions.assertEquals(7, o.getAge());
+    }
 }
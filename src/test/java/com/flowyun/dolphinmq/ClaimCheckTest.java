@@ -0,0 +1,79 @@
+package com.flowyun.dolphinmq;
+
+import com.flowyun.dolphinmq.common.DolphinMQConfig;
+import com.flowyun.dolphinmq.common.Message;
+import com.flowyun.dolphinmq.common.SequenceUtil;
+import com.flowyun.dolphinmq.transport.ClaimCheck;
+import com.flowyun.dolphinmq.transport.InMemoryTransport;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.StreamMessageId;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 大消息另存测试
+ *
+ * @author Barry
+ * @since 2026/10/19 13:10
+ */
+public class ClaimCheckTest {
+
+    private static DolphinMQConfig config(boolean compress) {
+        DolphinMQConfig config = new DolphinMQConfig();
+        config.setClaimCheckThreshold(1024);
+        config.setClaimCheckChunkSize(256);
+        config.setClaimCheckCompress(compress);
+        config.setClaimCheckTtl(60L);
+        return config;
+    }
+
+    private static Map<Object, Object> fields(int size) {
+        StringBuilder payload = new StringBuilder(size);
+        for (int i = 0; i < size; i++) {
+            payload.append((char) ('a' + i % 26));
+        }
+        Map<Object, Object> fields = new HashMap<>();
+        fields.put("payload", payload.toString());
+        fields.put("seq", 7);
+        fields.put(Message.TAG_FIELD, "big");
+        fields.put(Message.KEY_FIELD, "k1");
+        return fields;
+    }
+
+    @Test
+    void smallMessagePassesThrough() {
+        ClaimCheck claimCheck = new ClaimCheck(new InMemoryTransport(), config(true));
+        Map<Object, Object> fields = fields(16);
+        Assertions.assertSame(fields, claimCheck.checkIn("t1", SequenceUtil.nextMessageId(), fields).join());
+        Assertions.assertFalse(ClaimCheck.isReference(fields));
+    }
+
+    @Test
+    void largeMessageRoundTrip() {
+        for (boolean compress : new boolean[]{true, false}) {
+            ClaimCheck claimCheck = new ClaimCheck(new InMemoryTransport(), config(compress));
+            Map<Object, Object> fields = fields(4096);
+            StreamMessageId id = SequenceUtil.nextMessageId();
+            Map<Object, Object> reference = claimCheck.checkIn("t1", id, fields).join();
+            Assertions.assertTrue(ClaimCheck.isReference(reference));
+            // 保留字段留在stream中，消息体不在
+            Assertions.assertEquals("big", reference.get(Message.TAG_FIELD));
+            Assertions.assertEquals("k1", reference.get(Message.KEY_FIELD));
+            Assertions.assertFalse(reference.containsKey("payload"));
+
+            Map<Object, Object> resolved = claimCheck.resolve(reference).join();
+            Assertions.assertEquals(fields, resolved);
+        }
+    }
+
+    @Test
+    void releaseDeletesBlob() {
+        ClaimCheck claimCheck = new ClaimCheck(new InMemoryTransport(), config(true));
+        Map<Object, Object> reference = claimCheck.checkIn("t1", SequenceUtil.nextMessageId(), fields(4096)).join();
+        Assertions.assertTrue(claimCheck.release(reference).join());
+        Assertions.assertThrows(CompletionException.class, () -> claimCheck.resolve(reference).join());
+    }
+}
@@ -0,0 +1,56 @@
+package com.flowyun.dolphinmq;
+
+import com.flowyun.dolphinmq.common.HashedWheelTimer;
+import com.flowyun.dolphinmq.common.SystemClock;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 时间轮定时器测试
+ *
+ * @author Barry
+ * @since 2026/10/19 09:30
+ */
+public class HashedWheelTimerTest {
+
+    @Test
+    void firesInDeadlineOrderAndCancels() throws InterruptedException {
+        // 8个槽、每槽10毫秒，250毫秒的任务需要绕轮多圈
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", 10, 8);
+        try {
+            List<Integer> fired = new CopyOnWriteArrayList<>();
+            CountDownLatch latch = new CountDownLatch(3);
+            long start = SystemClock.now();
+            long[] firedAt = new long[1];
+            timer.schedule(() -> {
+                fired.add(250);
+                firedAt[0] = SystemClock.now();
+                latch.countDown();
+            }, 250, TimeUnit.MILLISECONDS);
+            timer.schedule(() -> {
+                fired.add(30);
+                latch.countDown();
+            }, 30, TimeUnit.MILLISECONDS);
+            timer.schedule(() -> {
+                fired.add(0);
+                latch.countDown();
+            }, 0, TimeUnit.MILLISECONDS);
+            HashedWheelTimer.Timeout cancelled = timer.schedule(() -> fired.add(-1), 100, TimeUnit.MILLISECONDS);
+            Assertions.assertTrue(cancelled.cancel());
+            Assertions.assertFalse(cancelled.cancel());
+
+            Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(java.util.Arrays.asList(0, 30, 250), fired);
+            Assertions.assertTrue(firedAt[0] - start >= 240, "fired too early: " + (firedAt[0] - start));
+            Assertions.assertEquals(0, timer.pending());
+            Assertions.assertTrue(cancelled.isCancelled());
+        } finally {
+            timer.stop();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.flowyun.dolphinmq;
+
+import com.flowyun.dolphinmq.common.SequenceUtil;
+import com.flowyun.dolphinmq.transport.DelayedMessage;
+import com.flowyun.dolphinmq.transport.InMemoryTransport;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.PendingEntry;
+import org.redisson.api.PendingResult;
+import org.redisson.api.StreamConsumer;
+import org.redisson.api.StreamMessageId;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InMemoryTransport 消费组语义测试
+ *
+ * @author Barry
+ * @since 2026/10/18 17:40
+ */
+public class InMemoryTransportTest {
+
+    private static Map<Object, Object> fields(int seq) {
+        Map<Object, Object> fields = new HashMap<>();
+        fields.put("seq", seq);
+        return fields;
+    }
+
+    @Test
+    void groupReadAckAndPending() {
+        InMemoryTransport transport = new InMemoryTransport();
+        transport.append("t", new StreamMessageId(1, 0), fields(0), 0).join();
+        transport.createGroup("t", "g", StreamMessageId.NEWEST);
+        for (int i = 1; i <= 5; i++) {
+            transport.append("t", new StreamMessageId(1, i), fields(i), 0).join();
+        }
+        Assertions.assertTrue(transport.append("t", new StreamMessageId(1, 3), fields(9), 0).isCompletedExceptionally());
+
+        Map<StreamMessageId, Map<Object, Object>> first = transport.readGroup("t", "g", "c1", 3, StreamMessageId.NEVER_DELIVERED).join();
+        Assertions.assertEquals(Arrays.asList(1, 2, 3), seqs(first));
+        Map<StreamMessageId, Map<Object, Object>> second = transport.readGroup("t", "g", "c2", 0, StreamMessageId.NEVER_DELIVERED).join();
+        Assertions.assertEquals(Arrays.asList(4, 5), seqs(second));
+        Assertions.assertTrue(transport.readGroup("t", "g", "c1", 10, StreamMessageId.NEVER_DELIVERED).join().isEmpty());
+
+        Assertions.assertEquals(1L, transport.ack("t", "g", new StreamMessageId(1, 1)).join().longValue());
+        Assertions.assertEquals(0L, transport.ack("t", "g", new StreamMessageId(1, 1)).join().longValue());
+        PendingResult info = transport.getPendingInfo("t", "g").join();
+        Assertions.assertEquals(4, info.getTotal());
+        Assertions.assertEquals(new StreamMessageId(1, 2), info.getLowestId());
+        Assertions.assertEquals(2L, info.getConsumerNames().get("c1").longValue());
+        Assertions.assertEquals(2L, info.getConsumerNames().get("c2").longValue());
+        Assertions.assertEquals(4L, transport.lag("t", "g", 100).join().longValue());
+
+        // 读取历史消息只返回本消费者的PendingList并增加投递次数
+        Map<StreamMessageId, Map<Object, Object>> history = transport.readGroup("t", "g", "c1", 0, StreamMessageId.ALL).join();
+        Assertions.assertEquals(Arrays.asList(2, 3), seqs(history));
+        List<PendingEntry> pending = transport.listPending("t", "g", "c1", 0, TimeUnit.MILLISECONDS, 10).join();
+        Assertions.assertEquals(2, pending.size());
+        Assertions.assertEquals(2, pending.get(0).getLastTimeDelivered());
+    }
+
+    @Test
+    void claimRangeAndRemove() {
+        InMemoryTransport transport = new InMemoryTransport();
+        transport.createGroup("t", "g", StreamMessageId.ALL);
+        for (int i = 1; i <= 4; i++) {
+            transport.append("t", StreamMessageId.AUTO_GENERATED, fields(i), 0).join();
+        }
+        Map<StreamMessageId, Map<Object, Object>> read = transport.readGroup("t", "g", "dead", 0, StreamMessageId.NEVER_DELIVERED).join();
+        StreamMessageId[] ids = read.keySet().toArray(new StreamMessageId[0]);
+        Assertions.assertEquals(4, ids.length);
+
+        // 空闲时间未达到门槛时不认领
+        Assertions.assertTrue(transport.claim("t", "g", "alive", 1, TimeUnit.HOURS, ids).join().isEmpty());
+        transport.remove("t", ids[3]).join();
+        Map<StreamMessageId, Map<Object, Object>> claimed = transport.claim("t", "g", "alive", 0, TimeUnit.MILLISECONDS, ids).join();
+        Assertions.assertEquals(Arrays.asList(1, 2, 3), seqs(claimed));
+        PendingResult info = transport.getPendingInfo("t", "g").join();
+        Assertions.assertEquals(3, info.getTotal());
+        Assertions.assertEquals(Collections.singletonMap("alive", 3L), info.getConsumerNames());
+
+        Assertions.assertEquals(Arrays.asList(2, 3), seqs(transport.range("t", ids[1], StreamMessageId.MAX).join()));
+        Assertions.assertEquals(Collections.singletonList(1), seqs(transport.range("t", ids[0], ids[0]).join()));
+        Assertions.assertTrue(transport.readGroup("t", "missing", "c", 1, StreamMessageId.NEVER_DELIVERED).isCompletedExceptionally());
+    }
+
+    @Test
+    void consumerIdleSinceLastRead() throws InterruptedException {
+        InMemoryTransport transport = new InMemoryTransport();
+        transport.createGroup("t", "g", StreamMessageId.ALL);
+        transport.append("t", StreamMessageId.AUTO_GENERATED, fields(1), 0).join();
+        transport.readGroup("t", "g", "dead", 0, StreamMessageId.NEVER_DELIVERED).join();
+        Thread.sleep(50);
+        // 没有新消息的读取同样刷新空闲时间
+        transport.readGroup("t", "g", "alive", 0, StreamMessageId.NEVER_DELIVERED).join();
+
+        Map<String, StreamConsumer> consumers = new HashMap<>();
+        for (StreamConsumer consumer :
+                transport.listConsumers("t", "g").join()) {
+            consumers.put(consumer.getName(), consumer);
+        }
+        Assertions.assertEquals(1, consumers.get("dead").getPending());
+        Assertions.assertEquals(0, consumers.get("alive").getPending());
+        Assertions.assertTrue(consumers.get("dead").getIdleTime() >= 50);
+        Assertions.assertTrue(consumers.get("alive").getIdleTime() < 50);
+    }
+
+    @Test
+    void trimAndConsumedFlag() {
+        InMemoryTransport transport = new InMemoryTransport();
+        for (int i = 1; i <= 10; i++) {
+            transport.append("t", StreamMessageId.AUTO_GENERATED, fields(i), 3).join();
+        }
+        Assertions.assertEquals(Arrays.asList(8, 9, 10), seqs(transport.range("t", StreamMessageId.MIN, StreamMessageId.MAX).join()));
+
+        Assertions.assertFalse(transport.isConsumed("g1-1").join());
+        transport.markConsumed("g1-1", 30, TimeUnit.MINUTES);
+        Assertions.assertTrue(transport.isConsumed("g1-1").join());
+        transport.markConsumed("g1-2", 0, TimeUnit.MINUTES);
+        Assertions.assertFalse(transport.isConsumed("g1-2").join());
+    }
+
+    @Test
+    void trimBeforeLowWatermark() {
+        InMemoryTransport transport = new InMemoryTransport();
+        for (int i = 1; i <= 10; i++) {
+            transport.append("t", new StreamMessageId(i, 0), fields(i), 0).join();
+        }
+        Assertions.assertNull(transport.lowWatermark("t").join());
+        transport.createGroup("t", "fast", StreamMessageId.ALL);
+        transport.createGroup("t", "slow", StreamMessageId.ALL);
+        Map<StreamMessageId, Map<Object, Object>> fast = transport.readGroup("t", "fast", "c", 8, StreamMessageId.NEVER_DELIVERED).join();
+        transport.ack("t", "fast", fast.keySet().toArray(new StreamMessageId[0])).join();
+        transport.readGroup("t", "slow", "c", 6, StreamMessageId.NEVER_DELIVERED).join();
+        transport.ack("t", "slow", new StreamMessageId(1, 0), new StreamMessageId(2, 0), new StreamMessageId(3, 0),
+                new StreamMessageId(5, 0)).join();
+
+        // slow组PendingList中最小的是4，fast组最后投递的是8
+        StreamMessageId watermark = transport.lowWatermark("t").join();
+        Assertions.assertEquals(new StreamMessageId(4, 0), watermark);
+        Assertions.assertEquals(3L, transport.trimBefore("t", watermark).join().longValue());
+        Assertions.assertEquals(Arrays.asList(4, 5, 6, 7, 8, 9, 10), seqs(transport.range("t", StreamMessageId.MIN, StreamMessageId.MAX).join()));
+        Assertions.assertEquals(4L, transport.trim("t", 3).join().longValue());
+        Assertions.assertEquals(3L, transport.size("t").join().longValue());
+    }
+
+    @Test
+    void setGroupIdRewinds() {
+        InMemoryTransport transport = new InMemoryTransport();
+        transport.createGroup("t", "g", StreamMessageId.NEWEST);
+        for (int i = 1; i <= 5; i++) {
+            transport.append("t", new StreamMessageId(i, 0), fields(i), 0).join();
+        }
+        Map<StreamMessageId, Map<Object, Object>> read = transport.readGroup("t", "g", "c", 0, StreamMessageId.NEVER_DELIVERED).join();
+        transport.ack("t", "g", read.keySet().toArray(new StreamMessageId[0])).join();
+
+        // 从3（包含）开始重新投递
+        transport.setGroupId("t", "g", SequenceUtil.previousIdOf(new StreamMessageId(3, 0))).join();
+        Assertions.assertEquals(Arrays.asList(3, 4, 5), seqs(transport.readGroup("t", "g", "c", 0, StreamMessageId.NEVER_DELIVERED).join()));
+        transport.setGroupId("t", "g", StreamMessageId.ALL).join();
+        Assertions.assertEquals(Arrays.asList(1, 2), seqs(transport.readGroup("t", "g", "c", 2, StreamMessageId.NEVER_DELIVERED).join()));
+        transport.setGroupId("t", "g", StreamMessageId.NEWEST).join();
+        Assertions.assertTrue(transport.readGroup("t", "g", "c", 0, StreamMessageId.NEVER_DELIVERED).join().isEmpty());
+        Assertions.assertTrue(transport.setGroupId("t", "missing", StreamMessageId.ALL).isCompletedExceptionally());
+    }
+
+    @Test
+    void delayedPollInDeliverOrder() {
+        InMemoryTransport transport = new InMemoryTransport();
+        transport.addDelayed("t", new StreamMessageId(1, 0), 300, fields(3)).join();
+        transport.addDelayed("t", new StreamMessageId(2, 0), 100, fields(1)).join();
+        transport.addDelayed("t", new StreamMessageId(3, 0), 200, fields(2)).join();
+        transport.addDelayed("t", new StreamMessageId(4, 0), 900, fields(9)).join();
+
+        Assertions.assertTrue(transport.pollDue(50, 10).join().isEmpty());
+        List<DelayedMessage> due = transport.pollDue(300, 2).join();
+        Assertions.assertEquals(2, due.size());
+        Assertions.assertEquals(1, due.get(0).getFields().get("seq"));
+        Assertions.assertEquals(2, due.get(1).getFields().get("seq"));
+        Assertions.assertEquals(2L, transport.removeDelayed(due).join().longValue());
+        Assertions.assertEquals(0L, transport.removeDelayed(due).join().longValue());
+        due = transport.pollDue(300, 10).join();
+        Assertions.assertEquals(1, due.size());
+        Assertions.assertEquals(new StreamMessageId(1, 0), due.get(0).getId());
+    }
+
+    @Test
+    void leaseHeldByOneOwner() {
+        InMemoryTransport transport = new InMemoryTransport();
+        Assertions.assertTrue(transport.tryLead("mover", "a", 60000).join());
+        Assertions.assertFalse(transport.tryLead("mover", "b", 60000).join());
+        // 持有者续租
+        Assertions.assertTrue(transport.tryLead("mover", "a", 0).join());
+        // 租约过期后其他实例接管
+        Assertions.assertTrue(transport.tryLead("mover", "b", 60000).join());
+        Assertions.assertFalse(transport.tryLead("mover", "a", 60000).join());
+    }
+
+    private static List<Integer> seqs(Map<StreamMessageId, Map<Object, Object>> messages) {
+        List<Integer> seqs = new ArrayList<>();
+        for (Map<Object, Object> fields :
+                messages.values()) {
+            seqs.add((Integer) fields.get("seq"));
+        }
+        return seqs;
+    }
+}
@@ -0,0 +1,109 @@
+package com.flowyun.dolphinmq;
+
+import com.flowyun.dolphinmq.common.DolphinMQConfig;
+import com.flowyun.dolphinmq.common.Message;
+import com.flowyun.dolphinmq.common.RetentionPolicy;
+import com.flowyun.dolphinmq.common.SequenceUtil;
+import com.flowyun.dolphinmq.producer.KeyCompactor;
+import com.flowyun.dolphinmq.transport.InMemoryTransport;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.StreamMessageId;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按消息键压缩测试
+ *
+ * @author Barry
+ * @since 2026/10/19 12:40
+ */
+public class KeyCompactorTest {
+
+    private static DolphinMQConfig config() {
+        DolphinMQConfig config = new DolphinMQConfig();
+        config.setCompactionScanSize(100);
+        config.setRetentionBatchSize(2);
+        return config;
+    }
+
+    private static void append(InMemoryTransport transport, int seq, String key, boolean tombstone) {
+        Map<Object, Object> fields = new HashMap<>();
+        fields.put("seq", seq);
+        if (key != null) {
+            fields.put(Message.KEY_FIELD, key);
+        }
+        if (tombstone) {
+            fields.put(Message.TOMBSTONE_FIELD, "1");
+        }
+        transport.append("state", SequenceUtil.nextMessageId(), fields, 0).join();
+    }
+
+    @Test
+    void keepsLatestPerKeyBelowWatermark() {
+        InMemoryTransport transport = new InMemoryTransport();
+        append(transport, 1, "a", false);
+        append(transport, 2, "b", false);
+        append(transport, 3, "a", false);
+        append(transport, 4, null, false);
+        append(transport, 5, "b", false);
+        append(transport, 6, "a", false);
+        transport.createGroup("state", "g", StreamMessageId.ALL);
+        Map<StreamMessageId, Map<Object, Object>> read = transport.readGroup("state", "g", "c", 4, StreamMessageId.NEVER_DELIVERED).join();
+        transport.ack("state", "g", read.keySet().toArray(new StreamMessageId[0])).join();
+
+        KeyCompactor compactor = new KeyCompactor(transport, config());
+        RetentionPolicy policy = RetentionPolicy.compacted();
+        // 低水位之前的1、2、3都已被同键的新消息取代
+        Assertions.assertEquals(3L, compactor.compact("state", policy, 60000));
+        Assertions.assertEquals(Arrays.asList(4, 5, 6), seqs(transport));
+
+        transport.ack("state", "g", transport.readGroup("state", "g", "c", 0, StreamMessageId.NEVER_DELIVERED).join()
+                .keySet().toArray(new StreamMessageId[0])).join();
+        Assertions.assertEquals(0L, compactor.compact("state", policy, 60000));
+    }
+
+    @Test
+    void removesExpiredTombstones() throws InterruptedException {
+        InMemoryTransport transport = new InMemoryTransport();
+        append(transport, 1, "a", false);
+        append(transport, 2, "b", false);
+        append(transport, 3, "a", true);
+
+        KeyCompactor compactor = new KeyCompactor(transport, config());
+        // 墓碑未到期：只删除被取代的旧消息
+        Assertions.assertEquals(1L, compactor.compact("state", RetentionPolicy.compacted(), 60000));
+        Assertions.assertEquals(Arrays.asList(2, 3), seqs(transport));
+        Thread.sleep(5);
+        Assertions.assertEquals(1L, compactor.compact("state",
+                RetentionPolicy.compacted().withTombstoneRetention(0, TimeUnit.MILLISECONDS), 60000));
+        Assertions.assertEquals(Arrays.asList(2), seqs(transport));
+    }
+
+    @Test
+    void onlyLeaderCompacts() {
+        InMemoryTransport transport = new InMemoryTransport();
+        append(transport, 1, "a", false);
+        append(transport, 2, "a", false);
+        KeyCompactor leader = new KeyCompactor(transport, config());
+        KeyCompactor follower = new KeyCompactor(transport, config());
+        Assertions.assertEquals(1L, leader.compact("state", RetentionPolicy.compacted(), 60000));
+        append(transport, 3, "a", false);
+        Assertions.assertEquals(0L, follower.compact("state", RetentionPolicy.compacted(), 60000));
+        Assertions.assertEquals(Arrays.asList(2, 3), seqs(transport));
+    }
+
+    private static List<Integer> seqs(InMemoryTransport transport) {
+        List<Integer> seqs = new ArrayList<>();
+        for (Map<Object, Object> fields :
+                transport.range("state", StreamMessageId.MIN, StreamMessageId.MAX).join().values()) {
+            seqs.add((Integer) fields.get("seq"));
+        }
+        return seqs;
+    }
+}
@@ -0,0 +1,86 @@
+package com.flowyun.dolphinmq;
+
+import com.flowyun.dolphinmq.common.Message;
+import com.flowyun.dolphinmq.producer.MessageConflator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.StreamMessageId;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按消息键合并发送测试
+ *
+ * @author Barry
+ * @since 2026/10/19 12:10
+ */
+public class MessageConflatorTest {
+
+    private static Message message(String key, int value) {
+        Message msg = new Message("prices");
+        msg.setKey(key);
+        msg.setProperties(Collections.singletonMap("value", value));
+        return msg;
+    }
+
+    @Test
+    void latestPerKeyWithinWindow() throws Exception {
+        List<Message> sent = Collections.synchronizedList(new ArrayList<>());
+        MessageConflator conflator = new MessageConflator(msg -> {
+            sent.add(msg);
+            return CompletableFuture.completedFuture(null);
+        }, new SimpleMeterRegistry());
+        Message first = message("a", 1);
+        StreamMessageId firstId = first.getId();
+        CompletableFuture<Void> a1 = conflator.offer("prices", first, 50);
+        CompletableFuture<Void> b1 = conflator.offer("prices", message("b", 1), 50);
+        CompletableFuture<Void> a2 = conflator.offer("prices", message("a", 2), 50);
+        Assertions.assertSame(a1, a2);
+        Assertions.assertTrue(sent.isEmpty());
+
+        CompletableFuture.allOf(a1, b1).get(5, TimeUnit.SECONDS);
+        // 按各键最后一次更新的顺序发送
+        List<String> order = new ArrayList<>();
+        for (Message msg :
+                sent) {
+            order.add(msg.getKey() + "=" + msg.getProperties().get("value"));
+        }
+        Assertions.assertEquals(Arrays.asList("b=1", "a=2"), order);
+        Assertions.assertEquals(3, conflator.getOffered("prices"));
+        Assertions.assertEquals(1, conflator.getConflated("prices"));
+        Assertions.assertNotEquals(firstId, sent.get(1).getId());
+        // 发送的是副本，调用方的消息不变
+        Assertions.assertEquals(firstId, first.getId());
+
+        // 窗口到期后重新开始合并
+        CompletableFuture<Void> a3 = conflator.offer("prices", message("a", 3), 10);
+        a3.get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(3, sent.size());
+        conflator.stop();
+    }
+
+    @Test
+    void stopFlushesPending() {
+        List<Message> sent = new ArrayList<>();
+        MessageConflator conflator = new MessageConflator(msg -> {
+            sent.add(msg);
+            return CompletableFuture.completedFuture(null);
+        }, new SimpleMeterRegistry());
+        CompletableFuture<Void> future = conflator.offer("prices", message("a", 1), 60000);
+        conflator.stop();
+        Assertions.assertTrue(future.isDone());
+        Assertions.assertEquals(1, sent.size());
+
+        // 停止后放入的消息不会悬挂
+        CompletableFuture<Void> late = conflator.offer("prices", message("b", 1), 10);
+        Assertions.assertTrue(late.isCompletedExceptionally());
+        Assertions.assertTrue(conflator.offer("prices", message("c", 1), 10).isCompletedExceptionally());
+        Assertions.assertEquals(1, sent.size());
+    }
+}
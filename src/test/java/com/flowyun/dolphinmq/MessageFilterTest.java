@@ -0,0 +1,37 @@
+package com.flowyun.dolphinmq;
+
+import com.flowyun.dolphinmq.consumer.MessageFilter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 订阅过滤条件测试
+ *
+ * @author Barry
+ * @since 2026/10/18 22:20
+ */
+public class MessageFilterTest {
+
+    @Test
+    void tagsAndHeaders() {
+        Map<String, String> none = Collections.emptyMap();
+        MessageFilter all = MessageFilter.tags(" * ");
+        Assertions.assertTrue(all.accept(null, none));
+        Assertions.assertTrue(all.accept("paid", none));
+
+        MessageFilter tags = MessageFilter.tags("paid || refunded");
+        Assertions.assertTrue(tags.accept("paid", none));
+        Assertions.assertTrue(tags.accept("refunded", none));
+        Assertions.assertFalse(tags.accept("created", none));
+        Assertions.assertFalse(tags.accept(null, none));
+        Assertions.assertFalse(MessageFilter.tags("paid").accept(null, none));
+
+        MessageFilter region = tags.and(MessageFilter.header("region", "cn", "hk"));
+        Assertions.assertTrue(region.accept("paid", Collections.singletonMap("region", "hk")));
+        Assertions.assertFalse(region.accept("paid", Collections.singletonMap("region", "us")));
+        Assertions.assertFalse(region.accept("paid", none));
+    }
+}
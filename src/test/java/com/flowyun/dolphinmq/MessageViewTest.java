@@ -0,0 +1,46 @@
+package com.flowyun.dolphinmq;
+
+import com.flowyun.dolphinmq.common.Message;
+import com.flowyun.dolphinmq.consumer.MessageView;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.StreamMessageId;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 消息视图测试
+ *
+ * @author Barry
+ * @since 2026/10/18 22:50
+ */
+public class MessageViewTest {
+
+    @Test
+    void readsFieldsOnAccess() {
+        Map<Object, Object> fields = new HashMap<>();
+        fields.put("name", "test");
+        fields.put("age", 13);
+        fields.put("payload", new byte[]{1, 2, 3});
+        fields.put(Message.TAG_FIELD, "paid");
+        fields.put(Message.HEADER_PREFIX + "region", "cn");
+        MessageView view = new MessageView("t1", new StreamMessageId(1, 2), fields);
+
+        Assertions.assertEquals("t1", view.getTopic());
+        Assertions.assertEquals("paid", view.getTag());
+        Assertions.assertEquals("cn", view.getHeader("region"));
+        Assertions.assertEquals(1, view.getHeaders().size());
+        Assertions.assertEquals(13, view.get("age", Integer.class).intValue());
+        Assertions.assertSame(fields.get("payload"), view.getBytes("payload"));
+        Assertions.assertArrayEquals("test".getBytes(StandardCharsets.UTF_8), view.getBytes("name"));
+        Assertions.assertThrows(ClassCastException.class, () -> view.get("name", Integer.class));
+        Assertions.assertNull(view.getString("missing"));
+
+        MessageView copy = view.copy();
+        fields.clear();
+        Assertions.assertEquals("test", copy.getString("name"));
+        Assertions.assertEquals("cn", copy.getHeader("region"));
+    }
+}
@@ -0,0 +1,140 @@
+package com.flowyun.dolphinmq;
+
+import com.flowyun.dolphinmq.common.DolphinMQConfig;
+import com.flowyun.dolphinmq.consumer.MessageView;
+import com.flowyun.dolphinmq.consumer.MessageViewListener;
+import com.flowyun.dolphinmq.consumer.PullConsumerClient;
+import com.flowyun.dolphinmq.transport.InMemoryTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.StreamMessageId;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 多stream合并读取与按订阅分发测试
+ *
+ * @author Barry
+ * @since 2026/10/19 15:10
+ */
+public class MultiStreamReadTest {
+    private static final String[] TOPICS = {"full", "partial", "empty", "single"};
+
+    private AnnotationConfigApplicationContext context;
+    private DolphinMQConfig config;
+    private RecordingTransport transport;
+    private PullConsumerClient consumer;
+
+    /**
+     * 记录每次多stream读取的主题与各主题读到的条数
+     */
+    private static class RecordingTransport extends InMemoryTransport {
+        private final List<List<String>> calls = new CopyOnWriteArrayList<>();
+        private final List<Map<String, Integer>> results = new CopyOnWriteArrayList<>();
+
+        @Override
+        public CompletableFuture<Map<String, Map<StreamMessageId, Map<Object, Object>>>> readGroup(List<String> topics, String group, String consumer, int count) {
+            calls.add(new ArrayList<>(topics));
+            return super.readGroup(topics, group, consumer, count).thenApply(res -> {
+                Map<String, Integer> sizes = new HashMap<>();
+                res.forEach((topic, messages) -> sizes.put(topic, messages.size()));
+                results.add(sizes);
+                return res;
+            });
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        context = new AnnotationConfigApplicationContext(DolphinMQConfig.class);
+        config = context.getBean(DolphinMQConfig.class);
+        config.setMetricsEnabled(false);
+        config.setFetchMessageSize(5);
+        config.setMultiStreamReadSize(2);
+        // 只由测试触发拉取
+        config.setPullHealthyMessagesPeriod(3600);
+        transport = new RecordingTransport();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (consumer != null) {
+            consumer.stop();
+        }
+        context.close();
+    }
+
+    @Test
+    void batchedReadDemultiplexedPerSubscriber() throws InterruptedException {
+        consumer = new PullConsumerClient.Builder(config)
+                .setTransport(transport)
+                .setService("g")
+                .setConsumerName("c")
+                .build();
+        Map<String, List<String>> received = new ConcurrentHashMap<>();
+        for (String topic :
+                TOPICS) {
+            List<String> views = new CopyOnWriteArrayList<>();
+            received.put(topic, views);
+            consumer.subscribe(topic).registerViewListener(new MessageViewListener() {
+                @Override
+                public void consume(MessageView view) {
+                    views.add(view.getTopic());
+                }
+            });
+        }
+        consumer.start();
+        append("full", 12);
+        append("partial", 3);
+        append("single", 1);
+
+        consumer.consumeHealthMessages();
+        // 4个订阅按multiStreamReadSize分成两次读取，每次2个stream
+        Assertions.assertEquals(2, transport.calls.size());
+        Set<String> read = new HashSet<>();
+        for (List<String> call :
+                transport.calls) {
+            Assertions.assertEquals(2, call.size());
+            read.addAll(call);
+        }
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(TOPICS)), read);
+        Map<String, Integer> sizes = new HashMap<>();
+        transport.results.forEach(sizes::putAll);
+        // full达到每次拉取条数上限，empty没有返回
+        Assertions.assertEquals(5, sizes.get("full").intValue());
+        Assertions.assertEquals(3, sizes.get("partial").intValue());
+        Assertions.assertEquals(1, sizes.get("single").intValue());
+        Assertions.assertFalse(sizes.containsKey("empty"));
+
+        // 剩余消息在后续拉取中读完
+        long deadline = System.currentTimeMillis() + 5000;
+        while (received.get("full").size() < 12 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            consumer.consumeHealthMessages();
+        }
+        Assertions.assertEquals(12, received.get("full").size());
+        Assertions.assertEquals(3, received.get("partial").size());
+        Assertions.assertEquals(1, received.get("single").size());
+        Assertions.assertTrue(received.get("empty").isEmpty());
+        // 每个订阅只收到自己主题的消息
+        for (Map.Entry<String, List<String>> entry :
+                received.entrySet()) {
+            for (String topic :
+                    entry.getValue()) {
+                Assertions.assertEquals(entry.getKey(), topic);
+            }
+        }
+    }
+
+    private void append(String topic, int count) {
+        for (int i = 0; i < count; i++) {
+            transport.append(topic, StreamMessageId.AUTO_GENERATED, Collections.singletonMap("seq", i), 0).join();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.flowyun.dolphinmq;
+
+import com.flowyun.dolphinmq.common.DolphinMQConfig;
+import com.flowyun.dolphinmq.common.LagPolicy;
+import com.flowyun.dolphinmq.common.Message;
+import com.flowyun.dolphinmq.common.SequenceUtil;
+import com.flowyun.dolphinmq.consumer.PriorityPolicy;
+import com.flowyun.dolphinmq.producer.Producer;
+import com.flowyun.dolphinmq.transport.InMemoryTransport;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.StreamMessageId;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.Collections;
+
+/**
+ * 优先级策略与子stream命名测试
+ *
+ * @author Barry
+ * @since 2026/10/19 11:40
+ */
+public class PriorityPolicyTest {
+
+    @Test
+    void strictAndWeighted() {
+        PriorityPolicy strict = PriorityPolicy.strict(3);
+        Assertions.assertTrue(strict.isStrict());
+        Assertions.assertEquals(3, strict.getLevels());
+        Assertions.assertEquals(1, strict.weightOf(2));
+
+        PriorityPolicy weighted = PriorityPolicy.weighted(1, 8);
+        Assertions.assertFalse(weighted.isStrict());
+        Assertions.assertEquals(2, weighted.getLevels());
+        Assertions.assertEquals(8, weighted.weightOf(1));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PriorityPolicy.strict(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PriorityPolicy.weighted(1, 0));
+    }
+
+    @Test
+    void streamOfPriority() {
+        Assertions.assertEquals("t1", Message.streamOf("t1", 0));
+        Assertions.assertEquals("t1:p2", Message.streamOf("t1", 2));
+        Assertions.assertEquals("{t1}:p1", Message.streamOf("{t1}", 1));
+    }
+
+    @Test
+    void lagThrottleChecksWrittenLane() throws InterruptedException {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(DolphinMQConfig.class)) {
+            DolphinMQConfig config = context.getBean(DolphinMQConfig.class);
+            config.setProducerLagThreshold(2);
+            config.setProducerLagPolicy(LagPolicy.REJECT);
+            config.setProducerLagCheckPeriod(20);
+            InMemoryTransport transport = new InMemoryTransport();
+            String lane = Message.streamOf("t1", 1);
+            transport.createGroup(lane, "g", StreamMessageId.ALL);
+            for (int i = 0; i < 5; i++) {
+                transport.append(lane, SequenceUtil.nextMessageId(), Collections.singletonMap("seq", i), 0).join();
+            }
+            Producer producer = new Producer();
+            producer.setConfig(config);
+            producer.setTransport(transport);
+
+            // 首次发送开始监控，等待一次刷新
+            producer.sendMessageAsync(priority(1)).join();
+            Thread.sleep(200);
+            Assertions.assertTrue(producer.sendMessageAsync(priority(1)).isCompletedExceptionally());
+            // 优先级0的stream没有积压
+            producer.sendMessageAsync(priority(0)).join();
+            producer.destroy();
+        }
+    }
+
+    private static Message priority(int priority) {
+        Message msg = new Message("t1");
+        msg.setPriority(priority);
+        return msg;
+    }
+}
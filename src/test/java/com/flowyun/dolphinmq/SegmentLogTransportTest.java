@@ -0,0 +1,123 @@
+package com.flowyun.dolphinmq;
+
+import com.flowyun.dolphinmq.common.DolphinMQConfig;
+import com.flowyun.dolphinmq.common.Message;
+import com.flowyun.dolphinmq.exception.MQClientException;
+import com.flowyun.dolphinmq.producer.Producer;
+import com.flowyun.dolphinmq.transport.ClaimCheck;
+import com.flowyun.dolphinmq.transport.segment.SegmentLogTransport;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.PendingResult;
+import org.redisson.api.StreamMessageId;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SegmentLogTransport 测试：段滚动、重启后恢复消息与消费组状态
+ *
+ * @author Barry
+ * @since 2026/10/18 19:20
+ */
+public class SegmentLogTransportTest {
+
+    private static Map<Object, Object> fields(int seq) {
+        Map<Object, Object> fields = new LinkedHashMap<>();
+        fields.put("seq", seq);
+        fields.put("name", "msg-" + seq);
+        fields.put("payload", new byte[]{1, 2, 3});
+        return fields;
+    }
+
+    @Test
+    void recoverAfterReopen() throws IOException {
+        Path dir = Files.createTempDirectory("dolphinmq-segment");
+        // 段很小，100条消息会滚动出多个段
+        SegmentLogTransport transport = new SegmentLogTransport(dir, 1024);
+        transport.createGroup("orders/eu", "g", StreamMessageId.ALL);
+        for (int i = 1; i <= 100; i++) {
+            transport.append("orders/eu", new StreamMessageId(1000 + i, 0), fields(i), 0).join();
+        }
+        Map<StreamMessageId, Map<Object, Object>> read = transport.readGroup("orders/eu", "g", "c1", 30, StreamMessageId.NEVER_DELIVERED).join();
+        Assertions.assertEquals(30, read.size());
+        Map<Object, Object> first = read.get(new StreamMessageId(1001, 0));
+        Assertions.assertEquals(1, first.get("seq"));
+        Assertions.assertEquals("msg-1", first.get("name"));
+        Assertions.assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) first.get("payload"));
+        transport.ack("orders/eu", "g", read.keySet().toArray(new StreamMessageId[0])).join();
+        transport.readGroup("orders/eu", "g", "c1", 5, StreamMessageId.NEVER_DELIVERED).join();
+        transport.remove("orders/eu", new StreamMessageId(1050, 0)).join();
+        transport.close();
+
+        SegmentLogTransport reopened = new SegmentLogTransport(dir, 1024);
+        PendingResult info = reopened.getPendingInfo("orders/eu", "g").join();
+        Assertions.assertEquals(5, info.getTotal());
+        Assertions.assertEquals(new StreamMessageId(1031, 0), info.getLowestId());
+        Assertions.assertEquals(69L, reopened.lag("orders/eu", "g", 1000).join().longValue());
+        Map<StreamMessageId, Map<Object, Object>> next = reopened.readGroup("orders/eu", "g", "c1", 0, StreamMessageId.NEVER_DELIVERED).join();
+        Assertions.assertEquals(64, next.size());
+        Assertions.assertFalse(next.containsKey(new StreamMessageId(1050, 0)));
+        Assertions.assertEquals(100, next.get(new StreamMessageId(1100, 0)).get("seq"));
+        Assertions.assertEquals(5, reopened.claim("orders/eu", "g", "c2", 0, TimeUnit.MILLISECONDS,
+                new StreamMessageId(1031, 0), new StreamMessageId(1032, 0), new StreamMessageId(1033, 0),
+                new StreamMessageId(1034, 0), new StreamMessageId(1035, 0)).join().size());
+        Assertions.assertTrue(reopened.append("orders/eu", new StreamMessageId(1100, 0), fields(0), 0).isCompletedExceptionally());
+        reopened.close();
+    }
+
+    @Test
+    void trimWholeSegments() throws IOException {
+        Path dir = Files.createTempDirectory("dolphinmq-segment");
+        SegmentLogTransport transport = new SegmentLogTransport(dir, 1024);
+        for (int i = 1; i <= 200; i++) {
+            transport.append("t", StreamMessageId.AUTO_GENERATED, fields(i), 50).join();
+        }
+        Map<StreamMessageId, Map<Object, Object>> all = transport.range("t", StreamMessageId.MIN, StreamMessageId.MAX).join();
+        Assertions.assertTrue(all.size() >= 50 && all.size() < 100, "size:" + all.size());
+        List<Object> seqs = new ArrayList<>();
+        all.values().forEach(fields -> seqs.add(fields.get("seq")));
+        Assertions.assertEquals(200, seqs.get(seqs.size() - 1));
+        transport.close();
+    }
+
+    @Test
+    void delayedRejectedUpFront() throws IOException {
+        Path dir = Files.createTempDirectory("dolphinmq-segment");
+        SegmentLogTransport transport = new SegmentLogTransport(dir, 1024);
+        Producer producer = new Producer();
+        producer.setConfig(new DolphinMQConfig());
+        producer.setTransport(transport);
+
+        CompletableFuture<Void> future = producer.sendMessageAsync(new Message("t"), 1, TimeUnit.MINUTES);
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, future::get);
+        Assertions.assertTrue(e.getCause() instanceof MQClientException);
+        Assertions.assertThrows(UnsupportedOperationException.class, producer::startDelayedMover);
+        Assertions.assertEquals(0L, transport.size("t").join().longValue());
+        producer.destroy();
+        transport.close();
+    }
+
+    @Test
+    void claimCheckRejectedUpFront() throws IOException {
+        Path dir = Files.createTempDirectory("dolphinmq-segment");
+        SegmentLogTransport transport = new SegmentLogTransport(dir, 1024);
+        DolphinMQConfig config = new DolphinMQConfig();
+        config.setClaimCheckThreshold(1024);
+        Producer producer = new Producer();
+        producer.setConfig(config);
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> producer.setTransport(transport));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> new ClaimCheck(transport, config));
+
+        // 未开启大消息另存时可以使用
+        config.setClaimCheckThreshold(0);
+        producer.setTransport(transport);
+        producer.destroy();
+        transport.close();
+    }
+}
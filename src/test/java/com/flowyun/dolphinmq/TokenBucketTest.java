@@ -0,0 +1,25 @@
+package com.flowyun.dolphinmq;
+
+import com.flowyun.dolphinmq.common.TokenBucket;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * TokenBucket 测试
+ *
+ * @author Barry
+ * @since 2026/10/18 14:40
+ */
+public class TokenBucketTest {
+
+    @Test
+    void burstAndDebt() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(10);
+        Assertions.assertEquals(10, bucket.available());
+        bucket.consume(15);
+        Assertions.assertEquals(0, bucket.available());
+        Thread.sleep(700);
+        long available = bucket.available();
+        Assertions.assertTrue(available >= 1 && available <= 3, "available:" + available);
+    }
+}
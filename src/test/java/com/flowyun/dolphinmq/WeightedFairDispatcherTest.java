@@ -0,0 +1,110 @@
+package com.flowyun.dolphinmq;
+
+import com.flowyun.dolphinmq.consumer.WeightedFairDispatcher;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * WeightedFairDispatcher 测试
+ *
+ * @author Barry
+ * @since 2026/10/18 11:05
+ */
+public class WeightedFairDispatcherTest {
+
+    @Test
+    void weightedOrder() throws InterruptedException {
+        WeightedFairDispatcher dispatcher = new WeightedFairDispatcher(1);
+        WeightedFairDispatcher.Lane bulk = dispatcher.addLane("bulk");
+        WeightedFairDispatcher.Lane control = dispatcher.addLane("control");
+        control.setWeight(3);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(16);
+        for (int i = 0; i < 8; i++) {
+            dispatcher.submit(bulk, () -> {
+                order.add("bulk");
+                latch.countDown();
+            });
+            dispatcher.submit(control, () -> {
+                order.add("control");
+                latch.countDown();
+            });
+        }
+        dispatcher.start();
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        long controlInFirstEight = order.subList(0, 8).stream().filter("control"::equals).count();
+        Assertions.assertEquals(6, controlInFirstEight);
+    }
+
+    @Test
+    void concurrencyLimit() throws InterruptedException {
+        WeightedFairDispatcher dispatcher = new WeightedFairDispatcher(4);
+        WeightedFairDispatcher.Lane lane = dispatcher.addLane("limited");
+        lane.setMaxConcurrency(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(20);
+        for (int i = 0; i < 20; i++) {
+            dispatcher.submit(lane, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                latch.countDown();
+            });
+        }
+        dispatcher.start();
+        Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, maxRunning.get());
+    }
+
+    @Test
+    void abandonedTaskFreesWorkerAndSlot() throws InterruptedException {
+        WeightedFairDispatcher dispatcher = new WeightedFairDispatcher(1);
+        WeightedFairDispatcher.Lane lane = dispatcher.addLane("stuck");
+        lane.setMaxConcurrency(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<WeightedFairDispatcher.Execution> stuck = new AtomicReference<>();
+        dispatcher.submit(lane, () -> {
+            stuck.set(dispatcher.current());
+            started.countDown();
+            // 不响应中断的监听器
+            while (release.getCount() > 0) {
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+        });
+        CountDownLatch next = new CountDownLatch(1);
+        dispatcher.submit(lane, next::countDown);
+        dispatcher.start();
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        Assertions.assertFalse(next.await(50, TimeUnit.MILLISECONDS));
+
+        Assertions.assertTrue(stuck.get().abandon());
+        Assertions.assertFalse(stuck.get().abandon());
+        Assertions.assertTrue(next.await(5, TimeUnit.SECONDS));
+        release.countDown();
+        stuck.get().getWorker().join(5000);
+        Assertions.assertFalse(stuck.get().getWorker().isAlive());
+        // 被放弃的任务返回后不再重复释放名额
+        for (int i = 0; i < 100 && lane.backlog() > 0; i++) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(0, lane.backlog());
+        dispatcher.stop();
+    }
+}